@@ -29,19 +29,15 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.CheckForNull;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -62,8 +58,37 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  * Abstract class for job copy operation using XML DOM.
  * @see jp.ikedam.jenkins.plugins.jobcopy_builder.JobcopyOperation
  */
-public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
+public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation implements DomJobcopyOperation
 {
+    /**
+     * The maximum number of compiled XPaths cached in each thread.
+     */
+    private static final int XPATH_CACHE_SIZE = 64;
+    
+    /**
+     * Parsers reused in each thread, as {@link DocumentBuilder} is not thread safe.
+     */
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>();
+    
+    /**
+     * Compiled XPaths cached in each thread, as {@link XPathExpression} is not thread safe.
+     */
+    private static final ThreadLocal<Map<String, XPathExpression>> XPATH_CACHE = new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue()
+        {
+            return new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest)
+                {
+                    return size() > XPATH_CACHE_SIZE;
+                }
+            };
+        }
+    };
+    
     /**
      * Performs modifications to job configure XML Document.
      * 
@@ -72,6 +97,7 @@ public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
      * @param logger    The output stream to log.
      * @return          modified XML Document. Return null if an error occurs.
      */
+    @Override
     public abstract Document perform(Document doc, EnvVars env, PrintStream logger);
     
     /**
@@ -108,7 +134,7 @@ public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
         
         try
         {
-            return getXmlString(newDoc);
+            return getXmlString(xmlString, newDoc);
         }
         catch (Exception e)
         {
@@ -121,40 +147,50 @@ public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
     /**
      * Retrieve the XML string from XML Document object
      * 
-     * @param doc   the XML Document object.
-     * @return      the XML string
+     * The formatting of the original XML string is preserved,
+     * not to make configurations grow with repeated copies.
+     * 
+     * @param originalXml   the XML string the document was parsed from.
+     * @param doc           the XML Document object.
+     * @return              the XML string
      * @throws TransformerException
+     * @see FormatPreservingXmlSerializer
      */
-    private String getXmlString(Document doc)
+    private String getXmlString(String originalXml, Document doc)
         throws TransformerException
     {
-        TransformerFactory tfactory = TransformerFactory.newInstance(); 
-        Transformer transformer = tfactory.newTransformer(); 
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        
-        StringWriter sw = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(sw)); 
-        
-        return sw.toString();
+        return FormatPreservingXmlSerializer.serialize(originalXml, doc);
     }
     
     /**
      * Construct a XML Document object from a XML string.
      * 
+     * The parser is reused in the thread.
+     * 
      * @param xmlString     a XML string.
      * @param encoding      encoding of xmlString.
+     * @param logger        The output stream to log parse errors.
      * @return              Constructed XML Document object.
      * @throws ParserConfigurationException
      * @throws UnsupportedEncodingException
      * @throws SAXException
      * @throws IOException
      */
-    private Document getXmlDocumentFromString(String xmlString, String encoding, final PrintStream logger)
+    static Document getXmlDocumentFromString(String xmlString, String encoding, final PrintStream logger)
         throws ParserConfigurationException,UnsupportedEncodingException,SAXException,IOException
     {
-        DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-        //domFactory.setNamespaceAware(true);
-        DocumentBuilder builder = domFactory.newDocumentBuilder();
+        DocumentBuilder builder = DOCUMENT_BUILDER.get();
+        if(builder == null)
+        {
+            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+            //domFactory.setNamespaceAware(true);
+            builder = domFactory.newDocumentBuilder();
+            DOCUMENT_BUILDER.set(builder);
+        }
+        else
+        {
+            builder.reset();
+        }
         builder.setErrorHandler(new ErrorHandler(){
             @Override
             public void warning(SAXParseException exception)
@@ -182,7 +218,7 @@ public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
     }
     
     @SuppressFBWarnings("DM_DEFAULT_ENCODING")
-    private InputStream createInputStreamFromString(String str, @CheckForNull String encoding)
+    private static InputStream createInputStreamFromString(String str, @CheckForNull String encoding)
             throws UnsupportedEncodingException
     {
         return new ByteArrayInputStream((encoding != null)?
@@ -231,13 +267,37 @@ public abstract class AbstractXmlJobcopyOperation extends JobcopyOperation
     protected NodeList getNodeList(Document doc, String xpathExpression)
         throws XPathExpressionException
     {
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        XPathExpression expr = xpath.compile(xpathExpression);
+        XPathExpression expr = compileXpath(xpathExpression);
         
         return (NodeList)expr.evaluate(doc, XPathConstants.NODESET);
     }
     
+    /**
+     * Compile a XPath.
+     * 
+     * Compiled XPaths are cached in the thread,
+     * and the same XPath is compiled only once in each thread.
+     * The returned object must not be passed to other threads.
+     * 
+     * @param xpathExpression   a XPath.
+     * @return                  the compiled XPath.
+     * @throws XPathExpressionException problems in {@code xpathExpression}
+     */
+    protected XPathExpression compileXpath(String xpathExpression)
+        throws XPathExpressionException
+    {
+        Map<String, XPathExpression> cache = XPATH_CACHE.get();
+        XPathExpression expr = cache.get(xpathExpression);
+        if(expr == null)
+        {
+            XPathFactory factory = XPathFactory.newInstance();
+            XPath xpath = factory.newXPath();
+            expr = xpath.compile(xpathExpression);
+            cache.put(xpathExpression, expr);
+        }
+        return expr;
+    }
+    
     /**
      * Retrieve a XPath expression of a node.
      * 
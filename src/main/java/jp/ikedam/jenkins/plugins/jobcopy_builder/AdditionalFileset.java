@@ -30,6 +30,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.StringTokenizer;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -53,6 +54,11 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
 {
     private static final long serialVersionUID = 2080182353580260319L;
     
+    /**
+     * Additional files are read and written in this encoding.
+     */
+    private static final String ENCODING = "UTF-8";
+    
     private String includeFile;
     
     /**
@@ -118,6 +124,66 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
         return jobcopyOperationList;
     }
     
+    /**
+     * Patterns of files, split in advance.
+     */
+    private static class FilePatterns
+    {
+        public final String includeFile;
+        public final String excludeFile;
+        public final String[] includes;
+        public final String[] excludes;
+        
+        public FilePatterns(String includeFile, String excludeFile)
+        {
+            this.includeFile = includeFile;
+            this.excludeFile = excludeFile;
+            this.includes = split(includeFile);
+            this.excludes = split(excludeFile);
+        }
+        
+        /**
+         * Splits comma separated patterns in the same way to {@link Util#createFileSet(File, String, String)}.
+         */
+        private static String[] split(String patterns)
+        {
+            List<String> ret = new ArrayList<String>();
+            if(patterns != null)
+            {
+                StringTokenizer tokens = new StringTokenizer(patterns, ",");
+                while(tokens.hasMoreTokens())
+                {
+                    String token = tokens.nextToken().trim();
+                    if(!token.isEmpty())
+                    {
+                        ret.add(token);
+                    }
+                }
+            }
+            return ret.toArray(new String[ret.size()]);
+        }
+    }
+    
+    private transient volatile FilePatterns filePatterns;
+    
+    /**
+     * Returns patterns of files, splitting them only when changed.
+     * 
+     * @return patterns of files.
+     */
+    private FilePatterns compile()
+    {
+        FilePatterns patterns = filePatterns;
+        if(patterns == null
+                || patterns.includeFile != getIncludeFile()
+                || patterns.excludeFile != getExcludeFile())
+        {
+            patterns = new FilePatterns(getIncludeFile(), getExcludeFile());
+            filePatterns = patterns;
+        }
+        return patterns;
+    }
+    
     /**
      * Constructor to instantiate from parameters in the job configuration page.
      * 
@@ -138,6 +204,18 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
         this.excludeFile = StringUtils.trim(excludeFile);
         this.overwrite = overwrite;
         this.jobcopyOperationList = jobcopyOperationList;
+        compile();
+    }
+    
+    /**
+     * Splits patterns when loaded from the saved configuration.
+     * 
+     * @return this object
+     */
+    private Object readResolve()
+    {
+        compile();
+        return this;
     }
     
     /**
@@ -173,6 +251,103 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
         return ret;
     }
     
+    /**
+     * Read the additional files, apply additional operations,
+     * and stage them to be written when the transaction is committed.
+     * 
+     * @param transaction the transaction to stage files to
+     * @param toDir directory of the job to copy to. null if the job is not created yet.
+     * @param fromJob job to copy from
+     * @param env environment variables, computed only when operations refer them
+     * @param logger console
+     * @return whether the work succeeded.
+     * @throws IOException failed to compute variables
+     * @throws InterruptedException interrupted while computing variables
+     */
+    public boolean stage(CopyTransaction transaction, File toDir, TopLevelItem fromJob, LazyEnvironment env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        if(StringUtils.isBlank(getIncludeFile()))
+        {
+            logger.println("includeFile is not configured");
+            return false;
+        }
+        
+        boolean ret = true;
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.FILESET).setDetail(getIncludeFile());
+        long inputBytes = 0;
+        long outputBytes = 0;
+        int files = 0;
+        try
+        {
+            for(String filename: getFilesToCopy(fromJob.getRootDir()))
+            {
+                logger.println(String.format("Copy %s", filename));
+                if(toDir != null && new File(toDir, filename).exists() && !isOverwrite())
+                {
+                    logger.println(String.format("%s is already exists...skip.", new File(toDir, filename).getPath()));
+                    continue;
+                }
+                File srcFile = new File(fromJob.getRootDir(), filename);
+                String fileContents = performToString(srcFile, env, logger);
+                if(fileContents == null)
+                {
+                    ret = false;
+                    continue;
+                }
+                inputBytes += srcFile.length();
+                outputBytes += CopyEvents.utf8Length(fileContents);
+                ++files;
+                transaction.stageFile(filename, fileContents, ENCODING, isOverwrite());
+            }
+        }
+        finally
+        {
+            event.setInputBytes(inputBytes).setOutputBytes(outputBytes).commit(ret);
+            CopyMetrics.get().recordFilesetFiles(files);
+        }
+        
+        return ret;
+    }
+    
+    /**
+     * Returns the fingerprint of inputs of this fileset.
+     * 
+     * Computed from patterns, operations with variables expanded,
+     * and names and contents of files to copy.
+     * Files are read, but not processed.
+     * 
+     * @param fromJob job to copy from
+     * @param env environment variables, computed only when operations refer them
+     * @return hex string of the fingerprint. null if failed to read files.
+     * @throws IOException failed to compute variables
+     * @throws InterruptedException interrupted while computing variables
+     */
+    public String fingerprint(TopLevelItem fromJob, LazyEnvironment env)
+        throws IOException, InterruptedException
+    {
+        StringBuilder inputs = new StringBuilder();
+        inputs.append(getIncludeFile()).append('\n');
+        inputs.append(getExcludeFile()).append('\n');
+        inputs.append(isOverwrite()).append('\n');
+        inputs.append(OperationSet.create(getJobcopyOperationList(), env).getHash()).append('\n');
+        for(String filename: getFilesToCopy(fromJob.getRootDir()))
+        {
+            String fileContents;
+            try
+            {
+                fileContents = FileUtils.readFileToString(new File(fromJob.getRootDir(), filename), ENCODING);
+            }
+            catch(IOException e)
+            {
+                return null;
+            }
+            inputs.append(filename).append('\n');
+            inputs.append(LineageIndex.digest(fileContents)).append('\n');
+        }
+        return LineageIndex.digest(inputs.toString());
+    }
+    
     protected List<String> getFilesToCopy(File dir)
     {
         if(StringUtils.isBlank(getIncludeFile()))
@@ -180,11 +355,14 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
             return new ArrayList<String>(0);
         }
         
-        DirectoryScanner ds = Util.createFileSet(
-                dir,
-                getIncludeFile(),
-                getExcludeFile()
-            ).getDirectoryScanner();
+        // Same to Util.createFileSet(), without splitting patterns each time.
+        FilePatterns patterns = compile();
+        DirectoryScanner ds = new DirectoryScanner();
+        ds.setBasedir(dir);
+        ds.setIncludes(patterns.includes);
+        ds.setExcludes(patterns.excludes);
+        ds.addDefaultExcludes();
+        ds.scan();
         
         return Arrays.asList(ds.getIncludedFiles());
     }
@@ -206,42 +384,32 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
             return true;
         }
         
-        // Read file into string.
         String fileContents;
-        String encoding = "UTF-8";
         try
         {
-            fileContents = FileUtils.readFileToString(srcFile, encoding);
+            fileContents = performToString(srcFile, LazyEnvironment.of(env), logger);
         }
-        catch (IOException e)
+        catch(IOException e)
         {
-            logger.println(String.format("Failed to read from %s", srcFile.getPath()));
+            // operations may fail.
+            logger.println(String.format("Failed to apply operations to %s", srcFile.getPath()));
             e.printStackTrace(logger);
             return false;
         }
-        
-        logger.println("Original contents:");
-        logger.println(fileContents);
-        
-        // Apply additional operations to the retrieved Contents.
-        if(getJobcopyOperationList() != null)
+        catch(InterruptedException e)
         {
-            for(JobcopyOperation operation: getJobcopyOperationList())
-            {
-                fileContents = operation.perform(fileContents, encoding, env, logger);
-                if(fileContents == null)
-                {
-                    return false;
-                }
-            }
+            // never happens as variables are already computed.
+            throw new IllegalStateException(e);
+        }
+        if(fileContents == null)
+        {
+            return false;
         }
-        logger.println("Copied contents:");
-        logger.println(fileContents);
         
         try
         {
             // The directories seem to be automatically created. 
-            FileUtils.writeStringToFile(dstFile, fileContents, encoding);
+            FileUtils.writeStringToFile(dstFile, fileContents, ENCODING);
         }
         catch (IOException e)
         {
@@ -252,6 +420,48 @@ public class AdditionalFileset extends AbstractDescribableImpl<AdditionalFileset
         
         return true;
     }
+    
+    /**
+     * Read one file and apply additional operations.
+     * 
+     * @param srcFile file to copy from
+     * @param env environment variables, computed only when operations refer them
+     * @param logger console
+     * @return the processed contents. null if failed.
+     * @throws IOException failed to compute variables
+     * @throws InterruptedException interrupted while computing variables
+     */
+    protected String performToString(File srcFile, LazyEnvironment env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        // Read file into string.
+        String fileContents;
+        String encoding = ENCODING;
+        try
+        {
+            fileContents = FileUtils.readFileToString(srcFile, encoding);
+        }
+        catch (IOException e)
+        {
+            logger.println(String.format("Failed to read from %s", srcFile.getPath()));
+            e.printStackTrace(logger);
+            return null;
+        }
+        
+        logger.println("Original contents:");
+        logger.println(fileContents);
+        
+        // Apply additional operations to the retrieved Contents.
+        fileContents = JobcopyBuilder.applyOperations(getJobcopyOperationList(), fileContents, encoding, env, logger);
+        if(fileContents == null)
+        {
+            return null;
+        }
+        logger.println("Copied contents:");
+        logger.println(fileContents);
+        
+        return fileContents;
+    }
 
     /**
      * The internal class to work with views.
@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import hudson.EnvVars;
+
+/**
+ * A {@link JobcopyOperation} transforming the encoded bytes of the configuration.
+ *
+ * Consecutive operations implementing this are applied to bytes
+ * without decoding the configuration into a string.
+ * Implementations must still implement {@link JobcopyOperation#perform(String, String, EnvVars, PrintStream)}.
+ *
+ * @see OperationChain
+ */
+public interface ByteStreamJobcopyOperation
+{
+    /**
+     * Writes the modified configuration.
+     *
+     * @param in        the configuration.
+     * @param out       the stream to write the modified configuration.
+     * @param encoding  the encoding of the configuration.
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          false if an error occurs.
+     * @throws IOException failed to read or write.
+     */
+    public boolean perform(InputStream in, OutputStream out, String encoding, EnvVars env, PrintStream logger)
+        throws IOException;
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * The difference between the current configuration of a job and the new one.
+ *
+ * Used to avoid reloading the job when not needed:
+ * <ul>
+ *     <li>Nothing to do if configurations are identical.</li>
+ *     <li>Only to enable or disable the job
+ *         if configurations differ only in &lt;disabled&gt; of the root element
+ *         (e.g. copied with {@link EnableOperation} or {@link DisableOperation}).</li>
+ * </ul>
+ */
+public class ConfigDiff
+{
+    private final boolean identical;
+    private final Boolean disabled;
+
+    private ConfigDiff(boolean identical, Boolean disabled)
+    {
+        this.identical = identical;
+        this.disabled = disabled;
+    }
+
+    /**
+     * Compares configurations.
+     *
+     * @param currentXml    the current configuration.
+     * @param newXml        the new configuration.
+     * @return the difference.
+     */
+    @NonNull
+    public static ConfigDiff compare(@NonNull String currentXml, @NonNull String newXml)
+    {
+        if(currentXml.equals(newXml))
+        {
+            return new ConfigDiff(true, null);
+        }
+        try
+        {
+            Document currentDoc = parse(currentXml);
+            Document newDoc = parse(newXml);
+            Element currentDisabled = getDisabledElement(currentDoc);
+            Element newDisabled = getDisabledElement(newDoc);
+            if(currentDisabled == null || newDisabled == null)
+            {
+                return new ConfigDiff(false, null);
+            }
+            String value = newDisabled.getTextContent().trim();
+            if(!"true".equals(value) && !"false".equals(value))
+            {
+                return new ConfigDiff(false, null);
+            }
+            if(currentDisabled.getTextContent().trim().equals(value))
+            {
+                // differs in other places.
+                return new ConfigDiff(false, null);
+            }
+            currentDisabled.setTextContent(newDisabled.getTextContent());
+            if(!currentDoc.isEqualNode(newDoc))
+            {
+                return new ConfigDiff(false, null);
+            }
+            return new ConfigDiff(false, Boolean.valueOf(value));
+        }
+        catch(ParserConfigurationException e)
+        {
+            return new ConfigDiff(false, null);
+        }
+        catch(SAXException e)
+        {
+            return new ConfigDiff(false, null);
+        }
+        catch(IOException e)
+        {
+            return new ConfigDiff(false, null);
+        }
+    }
+
+    private static Document parse(String xml)
+        throws ParserConfigurationException, SAXException, IOException
+    {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        // not to output errors to stderr: compared as different.
+        builder.setErrorHandler(new DefaultHandler());
+        return builder.parse(new InputSource(new StringReader(xml)));
+    }
+
+    /**
+     * Returns /*&#47;disabled.
+     */
+    private static Element getDisabledElement(Document doc)
+    {
+        Element found = null;
+        for(Node node = doc.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && "disabled".equals(node.getNodeName()))
+            {
+                if(found != null)
+                {
+                    return null;
+                }
+                found = (Element)node;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns whether configurations are identical.
+     *
+     * @return whether configurations are identical.
+     */
+    public boolean isIdentical()
+    {
+        return identical;
+    }
+
+    /**
+     * Returns the new value of &lt;disabled&gt;
+     * if configurations differ only in it.
+     *
+     * @return the new value. null if configurations differ in other places, or they are identical.
+     */
+    @CheckForNull
+    public Boolean getDisabled()
+    {
+        return disabled;
+    }
+}
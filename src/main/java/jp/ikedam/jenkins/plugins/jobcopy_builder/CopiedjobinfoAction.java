@@ -105,6 +105,40 @@ public class CopiedjobinfoAction implements Action, Serializable
         return failed;
     }
     
+    private long slowMillis;
+    
+    /**
+     * Returns how long the copy took if it was slow.
+     * 
+     * @return the time in milliseconds. 0 if the copy was not slow.
+     * @see SlowCopyDetector
+     */
+    public long getSlowMillis()
+    {
+        return slowMillis;
+    }
+    
+    /**
+     * Returns whether the copy was slow.
+     * 
+     * @return whether the copy was slow.
+     * @see SlowCopyDetector
+     */
+    public boolean isSlow()
+    {
+        return slowMillis > 0;
+    }
+    
+    /**
+     * Flags the copy was slow.
+     * 
+     * @param slowMillis the time the copy took in milliseconds.
+     */
+    void setSlowMillis(long slowMillis)
+    {
+        this.slowMillis = slowMillis;
+    }
+    
     /**
      * 
      * constructor.
@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Limits memory used by operations applied in parallel.
+ *
+ * Each copy reserves memory estimated from the size of the configuration
+ * and how operations are applied (see {@link OperationChain#plan(List)}) before applying operations,
+ * and copies not fitting in the budget wait in the order they arrived.
+ * A copy never fitting in the budget is applied without DOMs
+ * if all of its operations support streaming, and rejected otherwise.
+ *
+ * The budget is set with the system property
+ * {@code jp.ikedam.jenkins.plugins.jobcopy_builder.CopyAdmission.budgetMB},
+ * and defaults to a quarter of the max heap.
+ */
+public class CopyAdmission
+{
+    private static final long MB = 1024L * 1024;
+
+    /**
+     * Memory is reserved in KiB, to count it with an int.
+     */
+    private static final long UNIT = 1024L;
+
+    /**
+     * Memory held for a DOM, in the size of the configuration text.
+     */
+    private static final int DOM_FACTOR = 4;
+
+    private static final CopyAdmission INSTANCE = new CopyAdmission(getDefaultBudget());
+
+    private final long budget;
+    private final Semaphore permits;
+
+    private static long getDefaultBudget()
+    {
+        long budgetMB = SystemProperties.getLong(CopyAdmission.class.getName() + ".budgetMB", 0L);
+        return (budgetMB > 0)?(budgetMB * MB):(Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Returns the instance.
+     *
+     * @return the instance.
+     */
+    public static CopyAdmission get()
+    {
+        return INSTANCE;
+    }
+
+    CopyAdmission(long budget)
+    {
+        this.budget = budget;
+        this.permits = new Semaphore(toPermits(budget), true);
+    }
+
+    private static int toPermits(long bytes)
+    {
+        return (int)Math.max(1, Math.min(Integer.MAX_VALUE, (bytes + UNIT - 1) / UNIT));
+    }
+
+    /**
+     * Returns the budget.
+     *
+     * @return the budget in bytes.
+     */
+    public long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Returns memory not reserved now.
+     *
+     * @return available memory in bytes.
+     */
+    public long getAvailable()
+    {
+        return permits.availablePermits() * UNIT;
+    }
+
+    /**
+     * Estimates memory used to apply operations.
+     *
+     * The original and the result configuration,
+     * and a DOM for each run of operations applied with a DOM.
+     * Operations in a run share the DOM.
+     *
+     * @param chars                 the length of the configuration.
+     * @param jobcopyOperationList  operations to apply.
+     * @return the estimated memory in bytes.
+     */
+    static long estimate(int chars, List<JobcopyOperation> jobcopyOperationList)
+    {
+        long doms = 0;
+        OperationChain.Form current = OperationChain.Form.STRING;
+        // planned as applied.
+        for(OperationChain.Form form: OperationChain.plan(OperationChain.optimize(jobcopyOperationList)))
+        {
+            if(form == OperationChain.Form.DOM && current != OperationChain.Form.DOM)
+            {
+                ++doms;
+            }
+            current = form;
+        }
+        return 2L * chars * (2 + DOM_FACTOR * doms);
+    }
+
+    /**
+     * Estimates memory used to apply operations without DOMs:
+     * only the original and the result configuration.
+     *
+     * @param chars the length of the configuration.
+     * @return the estimated memory in bytes.
+     */
+    static long estimateStreaming(int chars)
+    {
+        return 2L * chars * 2;
+    }
+
+    /**
+     * Memory reserved for a copy.
+     */
+    public class Ticket
+    {
+        private final int reserved;
+        private final boolean streaming;
+        private boolean released = false;
+
+        private Ticket(int reserved, boolean streaming)
+        {
+            this.reserved = reserved;
+            this.streaming = streaming;
+        }
+
+        /**
+         * Returns the memory reserved.
+         *
+         * @return the memory in bytes.
+         */
+        public long getReserved()
+        {
+            return reserved * UNIT;
+        }
+
+        /**
+         * Returns whether operations must be applied without DOMs.
+         *
+         * Pass to {@link OperationChain#apply(List, String, String, LazyEnvironment, PrintStream, boolean)}.
+         *
+         * @return whether operations must be applied without DOMs.
+         */
+        public boolean isStreaming()
+        {
+            return streaming;
+        }
+
+        /**
+         * Releases the memory.
+         *
+         * Only the first call releases it.
+         */
+        public void release()
+        {
+            if(released)
+            {
+                return;
+            }
+            released = true;
+            permits.release(reserved);
+        }
+    }
+
+    /**
+     * Reserves memory to apply operations to a configuration, waiting if not available.
+     *
+     * @param jobcopyOperationList  operations to apply.
+     * @param xmlString             the configuration.
+     * @param logger                the output stream to log.
+     * @return the ticket, which must be released. null if the copy cannot be admitted.
+     * @throws InterruptedException interrupted while waiting.
+     */
+    public Ticket admit(List<JobcopyOperation> jobcopyOperationList, String xmlString, PrintStream logger)
+        throws InterruptedException
+    {
+        if(jobcopyOperationList == null || jobcopyOperationList.isEmpty())
+        {
+            return new Ticket(0, false);
+        }
+        long estimated = estimate(xmlString.length(), jobcopyOperationList);
+        boolean streaming = false;
+        if(estimated > budget)
+        {
+            if(OperationChain.isStreamable(jobcopyOperationList))
+            {
+                logger.println(String.format(
+                        "Operations would use %d MB, more than the budget %d MB for copies: applied with streaming.",
+                        toMB(estimated),
+                        toMB(budget)
+                ));
+                estimated = estimateStreaming(xmlString.length());
+                streaming = true;
+            }
+            if(estimated > budget)
+            {
+                logger.println(String.format(
+                        "Error: The configuration (%d characters) with %d operations needs about %d MB,"
+                            + " more than the budget %d MB for copies."
+                            + " Reduce the operations, or increase the budget with the system property %s.budgetMB.",
+                        xmlString.length(),
+                        jobcopyOperationList.size(),
+                        toMB(estimated),
+                        toMB(budget),
+                        CopyAdmission.class.getName()
+                ));
+                return null;
+            }
+        }
+
+        int reserving = toPermits(estimated);
+        // tryAcquire() without timeout ignores the fairness.
+        if(!permits.tryAcquire(reserving, 0, TimeUnit.SECONDS))
+        {
+            logger.println(String.format(
+                    "Waiting for other copies to release memory: %d MB needed, %d MB available.",
+                    toMB(estimated),
+                    toMB(getAvailable())
+            ));
+            permits.acquire(reserving);
+        }
+        return new Ticket(reserving, streaming);
+    }
+
+    private static long toMB(long bytes)
+    {
+        return (bytes + MB - 1) / MB;
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java Flight Recorder events of copies.
+ *
+ * Events are recorded for a copy as a whole, each operation, each additional fileset,
+ * and each creation or update of a job, with job names, sizes and outcomes.
+ * Operations and filesets are recorded with job names of the copy performed in the same thread.
+ * Events are also counted to {@link CopyMetrics}, whether or not they are recorded,
+ * and copies are watched by {@link SlowCopyDetector}.
+ *
+ * Events are defined with {@code jdk.jfr.EventFactory} through reflection,
+ * as this plugin runs also on Java 8 without the JFR API.
+ * Nothing is recorded if the API is not available.
+ */
+public class CopyEvents
+{
+    private static final Logger LOGGER = Logger.getLogger(CopyEvents.class.getName());
+
+    /**
+     * Kinds of events.
+     */
+    public static enum Kind
+    {
+        COPY("Copy", "Job Copy", "A job is copied"),
+        OPERATION("Operation", "Copy Operation", "An operation is applied to a configuration"),
+        FILESET("Fileset", "Copy Fileset", "Additional files are copied"),
+        COMMIT("Commit", "Copy Commit", "A job is created or updated with a copied configuration"),
+        ;
+
+        private final String name;
+        private final String label;
+        private final String description;
+
+        private Kind(String name, String label, String description)
+        {
+            this.name = name;
+            this.label = label;
+            this.description = description;
+        }
+    }
+
+    /**
+     * Handles to JFR API.
+     */
+    private static class Jfr
+    {
+        private final Constructor<?> annotationElement;
+        private final Constructor<?> valueDescriptor;
+        private final Method createFactory;
+        private final Method newEvent;
+        private final Method begin;
+        private final Method end;
+        private final Method isEnabled;
+        private final Method shouldCommit;
+        private final Method commit;
+        private final Method set;
+        private final Object[] factories;
+
+        @SuppressWarnings("unchecked")
+        public Jfr() throws ReflectiveOperationException
+        {
+            annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+            valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+            Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+            createFactory = eventFactory.getMethod("create", List.class, List.class);
+            newEvent = eventFactory.getMethod("newEvent");
+            Class<?> event = Class.forName("jdk.jfr.Event");
+            begin = event.getMethod("begin");
+            end = event.getMethod("end");
+            isEnabled = event.getMethod("isEnabled");
+            shouldCommit = event.getMethod("shouldCommit");
+            commit = event.getMethod("commit");
+            set = event.getMethod("set", int.class, Object.class);
+
+            Class<? extends Annotation> name = (Class<? extends Annotation>)Class.forName("jdk.jfr.Name");
+            Class<? extends Annotation> label = (Class<? extends Annotation>)Class.forName("jdk.jfr.Label");
+            Class<? extends Annotation> description = (Class<? extends Annotation>)Class.forName("jdk.jfr.Description");
+            Class<? extends Annotation> category = (Class<? extends Annotation>)Class.forName("jdk.jfr.Category");
+            Class<? extends Annotation> dataAmount = (Class<? extends Annotation>)Class.forName("jdk.jfr.DataAmount");
+
+            // fields in the order of Event#set.
+            List<Object> fields = Arrays.asList(
+                    field(String.class, "fromJob", label, "From Job", null, null),
+                    field(String.class, "toJob", label, "To Job", null, null),
+                    field(String.class, "detail", label, "Detail", description, "The operation, the fileset, or what is done"),
+                    field(long.class, "inputBytes", label, "Input Size", dataAmount, "BYTES"),
+                    field(long.class, "outputBytes", label, "Output Size", dataAmount, "BYTES"),
+                    field(boolean.class, "succeeded", label, "Succeeded", null, null)
+            );
+            factories = new Object[Kind.values().length];
+            for(Kind kind: Kind.values())
+            {
+                List<Object> annotations = Arrays.asList(
+                        annotationElement.newInstance(name, CopyEvents.class.getPackage().getName() + "." + kind.name),
+                        annotationElement.newInstance(label, kind.label),
+                        annotationElement.newInstance(description, kind.description),
+                        annotationElement.newInstance(category, new String[]{"Jenkins", "Jobcopy Builder"})
+                );
+                factories[kind.ordinal()] = createFactory.invoke(null, annotations, fields);
+            }
+        }
+
+        private Object field(Class<?> type, String fieldName, Class<? extends Annotation> label, String labelValue,
+                Class<? extends Annotation> extra, Object extraValue)
+            throws ReflectiveOperationException
+        {
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotationElement.newInstance(label, labelValue));
+            if(extra != null)
+            {
+                annotations.add(annotationElement.newInstance(extra, extraValue));
+            }
+            return valueDescriptor.newInstance(type, fieldName, annotations);
+        }
+
+        /**
+         * @return null if the event is not enabled in any recordings.
+         */
+        public Object newEvent(Kind kind) throws ReflectiveOperationException
+        {
+            Object event = newEvent.invoke(factories[kind.ordinal()]);
+            if(!(Boolean)isEnabled.invoke(event))
+            {
+                return null;
+            }
+            begin.invoke(event);
+            return event;
+        }
+
+        public void commit(Object event, Object... values) throws ReflectiveOperationException
+        {
+            end.invoke(event);
+            if(!(Boolean)shouldCommit.invoke(event))
+            {
+                return;
+            }
+            for(int i = 0; i < values.length; ++i)
+            {
+                set.invoke(event, i, values[i]);
+            }
+            commit.invoke(event);
+        }
+    }
+
+    private static final Jfr JFR = load();
+
+    private static Jfr load()
+    {
+        try
+        {
+            return new Jfr();
+        }
+        catch(ReflectiveOperationException e)
+        {
+            LOGGER.log(Level.FINE, "JFR events are not available", e);
+        }
+        catch(LinkageError e)
+        {
+            LOGGER.log(Level.FINE, "JFR events are not available", e);
+        }
+        catch(RuntimeException e)
+        {
+            LOGGER.log(Level.FINE, "JFR events are not available", e);
+        }
+        return null;
+    }
+
+    /**
+     * Job names of the copy performed in the thread.
+     */
+    private static final ThreadLocal<List<String>> CURRENT_JOBS = new ThreadLocal<List<String>>();
+
+    private CopyEvents()
+    {
+    }
+
+    /**
+     * Returns whether events are recorded.
+     *
+     * @return whether the JFR API is available.
+     */
+    public static boolean isAvailable()
+    {
+        return JFR != null;
+    }
+
+    /**
+     * Starts an event.
+     *
+     * @param kind the kind of the event.
+     * @return the event. Only counted to {@link CopyMetrics} if events are not available or not recorded.
+     */
+    public static Event begin(Kind kind)
+    {
+        Object jfrEvent = null;
+        if(JFR != null)
+        {
+            try
+            {
+                jfrEvent = JFR.newEvent(kind);
+            }
+            catch(ReflectiveOperationException e)
+            {
+                LOGGER.log(Level.FINE, "Failed to start an event", e);
+            }
+        }
+        return new Event(kind, jfrEvent);
+    }
+
+    /**
+     * Returns the size of a string encoded in UTF-8, without encoding it.
+     *
+     * @param value the string. may be null.
+     * @return the size in bytes. -1 for null.
+     */
+    static long utf8Length(String value)
+    {
+        if(value == null)
+        {
+            return -1;
+        }
+        long length = 0;
+        for(int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if(c < 0x80)
+            {
+                length += 1;
+            }
+            else if(c < 0x800)
+            {
+                length += 2;
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                length += 4;
+                ++i;
+            }
+            else if(Character.isSurrogate(c))
+            {
+                // encoded to '?'
+                length += 1;
+            }
+            else
+            {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * An event in progress.
+     *
+     * Not thread safe: used only in the thread started it.
+     */
+    public static class Event
+    {
+        private final Kind kind;
+        private final Object jfrEvent;
+        private final List<String> outerJobs;
+        private String fromJob;
+        private String toJob;
+        private String detail;
+        private long inputBytes = -1;
+        private long outputBytes = -1;
+        private boolean skipped = false;
+        private boolean committed = false;
+        private final long start = System.nanoTime();
+        private final SlowCopyDetector detector;
+        private int operationCount = -1;
+        private long slowMillis = 0;
+
+        private Event(Kind kind, Object jfrEvent)
+        {
+            this.kind = kind;
+            this.jfrEvent = jfrEvent;
+            this.outerJobs = (jfrEvent != null)?CURRENT_JOBS.get():null;
+            this.detector = (kind == Kind.COPY)?SlowCopyDetector.start():null;
+            if(outerJobs != null)
+            {
+                fromJob = outerJobs.get(0);
+                toJob = outerJobs.get(1);
+            }
+        }
+
+        /**
+         * Returns whether this event is recorded to JFR.
+         *
+         * Use to avoid computing values only recorded to JFR.
+         *
+         * @return whether this event is recorded to JFR.
+         */
+        public boolean isEnabled()
+        {
+            return jfrEvent != null;
+        }
+
+        /**
+         * Sets job names.
+         *
+         * Names set to {@link Kind#COPY} are also set to events
+         * started later in the same thread until it is committed.
+         *
+         * @param fromJob   the job copied from.
+         * @param toJob     the job copied to.
+         * @return this.
+         */
+        public Event setJobs(String fromJob, String toJob)
+        {
+            this.fromJob = fromJob;
+            this.toJob = toJob;
+            if(jfrEvent != null && kind == Kind.COPY)
+            {
+                CURRENT_JOBS.set(Collections.unmodifiableList(Arrays.asList(fromJob, toJob)));
+            }
+            return this;
+        }
+
+        /**
+         * Sets the detail.
+         *
+         * @param detail the operation, the fileset, or what is done.
+         * @return this.
+         */
+        public Event setDetail(String detail)
+        {
+            this.detail = detail;
+            return this;
+        }
+
+        /**
+         * Marks the copy is skipped.
+         *
+         * @param reason why the copy is skipped.
+         * @return this.
+         */
+        public Event setSkipped(String reason)
+        {
+            this.skipped = true;
+            return setDetail(reason);
+        }
+
+        /**
+         * Sets the size of the input.
+         *
+         * @param inputBytes the size in bytes.
+         * @return this.
+         */
+        public Event setInputBytes(long inputBytes)
+        {
+            this.inputBytes = inputBytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the input.
+         *
+         * @param input the input. may be null.
+         * @return this.
+         */
+        public Event setInput(String input)
+        {
+            return setInputBytes(utf8Length(input));
+        }
+
+        /**
+         * Sets the size of the output.
+         *
+         * @param outputBytes the size in bytes.
+         * @return this.
+         */
+        public Event setOutputBytes(long outputBytes)
+        {
+            this.outputBytes = outputBytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the output.
+         *
+         * @param output the output. may be null.
+         * @return this.
+         */
+        public Event setOutput(String output)
+        {
+            return setOutputBytes(utf8Length(output));
+        }
+
+        /**
+         * Sets the number of operations applied in the copy.
+         *
+         * @param operationCount the number of operations.
+         * @return this.
+         */
+        public Event setOperationCount(int operationCount)
+        {
+            this.operationCount = operationCount;
+            return this;
+        }
+
+        /**
+         * Ends a phase of the copy, for {@link SlowCopyDetector}.
+         *
+         * @param name the name of the phase.
+         * @return this.
+         */
+        public Event phase(String name)
+        {
+            if(detector != null)
+            {
+                detector.phase(name);
+            }
+            return this;
+        }
+
+        /**
+         * Returns how long the copy took if it was detected as slow.
+         *
+         * Available after committed.
+         *
+         * @return the time in milliseconds. 0 if not slow.
+         */
+        public long getSlowMillis()
+        {
+            return slowMillis;
+        }
+
+        /**
+         * Ends and records the event.
+         *
+         * Only the first call records the event.
+         *
+         * @param succeeded the outcome.
+         */
+        public void commit(boolean succeeded)
+        {
+            if(committed)
+            {
+                return;
+            }
+            committed = true;
+            CopyMetrics.get().record(kind, System.nanoTime() - start, inputBytes, outputBytes, succeeded, skipped);
+            if(detector != null)
+            {
+                slowMillis = detector.finish(fromJob, toJob, detail, operationCount, inputBytes, outputBytes, succeeded);
+            }
+            if(jfrEvent == null)
+            {
+                return;
+            }
+            if(kind == Kind.COPY)
+            {
+                if(outerJobs != null)
+                {
+                    CURRENT_JOBS.set(outerJobs);
+                }
+                else
+                {
+                    CURRENT_JOBS.remove();
+                }
+            }
+            try
+            {
+                JFR.commit(jfrEvent, fromJob, toJob, detail, inputBytes, outputBytes, succeeded);
+            }
+            catch(ReflectiveOperationException e)
+            {
+                LOGGER.log(Level.FINE, "Failed to record an event", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+
+/**
+ * Utilities to copy items in parallel.
+ */
+public class CopyExecutors
+{
+    /**
+     * The maximum number of items copied at the same time.
+     */
+    private static final int THREADS = SystemProperties.getInteger(
+            CopyExecutors.class.getName() + ".threads",
+            SystemProperties.getInteger(
+                    // for compatibility
+                    SubtreeCopier.class.getName() + ".threads",
+                    Math.min(8, Runtime.getRuntime().availableProcessors())
+            )
+    );
+
+    private CopyExecutors()
+    {
+    }
+
+    /**
+     * Creates a thread pool to copy items.
+     *
+     * The caller is responsible to shut it down.
+     *
+     * @param name the name of threads.
+     * @return the thread pool.
+     */
+    public static ExecutorService newExecutor(String name)
+    {
+        return Executors.newFixedThreadPool(
+                Math.max(1, THREADS),
+                new NamingThreadFactory(new DaemonThreadFactory(), name)
+        );
+    }
+
+    /**
+     * Wraps a task to run as a specified user.
+     *
+     * Tasks run in pools don't inherit the authentication of the thread submitted them.
+     *
+     * @param auth the authentication to run the task as.
+     * @param task the task.
+     * @return the wrapped task.
+     */
+    public static <T> Callable<T> impersonating(final Authentication auth, final Callable<T> task)
+    {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception
+            {
+                SecurityContext orig = ACL.impersonate(auth);
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    SecurityContextHolder.setContext(orig);
+                }
+            }
+        };
+    }
+}
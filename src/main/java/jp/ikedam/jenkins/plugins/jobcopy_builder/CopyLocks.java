@@ -0,0 +1,235 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.util.SystemProperties;
+
+/**
+ * Locks to copy to the same item one by one.
+ *
+ * Builds running concurrently (e.g. configurations of a matrix build, or concurrent builds of a seed job)
+ * may copy to the same item.
+ * Without locks, both of them find the item does not exist and fail to create it,
+ * or both of them reload the item.
+ *
+ * Locks are striped by the full name of the item copied to,
+ * so the number of locks is fixed however many items are copied.
+ * Locks are fair, and copies are performed in the order they started waiting.
+ *
+ * Copies with the same contents to the same item can be coalesced:
+ * when a later copy with the same contents is waiting,
+ * the earlier one passes the lock to it and waits for its result.
+ * The earlier one is skipped only if the later one committed the same contents,
+ * and performed by itself otherwise (e.g. the later one is aborted or fails).
+ */
+public class CopyLocks
+{
+    /**
+     * The number of locks.
+     */
+    private static final int STRIPES = Math.max(1, SystemProperties.getInteger(
+            CopyLocks.class.getName() + ".stripes",
+            64
+    ));
+
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+    static
+    {
+        for(int i = 0; i < STRIPES; ++i)
+        {
+            LOCKS[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * The latest ticket waiting or holding the lock for each item and contents.
+     */
+    private static final Map<String, Ticket> LATEST = new HashMap<String, Ticket>();
+
+    private CopyLocks()
+    {
+    }
+
+    /**
+     * A lock acquired for an item.
+     */
+    public static class Ticket
+    {
+        private final ReentrantLock lock;
+        private final String key;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private boolean held = false;
+        private volatile boolean committed = false;
+
+        private Ticket(ReentrantLock lock, String key)
+        {
+            this.lock = lock;
+            this.key = key;
+        }
+
+        /**
+         * Returns whether a later copy with the same contents is waiting or running.
+         *
+         * The later copy may still be aborted or fail.
+         * Use {@link #awaitSuperseding()} to decide whether to skip this copy.
+         *
+         * @return whether a later copy with the same contents is waiting or running.
+         */
+        public boolean isSuperseded()
+        {
+            return getSuperseding() != null;
+        }
+
+        @CheckForNull
+        private Ticket getSuperseding()
+        {
+            if(key == null)
+            {
+                return null;
+            }
+            synchronized(LATEST)
+            {
+                Ticket latest = LATEST.get(key);
+                return (latest != this)?latest:null;
+            }
+        }
+
+        /**
+         * Passes the lock to a later copy with the same contents, and waits for it.
+         *
+         * If the later copy did not commit, the lock is acquired again
+         * and this copy must be performed.
+         *
+         * @return true if a later copy committed the same contents and this copy can be skipped.
+         *     false if this copy must be performed, holding the lock.
+         * @throws InterruptedException interrupted while waiting. The lock is not held any more.
+         */
+        public boolean awaitSuperseding() throws InterruptedException
+        {
+            Ticket later;
+            while((later = getSuperseding()) != null)
+            {
+                held = false;
+                lock.unlock();
+                later.finished.await();
+                if(later.committed)
+                {
+                    committed = true;
+                    return true;
+                }
+                lock.lockInterruptibly();
+                held = true;
+            }
+            return false;
+        }
+
+        /**
+         * Marks the contents are committed, for earlier copies waiting in {@link #awaitSuperseding()}.
+         */
+        public void commit()
+        {
+            committed = true;
+        }
+
+        /**
+         * Releases the lock.
+         */
+        public void release()
+        {
+            if(key != null)
+            {
+                synchronized(LATEST)
+                {
+                    if(LATEST.get(key) == this)
+                    {
+                        LATEST.remove(key);
+                    }
+                }
+            }
+            if(held)
+            {
+                held = false;
+                lock.unlock();
+            }
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Acquires the lock for an item.
+     *
+     * Copies are interruptible to abort builds waiting for long copies.
+     * An interrupted copy with contents is no longer the latest one,
+     * and earlier copies waiting for it are performed by themselves.
+     *
+     * @param fullName  the full name of the item copied to.
+     * @param contents  the hash of the contents copied. null not to coalesce the copy.
+     * @return the ticket, which must be released.
+     * @throws InterruptedException interrupted while waiting.
+     */
+    @NonNull
+    public static Ticket acquire(@NonNull String fullName, @CheckForNull String contents)
+        throws InterruptedException
+    {
+        ReentrantLock lock = LOCKS[(fullName.hashCode() & Integer.MAX_VALUE) % STRIPES];
+        if(contents == null)
+        {
+            lock.lockInterruptibly();
+            Ticket ticket = new Ticket(lock, null);
+            ticket.held = true;
+            return ticket;
+        }
+        Ticket ticket = new Ticket(lock, fullName + "\n" + contents);
+        synchronized(LATEST)
+        {
+            LATEST.put(ticket.key, ticket);
+        }
+        try
+        {
+            lock.lockInterruptibly();
+        }
+        catch(InterruptedException e)
+        {
+            synchronized(LATEST)
+            {
+                if(LATEST.get(ticket.key) == ticket)
+                {
+                    LATEST.remove(ticket.key);
+                }
+            }
+            ticket.finished.countDown();
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        ticket.held = true;
+        return ticket;
+    }
+}
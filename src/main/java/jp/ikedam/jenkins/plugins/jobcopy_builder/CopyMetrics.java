@@ -0,0 +1,585 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+
+/**
+ * Counters and latencies of copies in this Jenkins.
+ *
+ * Updated when {@link CopyEvents} are committed, whether or not JFR records them.
+ * Counters are {@link LongAdder}s not to make copies in parallel contend,
+ * and latencies are counted into buckets of powers of 2 milliseconds.
+ * Counters are cleared when Jenkins restarts.
+ *
+ * @see CopyMetricsLink
+ * @see CopyMetricsProvider
+ */
+@ExportedBean
+public class CopyMetrics
+{
+    /**
+     * The number of throughput samples kept: an hour.
+     */
+    private static final int MAX_SAMPLES = 60;
+
+    private static final CopyMetrics INSTANCE = new CopyMetrics();
+
+    private final LongAdder copies = new LongAdder();
+    private final LongAdder copyFailures = new LongAdder();
+    private final LongAdder copySkips = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder operationFailures = new LongAdder();
+    private final LongAdder filesetFiles = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitFailures = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LatencyHistogram copyLatency = new LatencyHistogram();
+    private final LatencyHistogram operationLatency = new LatencyHistogram();
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final Deque<Sample> samples = new ArrayDeque<Sample>();
+    private Sample lastSample = null;
+
+    CopyMetrics()
+    {
+    }
+
+    /**
+     * Returns the instance.
+     *
+     * @return the instance.
+     */
+    public static CopyMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Counts an event.
+     *
+     * @param kind          the kind of the event.
+     * @param nanos         the duration in nanoseconds.
+     * @param inputBytes    the size of the input. negative if unknown.
+     * @param outputBytes   the size of the output. negative if unknown.
+     * @param succeeded     the outcome.
+     * @param skipped       whether the copy is skipped.
+     */
+    void record(CopyEvents.Kind kind, long nanos, long inputBytes, long outputBytes, boolean succeeded, boolean skipped)
+    {
+        switch(kind)
+        {
+        case COPY:
+            if(skipped)
+            {
+                copySkips.increment();
+                break;
+            }
+            copies.increment();
+            if(!succeeded)
+            {
+                copyFailures.increment();
+            }
+            if(inputBytes > 0)
+            {
+                bytesRead.add(inputBytes);
+            }
+            copyLatency.record(nanos);
+            break;
+        case OPERATION:
+            operations.increment();
+            if(!succeeded)
+            {
+                operationFailures.increment();
+            }
+            operationLatency.record(nanos);
+            break;
+        case FILESET:
+            if(inputBytes > 0)
+            {
+                bytesRead.add(inputBytes);
+            }
+            if(outputBytes > 0)
+            {
+                bytesWritten.add(outputBytes);
+            }
+            break;
+        case COMMIT:
+            commits.increment();
+            if(!succeeded)
+            {
+                commitFailures.increment();
+            }
+            if(outputBytes > 0)
+            {
+                bytesWritten.add(outputBytes);
+            }
+            commitLatency.record(nanos);
+            break;
+        }
+    }
+
+    /**
+     * Counts a copy skipped without recording an event,
+     * as it reused the result of another copy.
+     */
+    void recordSkip()
+    {
+        copySkips.increment();
+    }
+
+    /**
+     * Counts files copied with additional filesets.
+     *
+     * @param files the number of files.
+     */
+    void recordFilesetFiles(int files)
+    {
+        filesetFiles.add(files);
+    }
+
+    /**
+     * @return the number of copies performed, including failed ones.
+     */
+    @Exported
+    public long getCopies()
+    {
+        return copies.sum();
+    }
+
+    /**
+     * @return the number of failed copies.
+     */
+    @Exported
+    public long getCopyFailures()
+    {
+        return copyFailures.sum();
+    }
+
+    /**
+     * @return the number of copies skipped as up to date, superseded or shared.
+     */
+    @Exported
+    public long getCopySkips()
+    {
+        return copySkips.sum();
+    }
+
+    /**
+     * @return the number of operations applied.
+     */
+    @Exported
+    public long getOperations()
+    {
+        return operations.sum();
+    }
+
+    /**
+     * @return the number of failed operations.
+     */
+    @Exported
+    public long getOperationFailures()
+    {
+        return operationFailures.sum();
+    }
+
+    /**
+     * @return the number of files copied with additional filesets.
+     */
+    @Exported
+    public long getFilesetFiles()
+    {
+        return filesetFiles.sum();
+    }
+
+    /**
+     * @return the number of jobs created or updated.
+     */
+    @Exported
+    public long getCommits()
+    {
+        return commits.sum();
+    }
+
+    /**
+     * @return the number of jobs failed to be created or updated.
+     */
+    @Exported
+    public long getCommitFailures()
+    {
+        return commitFailures.sum();
+    }
+
+    /**
+     * @return bytes of configurations and files read.
+     */
+    @Exported
+    public long getBytesRead()
+    {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return bytes of configurations and files written.
+     */
+    @Exported
+    public long getBytesWritten()
+    {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return latencies of copies.
+     */
+    @Exported
+    public LatencyHistogram getCopyLatency()
+    {
+        return copyLatency;
+    }
+
+    /**
+     * @return latencies of operations.
+     */
+    @Exported
+    public LatencyHistogram getOperationLatency()
+    {
+        return operationLatency;
+    }
+
+    /**
+     * @return latencies of creating and updating jobs.
+     */
+    @Exported
+    public LatencyHistogram getCommitLatency()
+    {
+        return commitLatency;
+    }
+
+    /**
+     * Returns throughputs of each minute, the newest first.
+     *
+     * @return throughputs in the last hour.
+     */
+    @Exported
+    public synchronized List<Sample> getThroughput()
+    {
+        List<Sample> ret = new ArrayList<Sample>(samples);
+        Collections.reverse(ret);
+        return ret;
+    }
+
+    /**
+     * Records the throughput since the last call.
+     *
+     * @param timestamp the current time.
+     */
+    synchronized void sample(long timestamp)
+    {
+        Sample current = new Sample(timestamp, getCopies(), getCopySkips(), getBytesRead(), getBytesWritten());
+        if(lastSample != null)
+        {
+            samples.addLast(current.since(lastSample));
+            while(samples.size() > MAX_SAMPLES)
+            {
+                samples.removeFirst();
+            }
+        }
+        lastSample = current;
+    }
+
+    /**
+     * Copies performed in a period.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Sample
+    {
+        private final long timestamp;
+        private final long copies;
+        private final long skips;
+        private final long bytesRead;
+        private final long bytesWritten;
+
+        Sample(long timestamp, long copies, long skips, long bytesRead, long bytesWritten)
+        {
+            this.timestamp = timestamp;
+            this.copies = copies;
+            this.skips = skips;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+        }
+
+        Sample since(Sample previous)
+        {
+            return new Sample(
+                    timestamp,
+                    copies - previous.copies,
+                    skips - previous.skips,
+                    bytesRead - previous.bytesRead,
+                    bytesWritten - previous.bytesWritten
+            );
+        }
+
+        /**
+         * @return the end of the period.
+         */
+        @Exported
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        /**
+         * @return the end of the period.
+         */
+        public Date getDate()
+        {
+            return new Date(timestamp);
+        }
+
+        /**
+         * @return copies performed in the period.
+         */
+        @Exported
+        public long getCopies()
+        {
+            return copies;
+        }
+
+        /**
+         * @return copies skipped in the period.
+         */
+        @Exported
+        public long getSkips()
+        {
+            return skips;
+        }
+
+        /**
+         * @return bytes read in the period.
+         */
+        @Exported
+        public long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        /**
+         * @return bytes written in the period.
+         */
+        @Exported
+        public long getBytesWritten()
+        {
+            return bytesWritten;
+        }
+    }
+
+    /**
+     * Latencies counted into buckets of powers of 2 milliseconds.
+     *
+     * Percentiles are the upper bounds of buckets: at most twice the actual value.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class LatencyHistogram
+    {
+        /**
+         * Buckets up to 2^20 milliseconds (about 17 minutes) and one for longer ones.
+         */
+        private static final int BUCKETS = 22;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(new LongBinaryOperator() {
+            @Override
+            public long applyAsLong(long left, long right)
+            {
+                return Math.max(left, right);
+            }
+        }, 0);
+
+        LatencyHistogram()
+        {
+            for(int i = 0; i < BUCKETS; ++i)
+            {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Returns the bucket for a latency.
+         *
+         * The bucket 0 is for less than 1 millisecond,
+         * and the bucket i is for less than 2^i milliseconds.
+         *
+         * @param nanos the latency in nanoseconds.
+         * @return the index of the bucket.
+         */
+        static int bucketOf(long nanos)
+        {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = (millis <= 0)?0:(64 - Long.numberOfLeadingZeros(millis));
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        /**
+         * Records a latency.
+         *
+         * @param nanos the latency in nanoseconds.
+         */
+        void record(long nanos)
+        {
+            buckets[bucketOf(nanos)].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * @return the number of recorded latencies.
+         */
+        @Exported
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        /**
+         * @return the average in milliseconds. 0 if nothing recorded.
+         */
+        @Exported
+        public double getMeanMillis()
+        {
+            long n = count.sum();
+            return (n == 0)?0:(totalNanos.sum() / (double)n / TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        /**
+         * @return the maximum in milliseconds.
+         */
+        @Exported
+        public double getMaxMillis()
+        {
+            return maxNanos.get() / (double)TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * Returns the upper bound of a percentile.
+         *
+         * @param percentile the percentile (0 to 100).
+         * @return the upper bound in milliseconds. 0 if nothing recorded.
+         */
+        public long getPercentileMillis(double percentile)
+        {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for(int i = 0; i < BUCKETS; ++i)
+            {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if(total == 0)
+            {
+                return 0;
+            }
+            long rank = (long)Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS - 1; ++i)
+            {
+                seen += counts[i];
+                if(seen >= rank)
+                {
+                    return 1L << i;
+                }
+            }
+            return (long)Math.ceil(getMaxMillis());
+        }
+
+        /**
+         * @return the upper bound of the median in milliseconds.
+         */
+        @Exported
+        public long getP50Millis()
+        {
+            return getPercentileMillis(50);
+        }
+
+        /**
+         * @return the upper bound of the 90th percentile in milliseconds.
+         */
+        @Exported
+        public long getP90Millis()
+        {
+            return getPercentileMillis(90);
+        }
+
+        /**
+         * @return the upper bound of the 99th percentile in milliseconds.
+         */
+        @Exported
+        public long getP99Millis()
+        {
+            return getPercentileMillis(99);
+        }
+    }
+
+    /**
+     * Samples the throughput every minute.
+     */
+    @Extension
+    public static class Sampler extends PeriodicWork
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getRecurrencePeriod()
+        {
+            return MIN;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void doRun()
+        {
+            CopyMetrics.get().sample(System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+
+/**
+ * Shows {@link CopyMetrics} in "Manage Jenkins".
+ *
+ * Available also via REST API (JENKINS_URL/manage/jobcopyMetrics/api/json).
+ */
+@Extension
+@ExportedBean
+public class CopyMetricsLink extends ManagementLink
+{
+    /**
+     * Returns metrics.
+     *
+     * @return metrics.
+     */
+    @Exported(inline = true)
+    public CopyMetrics getMetrics()
+    {
+        return CopyMetrics.get();
+    }
+
+    /**
+     * Exposes metrics to REST API.
+     *
+     * @return the API object.
+     */
+    public Api getApi()
+    {
+        Jenkins.get().checkPermission(getRequiredPermission());
+        return new Api(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName()
+    {
+        return "monitor.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName()
+    {
+        return Messages.CopyMetricsLink_DisplayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription()
+    {
+        return Messages.CopyMetricsLink_Description();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName()
+    {
+        return "jobcopyMetrics";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Category getCategory()
+    {
+        return Category.STATUS;
+    }
+}
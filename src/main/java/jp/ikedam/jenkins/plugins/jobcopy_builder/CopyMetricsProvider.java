@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import jenkins.metrics.api.MetricProvider;
+
+/**
+ * Exposes {@link CopyMetrics} to the metrics plugin.
+ *
+ * Enabled only when the metrics plugin is installed.
+ * Counters are exposed as gauges as they are cleared only when Jenkins restarts,
+ * and each latency histogram as gauges of its count, mean, maximum and percentiles in milliseconds.
+ */
+@Extension(optional = true)
+public class CopyMetricsProvider extends MetricProvider
+{
+    private static final String PREFIX = "jobcopy";
+
+    private final MetricSet metricSet;
+
+    /**
+     * constructor.
+     */
+    public CopyMetricsProvider()
+    {
+        this(CopyMetrics.get());
+    }
+
+    /**
+     * constructor.
+     *
+     * @param metrics metrics to expose.
+     */
+    CopyMetricsProvider(final CopyMetrics metrics)
+    {
+        final Map<String, Metric> metricMap = new LinkedHashMap<String, Metric>();
+        metricMap.put(MetricRegistry.name(PREFIX, "copy", "count"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getCopies();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "copy", "failures"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getCopyFailures();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "copy", "skipped"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getCopySkips();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "operation", "count"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getOperations();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "operation", "failures"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getOperationFailures();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "fileset", "files"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getFilesetFiles();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "commit", "count"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getCommits();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "commit", "failures"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getCommitFailures();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "bytes", "read"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getBytesRead();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, "bytes", "written"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return metrics.getBytesWritten();
+            }
+        });
+        putLatency(metricMap, "copy", metrics.getCopyLatency());
+        putLatency(metricMap, "operation", metrics.getOperationLatency());
+        putLatency(metricMap, "commit", metrics.getCommitLatency());
+
+        metricSet = new MetricSet() {
+            private final Map<String, Metric> unmodifiable = Collections.unmodifiableMap(metricMap);
+
+            @Override
+            public Map<String, Metric> getMetrics()
+            {
+                return unmodifiable;
+            }
+        };
+    }
+
+    /**
+     * Adds gauges for a latency histogram.
+     *
+     * @param metricMap the map to add to.
+     * @param name      the name of the histogram.
+     * @param histogram the histogram.
+     */
+    private static void putLatency(Map<String, Metric> metricMap, String name, final CopyMetrics.LatencyHistogram histogram)
+    {
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "count"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return histogram.getCount();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "mean"), new Gauge<Double>() {
+            @Override
+            public Double getValue()
+            {
+                return histogram.getMeanMillis();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "max"), new Gauge<Double>() {
+            @Override
+            public Double getValue()
+            {
+                return histogram.getMaxMillis();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "p50"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return histogram.getP50Millis();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "p90"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return histogram.getP90Millis();
+            }
+        });
+        metricMap.put(MetricRegistry.name(PREFIX, name, "latency", "p99"), new Gauge<Long>() {
+            @Override
+            public Long getValue()
+            {
+                return histogram.getP99Millis();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public MetricSet getMetricSet()
+    {
+        return metricSet;
+    }
+}
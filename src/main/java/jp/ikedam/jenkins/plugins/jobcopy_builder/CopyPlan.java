@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Settings of a copy step, validated and prepared in advance.
+ *
+ * Built when the copy step is configured or loaded from the disk,
+ * and built again only when the settings are changed.
+ * Each build only expands variables and performs the copy with it:
+ * <ul>
+ *     <li>Job names are validated.</li>
+ *     <li>Lists of operations and file sets are fixed.</li>
+ *     <li>Operations are serialized for {@link OperationSet} only once, when first needed.</li>
+ * </ul>
+ * Patterns of file sets and XPaths of operations are compiled by themselves,
+ * and reused in the same way.
+ *
+ * Immutable except the memoized serialization, and shared by builds running concurrently.
+ */
+public class CopyPlan
+{
+    private final String fromJobName;
+    private final String toJobName;
+    private final List<JobcopyOperation> jobcopyOperationList;
+    private final List<AdditionalFileset> additionalFilesetList;
+    private volatile List<String> operationXmlList;
+    private final String error;
+
+    private CopyPlan(JobcopyBuilder builder)
+    {
+        this.fromJobName = builder.getFromJobName();
+        this.toJobName = builder.getToJobName();
+        this.jobcopyOperationList = copyOf(builder.getJobcopyOperationList());
+        this.additionalFilesetList = copyOf(builder.getAdditionalFilesetList());
+        if(StringUtils.isBlank(fromJobName))
+        {
+            this.error = "From Job Name is not specified";
+        }
+        else if(StringUtils.isBlank(toJobName))
+        {
+            this.error = "To Job Name is not specified";
+        }
+        else
+        {
+            this.error = null;
+        }
+    }
+
+    private static <T> List<T> copyOf(@CheckForNull List<T> list)
+    {
+        return (list != null)
+                ?Collections.unmodifiableList(new ArrayList<T>(list))
+                :Collections.<T>emptyList();
+    }
+
+    /**
+     * Builds a plan for a copy step.
+     *
+     * @param builder the copy step.
+     * @return the plan.
+     */
+    @NonNull
+    public static CopyPlan compile(@NonNull JobcopyBuilder builder)
+    {
+        return new CopyPlan(builder);
+    }
+
+    /**
+     * Returns whether this plan is built from the current settings of a copy step.
+     *
+     * @param builder the copy step.
+     * @return false if settings are changed after this plan is built.
+     */
+    public boolean isFor(@NonNull JobcopyBuilder builder)
+    {
+        return fromJobName == builder.getFromJobName()
+                && toJobName == builder.getToJobName()
+                && isSame(jobcopyOperationList, builder.getJobcopyOperationList())
+                && isSame(additionalFilesetList, builder.getAdditionalFilesetList());
+    }
+
+    /**
+     * Compares contents by identity, as lists can be modified after the plan is built.
+     */
+    private static <T> boolean isSame(List<T> planned, @CheckForNull List<T> current)
+    {
+        if(current == null)
+        {
+            return planned.isEmpty();
+        }
+        if(planned.size() != current.size())
+        {
+            return false;
+        }
+        for(int i = 0; i < planned.size(); ++i)
+        {
+            if(planned.get(i) != current.get(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the error in the settings.
+     *
+     * @return the message of the error. null if no errors.
+     */
+    @CheckForNull
+    public String getError()
+    {
+        return error;
+    }
+
+    /**
+     * Returns the name of the job copied from, not expanded.
+     *
+     * @return the name of the job copied from.
+     */
+    public String getFromJobName()
+    {
+        return fromJobName;
+    }
+
+    /**
+     * Returns the name of the job copied to, not expanded.
+     *
+     * @return the name of the job copied to.
+     */
+    public String getToJobName()
+    {
+        return toJobName;
+    }
+
+    /**
+     * Returns operations.
+     *
+     * @return operations. never null.
+     */
+    @NonNull
+    public List<JobcopyOperation> getJobcopyOperationList()
+    {
+        return jobcopyOperationList;
+    }
+
+    /**
+     * Returns file sets.
+     *
+     * @return file sets. never null.
+     */
+    @NonNull
+    public List<AdditionalFileset> getAdditionalFilesetList()
+    {
+        return additionalFilesetList;
+    }
+
+    /**
+     * Creates an operation set, without serializing operations again.
+     *
+     * @param env variables defined in the build.
+     * @return the operation set.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    @NonNull
+    public OperationSet createOperationSet(@NonNull LazyEnvironment env)
+        throws IOException, InterruptedException
+    {
+        List<String> xmlList = operationXmlList;
+        if(xmlList == null)
+        {
+            // serializing twice in concurrent builds does no harm.
+            xmlList = Collections.unmodifiableList(OperationSet.serialize(jobcopyOperationList));
+            operationXmlList = xmlList;
+        }
+        return OperationSet.create(jobcopyOperationList, xmlList, env);
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractItem;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.TopLevelItem;
+import hudson.model.listeners.RunListener;
+import jenkins.model.ModifiableTopLevelItemGroup;
+
+/**
+ * Work shared by all the copy steps in a build.
+ *
+ * Seed jobs often have many copy steps.
+ * Each of them would look up the same context, compute the same variables,
+ * resolve the same folders, and read the same templates.
+ * A session caches them for the build, and is discarded when the build finishes.
+ *
+ * Cached values are validated when used:
+ * <ul>
+ *     <li>Variables are computed again when actions contributing variables are added by previous steps.</li>
+ *     <li>Items are resolved again when they are renamed, moved or deleted.</li>
+ *     <li>Configurations are read again when the files are modified (e.g. copied to by previous steps).</li>
+ * </ul>
+ *
+ * Also holds changes deferred by copy steps with {@link JobcopyBuilder#isDeferCommit()},
+ * written at once by the last of them.
+ *
+ * Sessions are kept in memory, not in the build, not to be saved in build.xml.
+ */
+public class CopySession
+{
+    private static final Map<Run<?, ?>, CopySession> SESSIONS
+            = Collections.synchronizedMap(new WeakHashMap<Run<?, ?>, CopySession>());
+
+    /**
+     * A configuration file read.
+     */
+    public static class ConfigSnapshot
+    {
+        private final String xmlString;
+        private final String encoding;
+        private final long lastModified;
+        private final long length;
+
+        private ConfigSnapshot(String xmlString, String encoding, long lastModified, long length)
+        {
+            this.xmlString = xmlString;
+            this.encoding = encoding;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /**
+         * @return the contents of the configuration.
+         */
+        public String getXmlString()
+        {
+            return xmlString;
+        }
+
+        /**
+         * @return the encoding of the configuration.
+         */
+        public String getEncoding()
+        {
+            return encoding;
+        }
+
+        private boolean isUpToDate(File file)
+        {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+    private final AbstractBuild<?, ?> build;
+    private final ItemGroup<?> context;
+    private LazyEnvironment env;
+    private int envActions = -1;
+    private final Map<String, Item> items = new HashMap<String, Item>();
+    private final Map<String, ConfigSnapshot> configs = new HashMap<String, ConfigSnapshot>();
+    private final Map<String, DeferredCommit> deferred = new LinkedHashMap<String, DeferredCommit>();
+    private final Map<Object, SharedCopy> sharedCopies = new HashMap<Object, SharedCopy>();
+
+    /**
+     * A copy performed once and shared by builds under this build,
+     * e.g. configurations of a matrix build.
+     */
+    public static class SharedCopy
+    {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean completed = false;
+        private boolean succeeded;
+        private List<CopiedjobinfoAction> actions;
+
+        /**
+         * Waits for the copy to finish.
+         *
+         * @return false if the copy did not finish normally, and it should be performed again.
+         * @throws InterruptedException interrupted while waiting.
+         */
+        public boolean await() throws InterruptedException
+        {
+            done.await();
+            return completed;
+        }
+
+        /**
+         * Returns whether the copy succeeded.
+         *
+         * @return whether the copy succeeded.
+         */
+        public boolean isSucceeded()
+        {
+            return succeeded;
+        }
+
+        /**
+         * Returns actions the copy added to the build.
+         *
+         * @return actions the copy added.
+         */
+        @NonNull
+        public List<CopiedjobinfoAction> getActions()
+        {
+            return actions;
+        }
+    }
+
+    /**
+     * A copy to an item whose changes are deferred.
+     */
+    private static class DeferredCopy
+    {
+        public final TopLevelItem from;
+        public final OperationSet operationSet;
+        public final String xmlString;
+        public final String seedJob;
+        public final boolean failed;
+
+        public DeferredCopy(TopLevelItem from, OperationSet operationSet, String xmlString, String seedJob, boolean failed)
+        {
+            this.from = from;
+            this.operationSet = operationSet;
+            this.xmlString = xmlString;
+            this.seedJob = seedJob;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Deferred changes to an item.
+     */
+    private static class DeferredCommit
+    {
+        public final AbstractItem target;
+        public final ModifiableTopLevelItemGroup parent;
+        public final String name;
+        public final String fullName;
+        public CopyTransaction transaction;
+        public final List<DeferredCopy> copies = new ArrayList<DeferredCopy>();
+
+        public DeferredCommit(AbstractItem target, ModifiableTopLevelItemGroup parent, String name, String fullName)
+        {
+            this.target = target;
+            this.parent = parent;
+            this.name = name;
+            this.fullName = fullName;
+        }
+    }
+
+    private CopySession(AbstractBuild<?, ?> build)
+    {
+        this.build = build;
+        this.context = build.getProject().getRootProject().getParent();
+    }
+
+    /**
+     * Returns the session for a build, creating it if not exists.
+     *
+     * @param build the build.
+     * @return the session.
+     */
+    @NonNull
+    public static CopySession get(@NonNull AbstractBuild<?, ?> build)
+    {
+        synchronized(SESSIONS)
+        {
+            CopySession session = SESSIONS.get(build);
+            if(session == null)
+            {
+                session = new CopySession(build);
+                SESSIONS.put(build, session);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Returns the item group to resolve job names from.
+     *
+     * @return the item group containing the root project of the build.
+     */
+    @NonNull
+    public ItemGroup<?> getContext()
+    {
+        return context;
+    }
+
+    /**
+     * Returns variables of the build.
+     *
+     * @param listener the listener to compute variables with.
+     * @return variables, computed only when needed.
+     */
+    @NonNull
+    public synchronized LazyEnvironment getEnvironment(@NonNull TaskListener listener)
+    {
+        int actions = build.getActions(EnvironmentContributingAction.class).size();
+        if(env == null || actions != envActions)
+        {
+            env = LazyEnvironment.of(build, listener);
+            envActions = actions;
+        }
+        return env;
+    }
+
+    /**
+     * Resolves an item, caching found ones.
+     *
+     * @param pathName  the name of the item relative to the context.
+     * @param klass     the type of the item.
+     * @return the item. null if not found.
+     * @see JobcopyBuilder#getRelative(String, ItemGroup, Class)
+     */
+    @CheckForNull
+    public synchronized <T> T getRelative(@NonNull String pathName, @NonNull Class<T> klass)
+    {
+        Item item = items.get(pathName);
+        if(item != null && isValid(item) && klass.isInstance(item))
+        {
+            return klass.cast(item);
+        }
+        T found = JobcopyBuilder.getRelative(pathName, context, klass);
+        if(found instanceof Item)
+        {
+            items.put(pathName, (Item)found);
+        }
+        else
+        {
+            items.remove(pathName);
+        }
+        return found;
+    }
+
+    private static boolean isValid(Item item)
+    {
+        ItemGroup<? extends Item> parent = item.getParent();
+        return parent != null && parent.getItem(item.getName()) == item;
+    }
+
+    /**
+     * Reads the configuration of an item, caching it while the file is not modified.
+     *
+     * @param item the item.
+     * @return the configuration.
+     * @throws IOException failed to read the configuration.
+     */
+    @NonNull
+    public synchronized ConfigSnapshot readConfig(@NonNull AbstractItem item) throws IOException
+    {
+        DeferredCommit pending = deferred.get(item.getFullName());
+        if(pending != null)
+        {
+            // changes not written yet.
+            return new ConfigSnapshot(pending.transaction.getXmlString(), pending.transaction.getEncoding(), -1, -1);
+        }
+        XmlFile file = item.getConfigFile();
+        String key = file.getFile().getAbsolutePath();
+        ConfigSnapshot config = configs.get(key);
+        if(config != null && config.isUpToDate(file.getFile()))
+        {
+            return config;
+        }
+        long lastModified = file.getFile().lastModified();
+        long length = file.getFile().length();
+        config = new ConfigSnapshot(file.asString(), file.sniffEncoding(), lastModified, length);
+        configs.put(key, config);
+        return config;
+    }
+
+    /**
+     * Discards the cached configuration of an item.
+     *
+     * Called when the item is modified in the build.
+     *
+     * @param item the item.
+     */
+    public synchronized void forgetConfig(@NonNull AbstractItem item)
+    {
+        configs.remove(item.getConfigFile().getFile().getAbsolutePath());
+    }
+
+    /**
+     * Claims a copy shared by builds under this build.
+     *
+     * @param key identifies the copy.
+     * @return null if the caller should perform the copy and call {@link #completeSharedCopy(Object, boolean, List)}.
+     *      Otherwise, the copy performed by another build.
+     */
+    @CheckForNull
+    public synchronized SharedCopy claimSharedCopy(@NonNull Object key)
+    {
+        SharedCopy copy = sharedCopies.get(key);
+        if(copy == null)
+        {
+            sharedCopies.put(key, new SharedCopy());
+        }
+        return copy;
+    }
+
+    /**
+     * Notifies the result of a shared copy to builds waiting for it.
+     *
+     * @param key       identifies the copy.
+     * @param succeeded whether the copy succeeded. null if the copy did not finish normally.
+     * @param actions   actions the copy added to the build.
+     */
+    public synchronized void completeSharedCopy(@NonNull Object key, @CheckForNull Boolean succeeded,
+            @NonNull List<CopiedjobinfoAction> actions)
+    {
+        SharedCopy copy = sharedCopies.get(key);
+        if(copy == null)
+        {
+            return;
+        }
+        if(succeeded != null)
+        {
+            copy.completed = true;
+            copy.succeeded = succeeded;
+            copy.actions = Collections.unmodifiableList(new ArrayList<CopiedjobinfoAction>(actions));
+        }
+        else
+        {
+            // let the next one perform the copy.
+            sharedCopies.remove(key);
+        }
+        copy.done.countDown();
+    }
+
+    /**
+     * Returns whether changes to an item are deferred.
+     *
+     * @param fullName the full name of the item.
+     * @return whether changes to the item are deferred.
+     */
+    public synchronized boolean isDeferred(@NonNull String fullName)
+    {
+        return deferred.containsKey(fullName);
+    }
+
+    /**
+     * Defers creating an item.
+     *
+     * Merged if changes to the same item are already deferred.
+     *
+     * @param parent        the folder to create the item in.
+     * @param name          the name of the item.
+     * @param transaction   changes to the item.
+     * @param failed        whether an error occurred when staging changes.
+     * @param from          the item copied from.
+     * @param operationSet  operations applied.
+     * @param seedJob       the full name of the job performing the copy.
+     */
+    public synchronized void deferCreate(@NonNull ModifiableTopLevelItemGroup parent, @NonNull String name,
+            @NonNull CopyTransaction transaction, boolean failed,
+            @NonNull TopLevelItem from, @NonNull OperationSet operationSet, @CheckForNull String seedJob)
+    {
+        String fullName = ("".equals(parent.getFullName()))?name:String.format("%s/%s", parent.getFullName(), name);
+        defer(new DeferredCommit(null, parent, name, fullName), transaction, failed, from, operationSet, seedJob);
+    }
+
+    /**
+     * Defers updating an item.
+     *
+     * Merged if changes to the same item are already deferred.
+     *
+     * @param target        the item to update.
+     * @param transaction   changes to the item.
+     * @param failed        whether an error occurred when staging changes.
+     * @param from          the item copied from.
+     * @param operationSet  operations applied.
+     * @param seedJob       the full name of the job performing the copy.
+     */
+    public synchronized void deferUpdate(@NonNull AbstractItem target,
+            @NonNull CopyTransaction transaction, boolean failed,
+            @NonNull TopLevelItem from, @NonNull OperationSet operationSet, @CheckForNull String seedJob)
+    {
+        defer(new DeferredCommit(target, null, null, target.getFullName()), transaction, failed, from, operationSet, seedJob);
+    }
+
+    private void defer(DeferredCommit commit, CopyTransaction transaction, boolean failed,
+            TopLevelItem from, OperationSet operationSet, String seedJob)
+    {
+        DeferredCommit pending = deferred.get(commit.fullName);
+        if(pending == null)
+        {
+            pending = commit;
+            pending.transaction = transaction;
+            deferred.put(pending.fullName, pending);
+        }
+        else
+        {
+            pending.transaction = pending.transaction.merge(transaction);
+        }
+        pending.copies.add(new DeferredCopy(from, operationSet, transaction.getXmlString(), seedJob, failed));
+    }
+
+    /**
+     * Writes all deferred changes.
+     *
+     * Each item is loaded only once.
+     * Items are locked one by one with {@link CopyLocks} when written.
+     *
+     * @param logger the output stream to log.
+     * @return whether all items are written.
+     * @throws IOException failed to write an item.
+     * @throws InterruptedException interrupted while waiting for other copies to the same item.
+     */
+    public synchronized boolean commitDeferred(@NonNull PrintStream logger) throws IOException, InterruptedException
+    {
+        boolean succeeded = true;
+        List<DeferredCommit> commits = new ArrayList<DeferredCommit>(deferred.values());
+        deferred.clear();
+        for(DeferredCommit commit: commits)
+        {
+            AbstractItem item;
+            CopyLocks.Ticket ticket = CopyLocks.acquire(commit.fullName, null);
+            try
+            {
+                if(commit.target != null)
+                {
+                    logger.println(String.format("Updating %s", commit.fullName));
+                    commit.transaction.commitUpdate(commit.target, logger);
+                    item = commit.target;
+                }
+                else if(commit.parent.getItem(commit.name) != null)
+                {
+                    // created by another build while deferred.
+                    logger.println(String.format("Already exists: %s", commit.fullName));
+                    succeeded = false;
+                    continue;
+                }
+                else
+                {
+                    logger.println(String.format("Creating %s", commit.fullName));
+                    TopLevelItem created = commit.transaction.commitCreate(commit.parent, commit.name, logger);
+                    if(!(created instanceof AbstractItem))
+                    {
+                        logger.println(String.format("Failed to create %s", commit.fullName));
+                        succeeded = false;
+                        continue;
+                    }
+                    item = (AbstractItem)created;
+                }
+            }
+            finally
+            {
+                ticket.release();
+            }
+            forgetConfig(item);
+            for(DeferredCopy copy: commit.copies)
+            {
+                if(LineageIndex.get().record(copy.from, item, copy.operationSet, copy.xmlString, copy.seedJob) == null)
+                {
+                    logger.println(String.format(
+                            "%s is not recorded for propagation: operations refer a sensitive variable %s",
+                            commit.fullName,
+                            copy.operationSet.getSensitiveVariable()
+                    ));
+                }
+                build.addAction(new CopiedjobinfoAction(
+                        copy.from,
+                        (TopLevelItem)item,
+                        copy.failed || commit.transaction.isFailed()
+                ));
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Discards sessions of finished builds.
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run<?, ?>>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted(Run<?, ?> run, @NonNull TaskListener listener)
+        {
+            CopySession session = SESSIONS.remove(run);
+            if(session != null)
+            {
+                synchronized(session)
+                {
+                    for(String fullName: session.deferred.keySet())
+                    {
+                        listener.getLogger().println(String.format("Discarded deferred changes to %s", fullName));
+                    }
+                    session.deferred.clear();
+                }
+            }
+        }
+    }
+}
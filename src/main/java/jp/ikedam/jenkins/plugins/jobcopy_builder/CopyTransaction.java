@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.XmlFile;
+import hudson.model.AbstractItem;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.TopLevelItem;
+import jenkins.model.ModifiableTopLevelItemGroup;
+
+/**
+ * Changes to an item copied to, applied at once.
+ *
+ * The configuration and additional files are staged first,
+ * and written when committed.
+ * Committing loads the item only once:
+ * <ul>
+ *     <li>When updating an existing item, files are written before the configuration,
+ *         and {@link AbstractItem#updateByXml(Source)} loads both of them.</li>
+ *     <li>When creating a new item, the item is reloaded only when files are actually written.</li>
+ * </ul>
+ * So the item is written, loaded and notified to
+ * {@link hudson.model.listeners.SaveableListener}s once for each copy,
+ * instead of once for each step of the copy.
+ */
+public class CopyTransaction
+{
+    /**
+     * A file to write.
+     */
+    private static class StagedFile
+    {
+        public final String path;
+        public final String contents;
+        public final String encoding;
+        public final boolean overwrite;
+
+        public StagedFile(String path, String contents, String encoding, boolean overwrite)
+        {
+            this.path = path;
+            this.contents = contents;
+            this.encoding = encoding;
+            this.overwrite = overwrite;
+        }
+    }
+
+    private final String xmlString;
+    private final String encoding;
+    private final List<StagedFile> stagedFileList = new ArrayList<StagedFile>();
+    private boolean failed = false;
+
+    /**
+     * constructor.
+     *
+     * @param xmlString the configuration of the item copied to.
+     * @param encoding  the encoding of the configuration.
+     */
+    public CopyTransaction(String xmlString, String encoding)
+    {
+        this.xmlString = xmlString;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Returns the configuration of the item copied to.
+     *
+     * @return the configuration XML string.
+     */
+    public String getXmlString()
+    {
+        return xmlString;
+    }
+
+    /**
+     * Returns the encoding of the configuration.
+     *
+     * @return the encoding of the configuration.
+     */
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * Stages a file to write into the directory of the item copied to.
+     *
+     * @param path      the path relative to the directory of the item.
+     * @param contents  the contents of the file.
+     * @param encoding  the encoding to write the file.
+     * @param overwrite whether to overwrite the file if it already exists.
+     */
+    public void stageFile(String path, String contents, String encoding, boolean overwrite)
+    {
+        stagedFileList.add(new StagedFile(path, contents, encoding, overwrite));
+    }
+
+    /**
+     * Merges changes staged later to the same item.
+     *
+     * The configuration is replaced with the later one,
+     * and files are written in the order staged.
+     *
+     * @param later changes staged later.
+     * @return the merged changes.
+     */
+    public CopyTransaction merge(CopyTransaction later)
+    {
+        CopyTransaction merged = new CopyTransaction(later.xmlString, later.encoding);
+        merged.stagedFileList.addAll(stagedFileList);
+        merged.stagedFileList.addAll(later.stagedFileList);
+        return merged;
+    }
+
+    /**
+     * Returns whether some of staged files failed to be written.
+     *
+     * @return whether some of staged files failed to be written.
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * Creates a new item.
+     *
+     * @param parent    the folder to create the item in.
+     * @param name      the name of the new item.
+     * @param logger    The output stream to log.
+     * @return the created item. null if failed.
+     * @throws IOException failed to create the item.
+     */
+    public TopLevelItem commitCreate(ModifiableTopLevelItemGroup parent, String name, PrintStream logger)
+        throws IOException
+    {
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.COMMIT).setDetail("create").setOutput(xmlString);
+        TopLevelItem item = null;
+        try
+        {
+            item = parent.createProjectFromXML(name, JobcopyBuilder.toInputStream(xmlString, encoding));
+            if(item == null)
+            {
+                return null;
+            }
+            if(writeFiles(item.getRootDir(), logger) > 0)
+            {
+                // Do null update to reload the configuration with files.
+                AbstractItem target = (AbstractItem)item;
+                target.updateByXml((Source)new StreamSource(target.getConfigFile().readRaw()));
+            }
+            return item;
+        }
+        finally
+        {
+            event.commit(item != null && !failed);
+        }
+    }
+
+    /**
+     * Updates an existing item.
+     *
+     * When no files are staged, the item is not reloaded if not needed:
+     * <ul>
+     *     <li>Nothing is done if the configuration is not changed.</li>
+     *     <li>The job is only enabled or disabled
+     *         if only &lt;disabled&gt; is changed (see {@link ConfigDiff}).</li>
+     * </ul>
+     *
+     * @param target    the item to update.
+     * @param logger    The output stream to log.
+     * @throws IOException failed to update the item.
+     */
+    public void commitUpdate(AbstractItem target, PrintStream logger)
+        throws IOException
+    {
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.COMMIT).setDetail("update").setOutput(xmlString);
+        boolean succeeded = false;
+        try
+        {
+            if(stagedFileList.isEmpty() && updateLive(target, logger))
+            {
+                event.setDetail("update without reload");
+                succeeded = true;
+                return;
+            }
+            writeFiles(target.getRootDir(), logger);
+            JobcopyBuilder.updateByXml(target, xmlString, encoding);
+            succeeded = !failed;
+        }
+        finally
+        {
+            event.commit(succeeded);
+        }
+    }
+
+    /**
+     * Applies the configuration without reloading the item.
+     *
+     * @param target    the item to update.
+     * @param logger    The output stream to log.
+     * @return whether applied. false if the item should be reloaded.
+     * @throws IOException failed to update the item.
+     */
+    private boolean updateLive(AbstractItem target, PrintStream logger)
+        throws IOException
+    {
+        XmlFile file = target.getConfigFile();
+        if(!file.exists())
+        {
+            return false;
+        }
+        ConfigDiff diff = ConfigDiff.compare(file.asString(), xmlString);
+        if(diff.isIdentical())
+        {
+            // same to updateByXml.
+            target.checkPermission(Item.CONFIGURE);
+            logger.println(String.format("%s is not changed: not reloaded.", target.getFullName()));
+            return true;
+        }
+        if(diff.getDisabled() != null && target instanceof AbstractProject)
+        {
+            target.checkPermission(Item.CONFIGURE);
+            logger.println(String.format("Only disabled is changed to %s: not reloaded.", diff.getDisabled()));
+            ((AbstractProject<?, ?>)target).makeDisabled(diff.getDisabled());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes staged files.
+     *
+     * @param dir       the directory of the item.
+     * @param logger    The output stream to log.
+     * @return the number of written files.
+     */
+    private int writeFiles(File dir, PrintStream logger)
+    {
+        int written = 0;
+        for(StagedFile staged: stagedFileList)
+        {
+            File dstFile = new File(dir, staged.path);
+            if(dstFile.exists() && !staged.overwrite)
+            {
+                logger.println(String.format("%s is already exists...skip.", dstFile.getPath()));
+                continue;
+            }
+            try
+            {
+                // The directories seem to be automatically created.
+                FileUtils.writeStringToFile(dstFile, staged.contents, staged.encoding);
+                ++written;
+            }
+            catch(IOException e)
+            {
+                logger.println(String.format("Failed to write to %s", dstFile.getPath()));
+                e.printStackTrace(logger);
+                failed = true;
+            }
+        }
+        return written;
+    }
+}
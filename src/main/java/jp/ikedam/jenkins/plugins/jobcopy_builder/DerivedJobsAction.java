@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.AbstractItem;
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Item;
+import jenkins.model.Jenkins;
+import jenkins.model.TransientActionFactory;
+
+/**
+ * Action to list jobs copied from a job.
+ *
+ * Shown in jobs used as templates, and available also via REST API
+ * (JOB_URL/derivedJobs/api/json).
+ * Only jobs the current user can read are listed.
+ *
+ * Also allows to apply the template to derived jobs again with {@link TemplatePropagator}.
+ */
+@ExportedBean
+public class DerivedJobsAction implements Action
+{
+    private final AbstractItem template;
+
+    /**
+     * constructor.
+     *
+     * @param template the job copied from.
+     */
+    public DerivedJobsAction(AbstractItem template)
+    {
+        this.template = template;
+    }
+
+    /**
+     * Returns the job copied from.
+     *
+     * @return the job copied from.
+     */
+    public AbstractItem getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Returns records of jobs copied from the template, sorted by their names.
+     *
+     * @return records of jobs copied from the template.
+     */
+    @Exported
+    public List<LineageRecord> getDerivedJobs()
+    {
+        List<LineageRecord> records = new ArrayList<LineageRecord>();
+        Jenkins jenkins = Jenkins.get();
+        for(LineageRecord record: LineageIndex.get().getDerivedJobs(template.getFullName()))
+        {
+            // returns null if the user has no permission to read the job.
+            if(jenkins.getItemByFullName(record.getDerivedJob(), Item.class) != null)
+            {
+                records.add(record);
+            }
+        }
+        Collections.sort(records, new Comparator<LineageRecord>() {
+            @Override
+            public int compare(LineageRecord o1, LineageRecord o2)
+            {
+                return o1.getDerivedJob().compareTo(o2.getDerivedJob());
+            }
+        });
+        return records;
+    }
+
+    /**
+     * Returns the item copied to.
+     *
+     * @param record the record.
+     * @return the item. null if not accessible.
+     */
+    public Item getItem(LineageRecord record)
+    {
+        return Jenkins.get().getItemByFullName(record.getDerivedJob(), Item.class);
+    }
+
+    /**
+     * Returns the running propagation of the template.
+     *
+     * @return the propagation. null if not running.
+     */
+    public TemplatePropagator getPropagator()
+    {
+        return TemplatePropagator.get(template.getFullName());
+    }
+
+    /**
+     * Returns the log of the running or the last propagation of the template.
+     *
+     * @return the log. null if never performed.
+     */
+    public String getLastLog()
+    {
+        return TemplatePropagator.getLastLog(template);
+    }
+
+    /**
+     * Applies the template to all the derived jobs again.
+     *
+     * Runs in background as the current user.
+     *
+     * @param req the request.
+     * @param rsp the response.
+     * @throws IOException failed to redirect.
+     */
+    @RequirePOST
+    public void doPropagate(StaplerRequest req, StaplerResponse rsp) throws IOException
+    {
+        template.checkPermission(Item.CONFIGURE);
+        TemplatePropagator.start(template, Jenkins.getAuthentication());
+        rsp.sendRedirect(".");
+    }
+
+    /**
+     * Exposes this action to REST API.
+     *
+     * @return the API object.
+     */
+    public Api getApi()
+    {
+        return new Api(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName()
+    {
+        return "package.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName()
+    {
+        return Messages.DerivedJobsAction_DisplayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName()
+    {
+        return "derivedJobs";
+    }
+
+    /**
+     * Adds {@link DerivedJobsAction} to jobs copied to other jobs.
+     */
+    @Extension
+    public static class TransientActionFactoryImpl extends TransientActionFactory<AbstractItem>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Class<AbstractItem> type()
+        {
+            return AbstractItem.class;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @NonNull
+        public Collection<? extends Action> createFor(@NonNull AbstractItem target)
+        {
+            if(!LineageIndex.get().hasDerivedJobs(target.getFullName()))
+            {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(new DerivedJobsAction(target));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.PrintStream;
+
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+
+/**
+ * A {@link JobcopyOperation} modifying a parsed XML Document in place.
+ *
+ * Consecutive operations implementing this share a single parsed document,
+ * and the configuration is parsed and serialized only once for all of them.
+ * {@link AbstractXmlJobcopyOperation} implements this.
+ * Implementations must still implement {@link JobcopyOperation#perform(String, String, EnvVars, PrintStream)}.
+ *
+ * @see OperationChain
+ */
+public interface DomJobcopyOperation
+{
+    /**
+     * Performs modifications to job configure XML Document.
+     *
+     * @param doc       XML Document of the job to be copied (job/NAME/config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     */
+    public Document perform(Document doc, EnvVars env, PrintStream logger);
+}
@@ -78,6 +78,18 @@ public class EnableOperation extends AbstractXmlJobcopyOperation implements Seri
     {
     }
     
+    /**
+     * This operation does not refer variables.
+     * 
+     * @return false
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.JobcopyOperation#isEnvironmentDependent()
+     */
+    @Override
+    public boolean isEnvironmentDependent()
+    {
+        return false;
+    }
+    
     /**
      * Returns modified XML Document of the job configuration.
      * 
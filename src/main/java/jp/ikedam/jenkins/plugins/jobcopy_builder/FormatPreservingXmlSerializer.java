@@ -0,0 +1,728 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Writes a modified XML document keeping the formatting of the original XML string.
+ *
+ * The modified document is compared with the original XML string,
+ * and only changed text, CDATA sections, comments, processing instructions and attribute values
+ * are rewritten. Other parts including the XML declaration, indentation,
+ * line separators, quotes of attributes and character references are written as they were.
+ * So repeated copies never change the size of the configuration
+ * unless operations actually change it.
+ *
+ * When elements or attributes are added or removed,
+ * the document is written with {@link Transformer} without indentation,
+ * keeping the original XML declaration.
+ */
+public class FormatPreservingXmlSerializer
+{
+    private static final int START = 0;
+    private static final int END = 1;
+    private static final int TEXT = 2;
+    private static final int CDATA = 3;
+    private static final int COMMENT = 4;
+    private static final int PI = 5;
+
+    private FormatPreservingXmlSerializer()
+    {
+    }
+
+    /**
+     * Writes a document.
+     *
+     * @param originalXml   the XML string the document was parsed from.
+     * @param doc           the document, maybe modified.
+     * @return the XML string.
+     * @throws TransformerException failed to write the document.
+     */
+    public static String serialize(String originalXml, Document doc)
+        throws TransformerException
+    {
+        String xml = splice(originalXml, doc);
+        if(xml != null)
+        {
+            return xml;
+        }
+        return transform(originalXml, doc);
+    }
+
+    /**
+     * Writes changes in a document into the original XML string.
+     *
+     * @param originalXml   the XML string the document was parsed from.
+     * @param doc           the document, maybe modified.
+     * @return the XML string. null if the structure of the document is changed.
+     */
+    static String splice(String originalXml, Document doc)
+    {
+        List<Token> tokens;
+        try
+        {
+            tokens = new Tokenizer(originalXml).tokenize();
+        }
+        catch(RuntimeException e)
+        {
+            // unsupported constructions (e.g. DOCTYPE, custom entities).
+            return null;
+        }
+        List<Event> events = new ArrayList<Event>();
+        if(!flatten(doc, events))
+        {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder(originalXml.length() + 64);
+        int copied = 0;
+        int t = 0;
+        int e = 0;
+        while(t < tokens.size() || e < events.size())
+        {
+            Token token = (t < tokens.size())?tokens.get(t):null;
+            Event event = (e < events.size())?events.get(e):null;
+            int editStart;
+            int editEnd;
+            String replacement;
+            if(token != null && event != null && token.type == event.type)
+            {
+                ++t;
+                ++e;
+                switch(token.type)
+                {
+                case START:
+                    {
+                        Element element = (Element)event.node;
+                        if(!token.name.equals(element.getNodeName())
+                                || element.getAttributes().getLength() != token.attributes.size())
+                        {
+                            return null;
+                        }
+                        for(AttributeToken attr: token.attributes)
+                        {
+                            Attr node = element.getAttributeNode(attr.name);
+                            if(node == null)
+                            {
+                                return null;
+                            }
+                            if(!node.getValue().equals(attr.value))
+                            {
+                                if(attr.valueStart < copied)
+                                {
+                                    return null;
+                                }
+                                out.append(originalXml, copied, attr.valueStart);
+                                out.append(escapeAttribute(node.getValue(), attr.quote));
+                                copied = attr.valueEnd;
+                            }
+                        }
+                    }
+                    continue;
+                case END:
+                    if(!token.name.equals(event.node.getNodeName()))
+                    {
+                        return null;
+                    }
+                    continue;
+                case PI:
+                    {
+                        ProcessingInstruction pi = (ProcessingInstruction)event.node;
+                        if(pi.getTarget().equals(token.name) && pi.getData().equals(token.value))
+                        {
+                            continue;
+                        }
+                        replacement = "<?" + pi.getTarget() + (pi.getData().isEmpty()?"":(" " + pi.getData())) + "?>";
+                    }
+                    break;
+                default:
+                    if(event.data.equals(token.value))
+                    {
+                        continue;
+                    }
+                    replacement = write(event.type, event.data);
+                    break;
+                }
+                editStart = token.start;
+                editEnd = token.end;
+            }
+            else if(event != null && event.type == TEXT && token != null)
+            {
+                // text added
+                ++e;
+                Token prev = (t > 0)?tokens.get(t - 1):null;
+                if(prev != null && prev.type == START && prev.selfClosing)
+                {
+                    // <name/> to <name>text</name>
+                    editStart = prev.closeStart;
+                    editEnd = prev.end;
+                    replacement = ">" + escapeText(event.data) + "</" + prev.name + ">";
+                }
+                else
+                {
+                    editStart = token.start;
+                    editEnd = token.start;
+                    replacement = escapeText(event.data);
+                }
+            }
+            else if(token != null && token.type == TEXT)
+            {
+                // text removed
+                ++t;
+                editStart = token.start;
+                editEnd = token.end;
+                replacement = "";
+            }
+            else
+            {
+                return null;
+            }
+            if(editStart < copied)
+            {
+                return null;
+            }
+            out.append(originalXml, copied, editStart);
+            out.append(replacement);
+            copied = editEnd;
+        }
+        out.append(originalXml, copied, originalXml.length());
+        return out.toString();
+    }
+
+    /**
+     * Writes a document with {@link Transformer} without indentation.
+     *
+     * @param originalXml   the XML string the document was parsed from.
+     * @param doc           the document.
+     * @return the XML string.
+     * @throws TransformerException failed to write the document.
+     */
+    static String transform(String originalXml, Document doc)
+        throws TransformerException
+    {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+        StringWriter sw = new StringWriter();
+        sw.write(getProlog(originalXml));
+        transformer.transform(new DOMSource(doc), new StreamResult(sw));
+        return sw.toString();
+    }
+
+    /**
+     * Returns the XML declaration and following white spaces.
+     *
+     * @param xml the XML string.
+     * @return the XML declaration. empty if not declared.
+     */
+    static String getProlog(String xml)
+    {
+        if(!xml.startsWith("<?xml") || xml.length() <= 5 || !Character.isWhitespace(xml.charAt(5)))
+        {
+            return "";
+        }
+        int end = xml.indexOf("?>");
+        if(end < 0)
+        {
+            return "";
+        }
+        end += 2;
+        while(end < xml.length() && Character.isWhitespace(xml.charAt(end)))
+        {
+            ++end;
+        }
+        return xml.substring(0, end);
+    }
+
+    private static boolean flatten(Node parent, List<Event> events)
+    {
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            switch(node.getNodeType())
+            {
+            case Node.ELEMENT_NODE:
+                events.add(new Event(START, node, null));
+                if(!flatten(node, events))
+                {
+                    return false;
+                }
+                events.add(new Event(END, node, null));
+                break;
+            case Node.TEXT_NODE:
+                {
+                    String data = node.getNodeValue();
+                    if(data.isEmpty())
+                    {
+                        break;
+                    }
+                    Event last = events.isEmpty()?null:events.get(events.size() - 1);
+                    if(last != null && last.type == TEXT)
+                    {
+                        // adjacent text nodes are written as a text.
+                        last.data = last.data + data;
+                        break;
+                    }
+                    events.add(new Event(TEXT, node, data));
+                }
+                break;
+            case Node.CDATA_SECTION_NODE:
+                events.add(new Event(CDATA, node, node.getNodeValue()));
+                break;
+            case Node.COMMENT_NODE:
+                events.add(new Event(COMMENT, node, node.getNodeValue()));
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                events.add(new Event(PI, node, null));
+                break;
+            default:
+                // DOCTYPE, entity references
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String write(int type, String data)
+    {
+        switch(type)
+        {
+        case TEXT:
+            return escapeText(data);
+        case CDATA:
+            return "<![CDATA[" + data.replace("]]>", "]]]]><![CDATA[>") + "]]>";
+        case COMMENT:
+            return "<!--" + data + "-->";
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    static String escapeText(String value)
+    {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        for(int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            switch(c)
+            {
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '\r':
+                sb.append("&#xd;");
+                break;
+            default:
+                sb.append(c);
+                break;
+            }
+        }
+        return sb.toString();
+    }
+
+    static String escapeAttribute(String value, char quote)
+    {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        for(int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            switch(c)
+            {
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '"':
+                sb.append((quote == '"')?"&quot;":"\"");
+                break;
+            case '\'':
+                sb.append((quote == '\'')?"&apos;":"'");
+                break;
+            case '\n':
+                sb.append("&#xa;");
+                break;
+            case '\r':
+                sb.append("&#xd;");
+                break;
+            case '\t':
+                sb.append("&#x9;");
+                break;
+            default:
+                sb.append(c);
+                break;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A node in the document, in the document order.
+     */
+    private static class Event
+    {
+        public final int type;
+        public final Node node;
+        public String data;
+
+        public Event(int type, Node node, String data)
+        {
+            this.type = type;
+            this.node = node;
+            this.data = data;
+        }
+    }
+
+    /**
+     * An attribute in a start tag.
+     */
+    private static class AttributeToken
+    {
+        public String name;
+        public String value;
+        public char quote;
+        public int valueStart;
+        public int valueEnd;
+    }
+
+    /**
+     * A part of the original XML string.
+     */
+    private static class Token
+    {
+        public int type;
+        public int start;
+        public int end;
+        public String name;
+        public String value;
+        public boolean selfClosing;
+        public int closeStart;
+        public List<AttributeToken> attributes;
+
+        public Token(int type, int start, int end)
+        {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Splits a well-formed XML string into tokens.
+     *
+     * Works only with XML strings already parsed successfully.
+     * Throws {@link IllegalArgumentException} for unsupported constructions.
+     */
+    private static class Tokenizer
+    {
+        private final String xml;
+        private final List<Token> tokens = new ArrayList<Token>();
+        private int pos = 0;
+        private int depth = 0;
+
+        public Tokenizer(String xml)
+        {
+            this.xml = xml;
+        }
+
+        public List<Token> tokenize()
+        {
+            while(pos < xml.length())
+            {
+                if(xml.charAt(pos) != '<')
+                {
+                    int next = xml.indexOf('<', pos);
+                    if(next < 0)
+                    {
+                        next = xml.length();
+                    }
+                    if(depth > 0)
+                    {
+                        Token token = new Token(TEXT, pos, next);
+                        token.value = decode(normalizeNewlines(xml.substring(pos, next)));
+                        tokens.add(token);
+                    }
+                    // white spaces outside the root element are not in the document.
+                    pos = next;
+                }
+                else if(xml.startsWith("<?", pos))
+                {
+                    readProcessingInstruction();
+                }
+                else if(xml.startsWith("<!--", pos))
+                {
+                    int end = indexOf("-->", pos + 4);
+                    Token token = new Token(COMMENT, pos, end + 3);
+                    token.value = normalizeNewlines(xml.substring(pos + 4, end));
+                    tokens.add(token);
+                    pos = end + 3;
+                }
+                else if(xml.startsWith("<![CDATA[", pos))
+                {
+                    int end = indexOf("]]>", pos + 9);
+                    Token token = new Token(CDATA, pos, end + 3);
+                    token.value = normalizeNewlines(xml.substring(pos + 9, end));
+                    tokens.add(token);
+                    pos = end + 3;
+                }
+                else if(xml.startsWith("<!", pos))
+                {
+                    throw new IllegalArgumentException("DOCTYPE is not supported");
+                }
+                else if(xml.startsWith("</", pos))
+                {
+                    int end = indexOf(">", pos);
+                    Token token = new Token(END, pos, end + 1);
+                    token.name = xml.substring(pos + 2, end).trim();
+                    tokens.add(token);
+                    --depth;
+                    pos = end + 1;
+                }
+                else
+                {
+                    readStartTag();
+                }
+            }
+            return tokens;
+        }
+
+        private void readProcessingInstruction()
+        {
+            int end = indexOf("?>", pos + 2);
+            String body = xml.substring(pos + 2, end);
+            int targetEnd = 0;
+            while(targetEnd < body.length() && !Character.isWhitespace(body.charAt(targetEnd)))
+            {
+                ++targetEnd;
+            }
+            String target = body.substring(0, targetEnd);
+            if(!"xml".equals(target))
+            {
+                Token token = new Token(PI, pos, end + 2);
+                token.name = target;
+                int dataStart = targetEnd;
+                while(dataStart < body.length() && Character.isWhitespace(body.charAt(dataStart)))
+                {
+                    ++dataStart;
+                }
+                token.value = normalizeNewlines(body.substring(dataStart));
+                tokens.add(token);
+            }
+            // the XML declaration is not in the document.
+            pos = end + 2;
+        }
+
+        private void readStartTag()
+        {
+            Token token = new Token(START, pos, -1);
+            token.attributes = new ArrayList<AttributeToken>();
+            int i = pos + 1;
+            int nameStart = i;
+            while(!isNameEnd(xml.charAt(i)))
+            {
+                ++i;
+            }
+            token.name = xml.substring(nameStart, i);
+            while(true)
+            {
+                while(Character.isWhitespace(xml.charAt(i)))
+                {
+                    ++i;
+                }
+                char c = xml.charAt(i);
+                if(c == '>')
+                {
+                    token.closeStart = i;
+                    token.end = i + 1;
+                    break;
+                }
+                if(c == '/')
+                {
+                    if(xml.charAt(i + 1) != '>')
+                    {
+                        throw new IllegalArgumentException("Malformed start tag");
+                    }
+                    token.selfClosing = true;
+                    token.closeStart = i;
+                    token.end = i + 2;
+                    break;
+                }
+                AttributeToken attr = new AttributeToken();
+                int attrNameStart = i;
+                while(!isNameEnd(xml.charAt(i)))
+                {
+                    ++i;
+                }
+                attr.name = xml.substring(attrNameStart, i);
+                while(Character.isWhitespace(xml.charAt(i)))
+                {
+                    ++i;
+                }
+                if(xml.charAt(i) != '=')
+                {
+                    throw new IllegalArgumentException("Malformed attribute");
+                }
+                ++i;
+                while(Character.isWhitespace(xml.charAt(i)))
+                {
+                    ++i;
+                }
+                attr.quote = xml.charAt(i);
+                if(attr.quote != '"' && attr.quote != '\'')
+                {
+                    throw new IllegalArgumentException("Malformed attribute");
+                }
+                attr.valueStart = i + 1;
+                attr.valueEnd = xml.indexOf(attr.quote, attr.valueStart);
+                if(attr.valueEnd < 0)
+                {
+                    throw new IllegalArgumentException("Malformed attribute");
+                }
+                attr.value = decode(normalizeAttribute(xml.substring(attr.valueStart, attr.valueEnd)));
+                token.attributes.add(attr);
+                i = attr.valueEnd + 1;
+            }
+            tokens.add(token);
+            if(token.selfClosing)
+            {
+                Token endToken = new Token(END, token.end, token.end);
+                endToken.name = token.name;
+                tokens.add(endToken);
+            }
+            else
+            {
+                ++depth;
+            }
+            pos = token.end;
+        }
+
+        private int indexOf(String str, int from)
+        {
+            int index = xml.indexOf(str, from);
+            if(index < 0)
+            {
+                throw new IllegalArgumentException(String.format("%s is not found", str));
+            }
+            return index;
+        }
+
+        private static boolean isNameEnd(char c)
+        {
+            return Character.isWhitespace(c) || c == '/' || c == '>' || c == '=';
+        }
+
+        private static String normalizeNewlines(String value)
+        {
+            if(value.indexOf('\r') < 0)
+            {
+                return value;
+            }
+            return value.replace("\r\n", "\n").replace('\r', '\n');
+        }
+
+        private static String normalizeAttribute(String value)
+        {
+            return normalizeNewlines(value).replace('\n', ' ').replace('\t', ' ');
+        }
+
+        private static String decode(String value)
+        {
+            int amp = value.indexOf('&');
+            if(amp < 0)
+            {
+                return value;
+            }
+            StringBuilder sb = new StringBuilder(value.length());
+            int i = 0;
+            while(amp >= 0)
+            {
+                sb.append(value, i, amp);
+                int semi = value.indexOf(';', amp);
+                if(semi < 0)
+                {
+                    throw new IllegalArgumentException("Malformed entity reference");
+                }
+                String entity = value.substring(amp + 1, semi);
+                if("lt".equals(entity))
+                {
+                    sb.append('<');
+                }
+                else if("gt".equals(entity))
+                {
+                    sb.append('>');
+                }
+                else if("amp".equals(entity))
+                {
+                    sb.append('&');
+                }
+                else if("quot".equals(entity))
+                {
+                    sb.append('"');
+                }
+                else if("apos".equals(entity))
+                {
+                    sb.append('\'');
+                }
+                else if(entity.startsWith("#x"))
+                {
+                    sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                }
+                else if(entity.startsWith("#"))
+                {
+                    sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                }
+                else
+                {
+                    throw new IllegalArgumentException(String.format("Unsupported entity: %s", entity));
+                }
+                i = semi + 1;
+                amp = value.indexOf('&', i);
+            }
+            sb.append(value, i, value.length());
+            return sb.toString();
+        }
+    }
+}
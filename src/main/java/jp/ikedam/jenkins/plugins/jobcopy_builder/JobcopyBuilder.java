@@ -29,20 +29,25 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 import hudson.Extension;
-import hudson.XmlFile;
 import hudson.EnvVars;
 import hudson.Launcher;
 import hudson.DescriptorExtensionList;
 import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
+import hudson.model.Items;
 import hudson.model.TopLevelItem;
 import hudson.security.ACL;
 import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Node;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractItem;
 import hudson.model.AbstractProject;
+import hudson.model.Project;
 import hudson.model.Descriptor;
+import hudson.remoting.VirtualChannel;
 import hudson.util.ComboBoxModel;
 import hudson.util.FormValidation;
 import hudson.tasks.Builder;
@@ -55,14 +60,18 @@ import org.acegisecurity.context.SecurityContextHolder;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
@@ -157,6 +166,91 @@ public class JobcopyBuilder extends Builder
         return additionalFilesetList;
     }
 
+    private boolean recursive = false;
+    
+    /**
+     * Returns whether to copy items contained in the folder recursively.
+     * 
+     * Works only when the item copied from is a folder.
+     * Operations and additional files are applied to all the copied items.
+     * 
+     * @return whether to copy items in the folder recursively.
+     */
+    public boolean isRecursive()
+    {
+        return recursive;
+    }
+    
+    /**
+     * Sets whether to copy items contained in the folder recursively.
+     * 
+     * @param recursive whether to copy items in the folder recursively.
+     */
+    @DataBoundSetter
+    public void setRecursive(boolean recursive)
+    {
+        this.recursive = recursive;
+    }
+    
+    private boolean deferCommit = false;
+    
+    /**
+     * Returns whether to defer writing changes to the job copied to.
+     * 
+     * Changes by all the copy steps deferring commits in the build are staged,
+     * and written by the last of them at once.
+     * Each job is loaded only once even if multiple steps copy to it.
+     * Changes are discarded if the build fails before the last step.
+     * Not applied to recursive copies.
+     * 
+     * @return whether to defer writing changes.
+     */
+    public boolean isDeferCommit()
+    {
+        return deferCommit;
+    }
+    
+    /**
+     * Sets whether to defer writing changes to the job copied to.
+     * 
+     * @param deferCommit whether to defer writing changes.
+     */
+    @DataBoundSetter
+    public void setDeferCommit(boolean deferCommit)
+    {
+        this.deferCommit = deferCommit;
+    }
+    
+    private boolean transformOnAgent = false;
+    
+    /**
+     * Returns whether to apply operations on the agent the build runs on.
+     * 
+     * Saves CPU of the controller when transforming many or large configurations.
+     * Configurations are still read and written on the controller.
+     * Applied on the controller if the build runs on the controller,
+     * the agent is offline, or some operations cannot be sent to agents.
+     * Also applied on the controller unless allowed with
+     * {@link JobcopyConfiguration#isTransformOnAgents()}.
+     * 
+     * @return whether to apply operations on the agent.
+     */
+    public boolean isTransformOnAgent()
+    {
+        return transformOnAgent;
+    }
+    
+    /**
+     * Sets whether to apply operations on the agent the build runs on.
+     * 
+     * @param transformOnAgent whether to apply operations on the agent.
+     */
+    @DataBoundSetter
+    public void setTransformOnAgent(boolean transformOnAgent)
+    {
+        this.transformOnAgent = transformOnAgent;
+    }
+    
     /**
      * Constructor to instantiate from parameters in the job configuration page.
      * 
@@ -180,6 +274,38 @@ public class JobcopyBuilder extends Builder
         this.overwrite = overwrite;
         this.jobcopyOperationList = jobcopyOperationList;
         this.additionalFilesetList = additionalFilesetList;
+        this.plan = CopyPlan.compile(this);
+    }
+    
+    private transient volatile CopyPlan plan;
+    
+    /**
+     * Returns the settings prepared for builds.
+     * 
+     * Built again only when settings are changed.
+     * 
+     * @return the plan of the copy.
+     */
+    CopyPlan getPlan()
+    {
+        CopyPlan current = plan;
+        if(current == null || !current.isFor(this))
+        {
+            current = CopyPlan.compile(this);
+            plan = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Prepares settings when loaded from the saved configuration.
+     * 
+     * @return this object
+     */
+    private Object readResolve()
+    {
+        plan = CopyPlan.compile(this);
+        return this;
     }
     
     /**
@@ -212,23 +338,160 @@ public class JobcopyBuilder extends Builder
     private boolean performImpl(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
         throws IOException, InterruptedException
     {
-        ItemGroup<?> context = build.getProject().getRootProject().getParent();
-        EnvVars env = build.getEnvironment(listener);
+        AbstractBuild<?, ?> parentBuild = getParentBuild(build);
+        Object key = (parentBuild != null)?getSharedCopyKey(build, listener):null;
+        if(key == null)
+        {
+            return copy(build, listener);
+        }
         
-        if(StringUtils.isBlank(getFromJobName()))
+        // Configurations of a matrix build copy the same job in the same way
+        // unless names or operations refer axes.
+        // Performs the copy only once, and others reuse the result.
+        CopySession parentSession = CopySession.get(parentBuild);
+        while(true)
         {
-            listener.getLogger().println("From Job Name is not specified");
-            return false;
+            CopySession.SharedCopy shared = parentSession.claimSharedCopy(key);
+            if(shared == null)
+            {
+                break;
+            }
+            listener.getLogger().println("Waiting for the same copy in another configuration...");
+            if(shared.await())
+            {
+                listener.getLogger().println("Reused the result of the same copy in another configuration.");
+                CopyMetrics.get().recordSkip();
+                for(CopiedjobinfoAction action: shared.getActions())
+                {
+                    build.addAction(action);
+                }
+                return shared.isSucceeded();
+            }
+        }
+        
+        int before = build.getActions(CopiedjobinfoAction.class).size();
+        Boolean succeeded = null;
+        try
+        {
+            succeeded = copy(build, listener);
+        }
+        finally
+        {
+            List<CopiedjobinfoAction> actions = build.getActions(CopiedjobinfoAction.class);
+            parentSession.completeSharedCopy(
+                    key,
+                    succeeded,
+                    actions.subList(Math.min(before, actions.size()), actions.size())
+            );
+        }
+        return succeeded;
+    }
+    
+    /**
+     * Returns the matrix build containing the build.
+     * 
+     * @param build the build.
+     * @return the matrix build. null if the build is not a configuration of a matrix build.
+     */
+    private static AbstractBuild<?, ?> getParentBuild(AbstractBuild<?, ?> build)
+    {
+        if(Jenkins.getInstance().getPlugin("matrix-project") == null)
+        {
+            return null;
         }
-        if(StringUtils.isBlank(getToJobName()))
+        if(!(build instanceof MatrixRun))
         {
-            listener.getLogger().println("To Job Name is not specified");
+            return null;
+        }
+        return ((MatrixRun)build).getParentBuild();
+    }
+    
+    /**
+     * Returns the key identifying the copy this step performs in the build.
+     * 
+     * Copies with the same key copy the same job to the same job with the same operations,
+     * including values of variables operations refer.
+     * 
+     * @param build     the build.
+     * @param listener  the listener.
+     * @return the key. null if the copy cannot be shared.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    private Object getSharedCopyKey(AbstractBuild<?, ?> build, BuildListener listener)
+        throws IOException, InterruptedException
+    {
+        CopyPlan plan = getPlan();
+        if(plan.getError() != null || isDeferCommit())
+        {
+            return null;
+        }
+        LazyEnvironment env = CopySession.get(build).getEnvironment(listener);
+        List<Object> key = new ArrayList<Object>();
+        key.add(this);
+        key.add(env.expand(plan.getFromJobName()));
+        key.add(env.expand(plan.getToJobName()));
+        key.add(plan.createOperationSet(env).getHash());
+        for(AdditionalFileset fileset: plan.getAdditionalFilesetList())
+        {
+            key.add(OperationSet.create(fileset.getJobcopyOperationList(), env).getHash());
+        }
+        return key;
+    }
+    
+    /**
+     * Performs the copy, recording a {@link CopyEvents.Kind#COPY} event.
+     */
+    private boolean copy(AbstractBuild<?, ?> build, BuildListener listener)
+        throws IOException, InterruptedException
+    {
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.COPY);
+        int actions = build.getActions(CopiedjobinfoAction.class).size();
+        boolean succeeded = false;
+        try
+        {
+            succeeded = copy(build, listener, event);
+            return succeeded;
+        }
+        finally
+        {
+            event.commit(succeeded);
+            if(event.getSlowMillis() > 0)
+            {
+                listener.getLogger().println(String.format(
+                        "The copy took %d ms: see the system log for details.",
+                        event.getSlowMillis()
+                ));
+                // flag actions added by this copy.
+                List<CopiedjobinfoAction> infos = build.getActions(CopiedjobinfoAction.class);
+                for(int i = actions; i < infos.size(); ++i)
+                {
+                    infos.get(i).setSlowMillis(event.getSlowMillis());
+                }
+            }
+        }
+    }
+    
+    private boolean copy(AbstractBuild<?, ?> build, BuildListener listener, CopyEvents.Event event)
+        throws IOException, InterruptedException
+    {
+        // Shares works with other copy steps in the build.
+        CopySession session = CopySession.get(build);
+        ItemGroup<?> context = session.getContext();
+        // Variables are computed only when needed.
+        LazyEnvironment env = session.getEnvironment(listener);
+        // Settings validated and prepared in advance.
+        CopyPlan plan = getPlan();
+        
+        if(plan.getError() != null)
+        {
+            listener.getLogger().println(plan.getError());
             return false;
         }
         
         // Expand the variable expressions in job names.
-        String fromJobNameExpanded = env.expand(getFromJobName());
-        String toJobNameExpanded = env.expand(getToJobName());
+        String fromJobNameExpanded = env.expand(plan.getFromJobName());
+        String toJobNameExpanded = env.expand(plan.getToJobName());
         
         if(StringUtils.isBlank(fromJobNameExpanded))
         {
@@ -242,9 +505,10 @@ public class JobcopyBuilder extends Builder
         }
         
         listener.getLogger().println(String.format("Copying %s to %s", fromJobNameExpanded, toJobNameExpanded));
+        event.setJobs(fromJobNameExpanded, toJobNameExpanded);
         
         // Reteive the job to be copied from.
-        TopLevelItem fromJob = getRelative(fromJobNameExpanded, context, TopLevelItem.class);
+        TopLevelItem fromJob = session.getRelative(fromJobNameExpanded, TopLevelItem.class);
         
         if(fromJob == null)
         {
@@ -267,146 +531,621 @@ public class JobcopyBuilder extends Builder
             return false;
         }
         
-        // Check whether the job to be copied to is already exists.
-        TopLevelItem toJob = getRelative(toJobNameExpanded, context, TopLevelItem.class);
-        if(toJob != null){
-            listener.getLogger().println(String.format("Already exists: %s", toJobNameExpanded));
-            if(!isOverwrite()){
-                return false;
-            }
-            if(!(toJob instanceof AbstractItem))
+        // A folder cannot be copied recursively into itself.
+        if(isRecursive())
+        {
+            String toFullName = Items.getCanonicalName(context, toJobNameExpanded);
+            if(toFullName.equals(fromJob.getFullName()) || toFullName.startsWith(fromJob.getFullName() + "/"))
             {
-                listener.getLogger().println("Only AbstractItem can be overwritten: please delete manually, and run copy again");
+                listener.getLogger().println(String.format("Error: Cannot copy %s recursively into itself: %s", fromJob.getFullName(), toFullName));
                 return false;
             }
         }
         
+        boolean deferred = isDeferCommit() && !isRecursive();
+        
         // Retrieve the config.xml of the job copied from.
         listener.getLogger().println(String.format("Fetching configuration of %s...", fromJobNameExpanded));
         
-        XmlFile file = ((AbstractItem)fromJob).getConfigFile();
-        String jobConfigXmlString = file.asString();
-        String encoding = file.sniffEncoding();
+        CopySession.ConfigSnapshot config = session.readConfig((AbstractItem)fromJob);
+        String jobConfigXmlString = config.getXmlString();
+        String encoding = config.getEncoding();
+        event.setInput(jobConfigXmlString).setOperationCount(plan.getJobcopyOperationList().size()).phase("read");
+        
+        // Skip the copy if inputs and the job copied to are not changed since the last copy.
+        String inputHash = null;
+        if(isOverwrite() && !deferred && !isRecursive())
+        {
+            inputHash = fingerprint(
+                    fromJob,
+                    jobConfigXmlString,
+                    encoding,
+                    plan.createOperationSet(env).getHash(),
+                    plan.getAdditionalFilesetList(),
+                    env
+            );
+            TopLevelItem existing = session.getRelative(toJobNameExpanded, TopLevelItem.class);
+            if(inputHash != null && existing != null && LineageIndex.get().isUpToDate(existing, inputHash))
+            {
+                listener.getLogger().println(String.format("%s is up to date: skipped.", toJobNameExpanded));
+                event.setSkipped("up to date");
+                build.addAction(new CopiedjobinfoAction(fromJob, existing, false));
+                return true;
+            }
+            event.phase("fingerprint");
+        }
+        
         listener.getLogger().println("Original xml:");
         listener.getLogger().println(jobConfigXmlString);
         
         // Apply additional operations to the retrieved XML.
-        if(getJobcopyOperationList() != null)
+        jobConfigXmlString = transform(build, plan.getJobcopyOperationList(), jobConfigXmlString, encoding, env, listener);
+        if(jobConfigXmlString == null)
         {
-            for(JobcopyOperation operation: getJobcopyOperationList())
-            {
-                jobConfigXmlString = operation.perform(jobConfigXmlString, encoding, env, listener.getLogger());
-                if(jobConfigXmlString == null)
-                {
-                    return false;
-                }
-            }
+            return false;
         }
         listener.getLogger().println("Copied xml:");
         listener.getLogger().println(jobConfigXmlString);
+        event.setOutput(jobConfigXmlString).phase("operations");
         
-        if(toJob == null)
+        // Copies to the same job are performed one by one.
+        // Deferred changes are locked when written.
+        // Waiting updates with the same contents are coalesced:
+        // earlier ones are skipped if the latest one is applied.
+        String lockName = Items.getCanonicalName(context, toJobNameExpanded);
+        CopyLocks.Ticket ticket = null;
+        if(!deferred)
         {
-            // Create the job copied to.
-            listener.getLogger().println(String.format("Creating %s", toJobNameExpanded));
-            InputStream is = new ByteArrayInputStream(jobConfigXmlString.getBytes(encoding)); 
-            ItemGroup<?> toContext = context;
-            if(toJobNameExpanded.lastIndexOf('/')  >= 0)
+            ticket = CopyLocks.acquire(
+                    lockName,
+                    (isOverwrite() && !isRecursive() && plan.getAdditionalFilesetList().isEmpty())
+                            ?LineageIndex.digest(jobConfigXmlString)
+                            :null
+            );
+        }
+        
+        event.phase("lock");
+        
+        TopLevelItem toJob;
+        boolean failed;
+        OperationSet operationSet;
+        try
+        {
+            // Check whether the job to be copied to is already exists.
+            toJob = session.getRelative(toJobNameExpanded, TopLevelItem.class);
+            if(toJob != null){
+                listener.getLogger().println(String.format("Already exists: %s", toJobNameExpanded));
+                if(!isOverwrite()){
+                    return false;
+                }
+                if(!(toJob instanceof AbstractItem))
+                {
+                    listener.getLogger().println("Only AbstractItem can be overwritten: please delete manually, and run copy again");
+                    return false;
+                }
+                if(ticket != null && ticket.awaitSuperseding())
+                {
+                    listener.getLogger().println(String.format("Skipped: a later copy to %s with the same configuration is applied.", toJobNameExpanded));
+                    event.setSkipped("superseded");
+                    build.addAction(new CopiedjobinfoAction(fromJob, toJob, false));
+                    return true;
+                }
+            }
+        
+            // Changes to the job copied to are applied at once.
+            CopyTransaction transaction = new CopyTransaction(jobConfigXmlString, encoding);
+            failed = !stageAdditionalFiles(
+                    plan.getAdditionalFilesetList(),
+                    transaction,
+                    (toJob != null)?toJob.getRootDir():null,
+                    fromJob,
+                    env,
+                    listener.getLogger()
+            );
+            event.phase("files");
+        
+            if(toJob == null)
             {
-                int pos = toJobNameExpanded.lastIndexOf('/');
-                String parentName = toJobNameExpanded.substring(0, pos);
-                toJobNameExpanded = toJobNameExpanded.substring(pos + 1);
-                if ("".equals(parentName))
+                // Create the job copied to.
+                listener.getLogger().println(String.format("Creating %s", toJobNameExpanded));
+                ItemGroup<?> toContext = context;
+                if(toJobNameExpanded.lastIndexOf('/')  >= 0)
                 {
-                    toContext = Jenkins.getInstance();
+                    int pos = toJobNameExpanded.lastIndexOf('/');
+                    String parentName = toJobNameExpanded.substring(0, pos);
+                    toJobNameExpanded = toJobNameExpanded.substring(pos + 1);
+                    if ("".equals(parentName))
+                    {
+                        toContext = Jenkins.getInstance();
+                    }
+                    else
+                    {
+                        toContext = session.getRelative(parentName, ItemGroup.class);
+                    }
+                    if(toContext == null)
+                    {
+                        listener.getLogger().println(String.format("Error: Target folder '%s' was not found.", parentName));
+                        return false;
+                    }
                 }
-                else
+            
+                if(!(toContext instanceof ModifiableTopLevelItemGroup))
                 {
-                    toContext = getRelative(parentName, context, ItemGroup.class);
+                    listener.getLogger().println(String.format("Error: Target folder '%s' does not support ModifiableTopLevelItemGroup", toContext.getFullName()));
+                    return false;
                 }
-                if(toContext == null)
+            
+                if(deferred)
                 {
-                    listener.getLogger().println(String.format("Error: Target folder '%s' was not found.", parentName));
+                    String toFullName = ("".equals(toContext.getFullName()))
+                            ?toJobNameExpanded
+                            :String.format("%s/%s", toContext.getFullName(), toJobNameExpanded);
+                    if(session.isDeferred(toFullName) && !isOverwrite())
+                    {
+                        // created by a previous step.
+                        listener.getLogger().println(String.format("Already exists: %s", toFullName));
+                        return false;
+                    }
+                    session.deferCreate(
+                            (ModifiableTopLevelItemGroup)toContext,
+                            toJobNameExpanded,
+                            transaction,
+                            failed,
+                            fromJob,
+                            plan.createOperationSet(env),
+                            build.getParent().getFullName()
+                    );
+                    event.setDetail("deferred");
+                    return commitDeferred(build, session, listener);
+                }
+            
+                toJob = transaction.commitCreate((ModifiableTopLevelItemGroup)toContext, toJobNameExpanded, listener.getLogger());
+                if(toJob == null)
+                {
+                    listener.getLogger().println(String.format("Failed to create %s", toJobNameExpanded));
                     return false;
                 }
             }
-            
-            if(!(toContext instanceof ModifiableTopLevelItemGroup))
+            else if(deferred)
             {
-                listener.getLogger().println(String.format("Error: Target folder '%s' does not support ModifiableTopLevelItemGroup", toContext.getFullName()));
-                return false;
+                session.deferUpdate(
+                        (AbstractItem)toJob,
+                        transaction,
+                        failed,
+                        fromJob,
+                        plan.createOperationSet(env),
+                        build.getParent().getFullName()
+                );
+                event.setDetail("deferred");
+                return commitDeferred(build, session, listener);
             }
-            
-            toJob = ((ModifiableTopLevelItemGroup)toContext).createProjectFromXML(toJobNameExpanded, is);
-            if(toJob == null)
+            else
             {
-                listener.getLogger().println(String.format("Failed to create %s", toJobNameExpanded));
-                return false;
+                listener.getLogger().println(String.format("Updating %s", toJobNameExpanded));
+                transaction.commitUpdate((AbstractItem)toJob, listener.getLogger());
+            }
+        
+            event.phase("commit");
+            if(transaction.isFailed())
+            {
+                failed = true;
             }
+            else if(ticket != null)
+            {
+                // earlier copies with the same contents can be skipped.
+                ticket.commit();
+            }
+            if(toJob instanceof AbstractItem)
+            {
+                session.forgetConfig((AbstractItem)toJob);
+            }
+        
+            // Record the job copied to is derived from the job copied from.
+            operationSet = plan.createOperationSet(env);
+            // Failed copies are performed again even with the same inputs.
+            if(LineageIndex.get().record(
+                    fromJob,
+                    toJob,
+                    operationSet,
+                    transaction.getXmlString(),
+                    build.getParent().getFullName(),
+                    failed?null:inputHash
+            ) == null)
+            {
+                listener.getLogger().println(String.format(
+                        "%s is not recorded for propagation: operations refer a sensitive variable %s",
+                        toJobNameExpanded,
+                        operationSet.getSensitiveVariable()
+                ));
+            }
+        
         }
-        else
+        finally
         {
-            listener.getLogger().println(String.format("Updating %s", toJobNameExpanded));
-            AbstractItem target = (AbstractItem)toJob;
-            InputStream is = new ByteArrayInputStream(jobConfigXmlString.getBytes(encoding));
-            
-            String combinationFilter = null;
-            if (Jenkins.getInstance().getPlugin("matrix-project") != null)
+            if(ticket != null)
             {
-                if(target instanceof MatrixProject)
+                ticket.release();
+            }
+        }
+        
+        if(isRecursive())
+        {
+            if(!(fromJob instanceof ItemGroup))
+            {
+                listener.getLogger().println(String.format("%s is not a folder: no items to copy recursively.", fromJobNameExpanded));
+            }
+            else if(!(toJob instanceof ModifiableTopLevelItemGroup))
+            {
+                listener.getLogger().println(String.format("Error: Target folder '%s' does not support ModifiableTopLevelItemGroup", toJob.getFullName()));
+                failed = true;
+            }
+            else
+            {
+                listener.getLogger().println(String.format("Copying items in %s recursively...", fromJobNameExpanded));
+                SubtreeCopier copier = new SubtreeCopier(
+                        plan.getJobcopyOperationList(),
+                        plan.getAdditionalFilesetList(),
+                        isOverwrite(),
+                        operationSet,
+                        build.getParent().getFullName(),
+                        env,
+                        listener.getLogger()
+                );
+                if(!copier.copy((ItemGroup<?>)fromJob, (ModifiableTopLevelItemGroup)toJob))
                 {
-                    MatrixProject matrix = (MatrixProject)target;
-                    // Workaround for the case combinationFilter is removed.
-                    // In that case, updateByXml does not update combinationFilter,
-                    // for combinationFilter is not written in XML.
-                    // So reset it here in advance. 
-                    // It will be overwritten if defined.
-                    combinationFilter = matrix.getCombinationFilter();
-                    matrix.setCombinationFilter(null);
+                    failed = true;
                 }
+                event.phase("recursive");
+            }
+        }
+        
+        // add the information of jobs copied from and to to the build.
+        build.addAction(new CopiedjobinfoAction(fromJob, toJob, failed));
+        
+        return true;
+    }
+    
+    /**
+     * Writes deferred changes if this is the last step deferring commits in the build.
+     * 
+     * @param build     the build.
+     * @param session   the session holding deferred changes.
+     * @param listener  the listener.
+     * @return whether succeeded.
+     * @throws IOException failed to write changes.
+     * @throws InterruptedException interrupted while waiting for other copies.
+     */
+    private boolean commitDeferred(AbstractBuild<?, ?> build, CopySession session, BuildListener listener)
+        throws IOException, InterruptedException
+    {
+        if(!isLastDeferringStep(build))
+        {
+            listener.getLogger().println("Changes are deferred until the last copy step deferring commits.");
+            return true;
+        }
+        return session.commitDeferred(listener.getLogger());
+    }
+    
+    /**
+     * Returns whether this is the last step deferring commits in the build.
+     * 
+     * Returns true also when steps of the build cannot be listed,
+     * or this step is not listed (e.g. wrapped in another step).
+     * 
+     * @param build the build.
+     * @return whether this is the last step deferring commits.
+     */
+    private boolean isLastDeferringStep(AbstractBuild<?, ?> build)
+    {
+        if(!(build.getProject() instanceof Project))
+        {
+            return true;
+        }
+        List<Builder> builders = ((Project<?, ?>)build.getProject()).getBuildersList().toList();
+        int index = builders.indexOf(this);
+        if(index < 0)
+        {
+            return true;
+        }
+        for(int i = index + 1; i < builders.size(); ++i)
+        {
+            Builder builder = builders.get(i);
+            if(builder instanceof JobcopyBuilder
+                    && ((JobcopyBuilder)builder).isDeferCommit()
+                    && !((JobcopyBuilder)builder).isRecursive())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Applies operations to a configuration XML, on the agent if configured.
+     * 
+     * @param build                 the build.
+     * @param jobcopyOperationList  operations to apply.
+     * @param xmlString             the XML string.
+     * @param encoding              the encoding of the XML.
+     * @param env                   Variables defined in the build.
+     * @param listener              the listener.
+     * @return modified XML string. Returns null if an error occurs.
+     * @throws IOException failed to compute variables or to communicate with the agent.
+     * @throws InterruptedException interrupted while computing variables or waiting for the agent.
+     */
+    private String transform(AbstractBuild<?, ?> build, List<JobcopyOperation> jobcopyOperationList,
+            String xmlString, String encoding, LazyEnvironment env, BuildListener listener)
+        throws IOException, InterruptedException
+    {
+        VirtualChannel channel = null;
+        if(isTransformOnAgent() && !jobcopyOperationList.isEmpty())
+        {
+            channel = getAgentChannel(build);
+            if(channel != null && !JobcopyConfiguration.get().isTransformOnAgents())
+            {
+                listener.getLogger().println("Transforming on agents is not allowed in the system configuration: transforming on the controller.");
+                channel = null;
+            }
+            else if(channel == null)
+            {
+                listener.getLogger().println("No agents available: transforming on the controller.");
+            }
+            else if(!RemoteTransformation.isApplicable(jobcopyOperationList))
+            {
+                listener.getLogger().println("Some operations cannot be sent to agents: transforming on the controller.");
+                channel = null;
+            }
+        }
+        if(channel == null)
+        {
+            // Copies in parallel share the memory of the controller.
+            CopyAdmission.Ticket admission = CopyAdmission.get().admit(jobcopyOperationList, xmlString, listener.getLogger());
+            if(admission == null)
+            {
+                return null;
             }
-            
             try
             {
-                target.updateByXml((Source)new StreamSource(is));
+                return OperationChain.apply(
+                        jobcopyOperationList,
+                        xmlString,
+                        encoding,
+                        env,
+                        listener.getLogger(),
+                        admission.isStreaming()
+                );
             }
-            catch(IOException e)
+            finally
             {
-                if (Jenkins.getInstance().getPlugin("matrix-project") != null)
-                {
-                    if(combinationFilter != null)
-                    {
-                        // recover combinationFilter.
-                        MatrixProject matrix = (MatrixProject)target;
-                        matrix.setCombinationFilter(combinationFilter);
-                    }
-                    throw e;
-                }
+                admission.release();
+            }
+        }
+        
+        boolean environmentDependent = false;
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            if(operation.isEnvironmentDependent())
+            {
+                environmentDependent = true;
+                break;
             }
         }
+        listener.getLogger().println(String.format("Transforming on %s...", build.getBuiltOnStr()));
+        String result = channel.call(new RemoteTransformation(
+                jobcopyOperationList,
+                xmlString,
+                encoding,
+                environmentDependent?env.get():new EnvVars(),
+                listener
+        ));
+        // The result is written with the authority of the controller.
+        if(result != null && !RemoteTransformation.isValidResult(xmlString, result))
+        {
+            listener.getLogger().println(String.format("Error: %s sent back an invalid configuration.", build.getBuiltOnStr()));
+            return null;
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the channel to the agent the build runs on.
+     * 
+     * @param build the build.
+     * @return the channel. null if the build runs on the controller, or the agent is offline.
+     */
+    private static VirtualChannel getAgentChannel(AbstractBuild<?, ?> build)
+    {
+        Node node = build.getBuiltOn();
+        if(node == null || node instanceof Jenkins)
+        {
+            return null;
+        }
+        Computer computer = node.toComputer();
+        return (computer != null)?computer.getChannel():null;
+    }
+    
+    /**
+     * Applies operations to a configuration XML.
+     * 
+     * Variables are computed only when operations refer them.
+     * 
+     * @param jobcopyOperationList  operations to apply. may be null.
+     * @param xmlString             the XML string.
+     * @param encoding              the encoding of the XML.
+     * @param env                   Variables defined in the build.
+     * @param logger                The output stream to log.
+     * @return modified XML string. Returns null if an error occurs.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    static String applyOperations(List<JobcopyOperation> jobcopyOperationList, String xmlString, String encoding, LazyEnvironment env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        return OperationChain.apply(jobcopyOperationList, xmlString, encoding, env, logger);
+    }
+    
+    /**
+     * Applies operations to a configuration XML.
+     * 
+     * @param jobcopyOperationList  operations to apply. may be null.
+     * @param xmlString             the XML string.
+     * @param encoding              the encoding of the XML.
+     * @param env                   Variables to apply operations with.
+     * @param logger                The output stream to log.
+     * @return modified XML string. Returns null if an error occurs.
+     */
+    static String applyOperations(List<JobcopyOperation> jobcopyOperationList, String xmlString, String encoding, EnvVars env, PrintStream logger)
+    {
+        try
+        {
+            return OperationChain.apply(jobcopyOperationList, xmlString, encoding, LazyEnvironment.of(env), logger);
+        }
+        catch(IOException e)
+        {
+            logger.println("Failed to apply operations");
+            e.printStackTrace(logger);
+            return null;
+        }
+        catch(InterruptedException e)
+        {
+            // never happens as variables are already computed.
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Returns the fingerprint of all inputs of a copy.
+     * 
+     * Computed from the job copied from and its configuration,
+     * operations with variables expanded and inputs of additional filesets.
+     * Inputs are read, but not parsed nor processed.
+     * 
+     * @param fromJob               the job copied from.
+     * @param xmlString             the configuration of the job copied from.
+     * @param encoding              the encoding of the configuration.
+     * @param operationHash         the hash of operations with variables expanded.
+     * @param additionalFilesetList additional filesets to copy.
+     * @param env                   Variables defined in the build.
+     * @return hex string of the fingerprint. null if failed to read inputs.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     * @see LineageIndex#isUpToDate(Item, String)
+     */
+    static String fingerprint(TopLevelItem fromJob, String xmlString, String encoding, String operationHash,
+            List<AdditionalFileset> additionalFilesetList, LazyEnvironment env)
+        throws IOException, InterruptedException
+    {
+        StringBuilder inputs = new StringBuilder();
+        inputs.append(fromJob.getFullName()).append('\n');
+        inputs.append(encoding).append('\n');
+        inputs.append(LineageIndex.digest(xmlString)).append('\n');
+        inputs.append(operationHash).append('\n');
+        for(AdditionalFileset fileset: additionalFilesetList)
+        {
+            String filesetHash = fileset.fingerprint(fromJob, env);
+            if(filesetHash == null)
+            {
+                return null;
+            }
+            inputs.append(filesetHash).append('\n');
+        }
+        return LineageIndex.digest(inputs.toString());
+    }
+    
+    /**
+     * Returns the stream to read a XML string as bytes.
+     * 
+     * @param xmlString the XML string.
+     * @param encoding  the encoding of the XML.
+     * @return the stream.
+     * @throws UnsupportedEncodingException the encoding is not supported.
+     */
+    static InputStream toInputStream(String xmlString, String encoding)
+        throws UnsupportedEncodingException
+    {
+        return new ByteArrayInputStream(xmlString.getBytes(encoding));
+    }
+    
+    /**
+     * Overwrites the configuration of an existing item.
+     * 
+     * @param target    the item to update.
+     * @param xmlString the new configuration.
+     * @param encoding  the encoding of the XML.
+     * @throws IOException failed to update.
+     */
+    static void updateByXml(AbstractItem target, String xmlString, String encoding)
+        throws IOException
+    {
+        InputStream is = toInputStream(xmlString, encoding);
         
-        boolean failed = false;
+        String combinationFilter = null;
+        if (Jenkins.getInstance().getPlugin("matrix-project") != null)
+        {
+            if(target instanceof MatrixProject)
+            {
+                MatrixProject matrix = (MatrixProject)target;
+                // Workaround for the case combinationFilter is removed.
+                // In that case, updateByXml does not update combinationFilter,
+                // for combinationFilter is not written in XML.
+                // So reset it here in advance. 
+                // It will be overwritten if defined.
+                combinationFilter = matrix.getCombinationFilter();
+                matrix.setCombinationFilter(null);
+            }
+        }
         
-        if(getAdditionalFilesetList() != null && !getAdditionalFilesetList().isEmpty())
+        try
+        {
+            target.updateByXml((Source)new StreamSource(is));
+        }
+        catch(IOException e)
         {
-            listener.getLogger().println("Copying Additional Files...");
-            for(AdditionalFileset fileset: getAdditionalFilesetList())
+            if (Jenkins.getInstance().getPlugin("matrix-project") != null)
             {
-                if(!fileset.perform(toJob, fromJob, env, listener.getLogger()))
+                if(combinationFilter != null)
                 {
-                    failed = true;
+                    // recover combinationFilter.
+                    MatrixProject matrix = (MatrixProject)target;
+                    matrix.setCombinationFilter(combinationFilter);
                 }
+                throw e;
             }
-            
-            // Do null update to reload the configuration.
-            AbstractItem target = (AbstractItem)toJob;
-            target.updateByXml((Source)new StreamSource(target.getConfigFile().readRaw()));
+        }
+    }
+    
+    /**
+     * Reads additional files, and stages them to the transaction.
+     * 
+     * @param additionalFilesetList sets of files to copy. may be null.
+     * @param transaction           the transaction to stage files to.
+     * @param toDir                 the directory of the item copied to. null if not created yet.
+     * @param fromJob               the item copied from.
+     * @param env                   Variables defined in the build.
+     * @param logger                The output stream to log.
+     * @return whether all files are processed successfully.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    static boolean stageAdditionalFiles(List<AdditionalFileset> additionalFilesetList, CopyTransaction transaction, File toDir, TopLevelItem fromJob, LazyEnvironment env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        if(additionalFilesetList == null || additionalFilesetList.isEmpty())
+        {
+            return true;
         }
         
-        // add the information of jobs copied from and to to the build.
-        build.addAction(new CopiedjobinfoAction(fromJob, toJob, failed));
+        boolean succeeded = true;
+        logger.println("Copying Additional Files...");
+        for(AdditionalFileset fileset: additionalFilesetList)
+        {
+            if(!fileset.stage(transaction, toDir, fromJob, env, logger))
+            {
+                succeeded = false;
+            }
+        }
         
-        return true;
+        return succeeded;
     }
     
     /**
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+
+/**
+ * System wide configurations of Jobcopy Builder.
+ */
+@Extension
+public class JobcopyConfiguration extends GlobalConfiguration
+{
+    private static final int DEFAULT_PROPAGATION_DELAY = 30;
+
+    private static final int DEFAULT_MAX_PROPAGATION_DELAY = 300;
+
+    private boolean autoPropagation = false;
+
+    private int propagationDelay = DEFAULT_PROPAGATION_DELAY;
+
+    private int maxPropagationDelay = DEFAULT_MAX_PROPAGATION_DELAY;
+
+    private boolean transformOnAgents = false;
+
+    /**
+     * Returns the instance.
+     *
+     * @return the instance.
+     */
+    public static JobcopyConfiguration get()
+    {
+        return ExtensionList.lookupSingleton(JobcopyConfiguration.class);
+    }
+
+    /**
+     * constructor.
+     */
+    public JobcopyConfiguration()
+    {
+        load();
+    }
+
+    /**
+     * Returns whether to propagate templates to derived jobs automatically when templates are saved.
+     *
+     * @return whether to propagate templates automatically.
+     */
+    public boolean isAutoPropagation()
+    {
+        return autoPropagation;
+    }
+
+    /**
+     * @param autoPropagation whether to propagate templates automatically.
+     */
+    @DataBoundSetter
+    public void setAutoPropagation(boolean autoPropagation)
+    {
+        this.autoPropagation = autoPropagation;
+        save();
+    }
+
+    /**
+     * Returns seconds to wait after a template is saved before propagating.
+     *
+     * Saves during the wait restart the wait,
+     * and the template is propagated once for all of them.
+     * The wait is not restarted after {@link #getMaxPropagationDelay()}.
+     *
+     * @return seconds to wait.
+     */
+    public int getPropagationDelay()
+    {
+        return propagationDelay;
+    }
+
+    /**
+     * @param propagationDelay seconds to wait.
+     */
+    @DataBoundSetter
+    public void setPropagationDelay(int propagationDelay)
+    {
+        this.propagationDelay = Math.max(0, propagationDelay);
+        save();
+    }
+
+    /**
+     * Returns seconds to wait at most after a template is saved first before propagating.
+     *
+     * Not to postpone propagation forever for a template saved continuously.
+     *
+     * @return seconds to wait at most. 0 not to limit.
+     */
+    public int getMaxPropagationDelay()
+    {
+        return maxPropagationDelay;
+    }
+
+    /**
+     * @param maxPropagationDelay seconds to wait at most. 0 not to limit.
+     */
+    @DataBoundSetter
+    public void setMaxPropagationDelay(int maxPropagationDelay)
+    {
+        this.maxPropagationDelay = Math.max(0, maxPropagationDelay);
+        save();
+    }
+
+    /**
+     * Returns whether copies are allowed to apply operations on agents.
+     *
+     * Results from agents are written with the authority of the controller,
+     * so only administrators can allow this.
+     *
+     * @return whether to allow applying operations on agents.
+     * @see JobcopyBuilder#isTransformOnAgent()
+     */
+    public boolean isTransformOnAgents()
+    {
+        return transformOnAgents;
+    }
+
+    /**
+     * @param transformOnAgents whether to allow applying operations on agents.
+     */
+    @DataBoundSetter
+    public void setTransformOnAgents(boolean transformOnAgents)
+    {
+        this.transformOnAgents = transformOnAgents;
+        save();
+    }
+
+    /**
+     * Checks the input for propagationDelay.
+     *
+     * @param value the input.
+     * @return FormValidation object.
+     */
+    public FormValidation doCheckPropagationDelay(@QueryParameter String value)
+    {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    /**
+     * Checks the input for maxPropagationDelay.
+     *
+     * @param value the input.
+     * @return FormValidation object.
+     */
+    public FormValidation doCheckMaxPropagationDelay(@QueryParameter String value)
+    {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+}
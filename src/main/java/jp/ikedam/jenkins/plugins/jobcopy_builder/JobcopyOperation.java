@@ -41,6 +41,8 @@ import jenkins.model.Jenkins;
  * <ol>
  *    <li>Define a new class derived from JobcopyOperation. AbstractXmlJobcopyOperation is also available.</li>
  *    <li>Override {@link JobcopyOperation#perform(String, String, EnvVars, PrintStream)} or {@link AbstractXmlJobcopyOperation#perform(org.w3c.dom.Document, EnvVars, PrintStream)}</li>
+ *    <li>Optionally implement {@link StreamingJobcopyOperation} or {@link ByteStreamJobcopyOperation}
+ *        to be applied without converting the configuration between operations (see {@link OperationChain}).</li>
  *    <li>Define the internal public static class named DescriptorImpl, derived from Descriptor&lt;JobcopyOperation&gt;</li>
  *    <li>annotate the DescriptorImpl with Extension</li>
  * </ol>
@@ -67,5 +69,19 @@ public abstract class JobcopyOperation extends AbstractDescribableImpl<JobcopyOp
      * @return          modified XML string. Return null if an error occurs.
      */
     public abstract String perform(String xmlString, String encoding, EnvVars env, PrintStream logger);
+    
+    /**
+     * Returns whether this operation refers variables of the build.
+     * 
+     * Variables of the build are computed only when some operations refer them,
+     * and operations returning false are passed empty variables.
+     * Returns true by default, as it cannot be known whether the operation refers variables.
+     * 
+     * @return whether this operation refers variables of the build.
+     */
+    public boolean isEnvironmentDependent()
+    {
+        return true;
+    }
 }
 
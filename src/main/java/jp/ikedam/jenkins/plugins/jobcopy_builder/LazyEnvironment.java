@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+
+/**
+ * Variables of a build, computed only when needed.
+ *
+ * {@link AbstractBuild#getEnvironment(TaskListener)} runs all
+ * {@link hudson.model.EnvironmentContributor}s, and can take long.
+ * It is not needed when no job names contain variables
+ * and no operations depend on variables.
+ *
+ * Expanded values are memoized.
+ */
+public abstract class LazyEnvironment
+{
+    private EnvVars env;
+    private final Map<String, String> expanded = new HashMap<String, String>();
+
+    /**
+     * Computes variables.
+     *
+     * @return variables.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    protected abstract EnvVars compute() throws IOException, InterruptedException;
+
+    /**
+     * Returns variables, computing them at the first call.
+     *
+     * @return variables.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    public synchronized EnvVars get() throws IOException, InterruptedException
+    {
+        if(env == null)
+        {
+            env = compute();
+        }
+        return env;
+    }
+
+    /**
+     * Returns whether variables are already computed.
+     *
+     * @return whether variables are already computed.
+     */
+    public synchronized boolean isComputed()
+    {
+        return env != null;
+    }
+
+    /**
+     * Expands variables in a string.
+     *
+     * Variables are not computed if the string contains no variables.
+     *
+     * @param value the string to expand.
+     * @return the expanded string.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    public synchronized String expand(String value) throws IOException, InterruptedException
+    {
+        if(value == null || value.indexOf('$') < 0)
+        {
+            return value;
+        }
+        String result = expanded.get(value);
+        if(result == null)
+        {
+            result = get().expand(value);
+            expanded.put(value, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns variables to pass to an operation.
+     *
+     * @param operation the operation.
+     * @return variables. Empty if the operation does not depend on variables.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    public EnvVars getFor(JobcopyOperation operation) throws IOException, InterruptedException
+    {
+        return operation.isEnvironmentDependent()?get():new EnvVars();
+    }
+
+    /**
+     * Returns names of variables holding sensitive values, like passwords.
+     *
+     * Values of those variables must not be stored.
+     *
+     * @return names of sensitive variables.
+     */
+    public Set<String> getSensitiveVariables()
+    {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Wraps variables already computed.
+     *
+     * @param env variables.
+     * @return the instance.
+     */
+    public static LazyEnvironment of(final EnvVars env)
+    {
+        return new LazyEnvironment() {
+            @Override
+            protected EnvVars compute()
+            {
+                return env;
+            }
+        };
+    }
+
+    /**
+     * Variables of a build.
+     *
+     * @param build     the build.
+     * @param listener  the listener to pass to {@link AbstractBuild#getEnvironment(TaskListener)}.
+     * @return the instance.
+     */
+    public static LazyEnvironment of(final AbstractBuild<?, ?> build, final TaskListener listener)
+    {
+        return new LazyEnvironment() {
+            @Override
+            protected EnvVars compute() throws IOException, InterruptedException
+            {
+                return build.getEnvironment(listener);
+            }
+
+            @Override
+            public Set<String> getSensitiveVariables()
+            {
+                return build.getSensitiveBuildVariables();
+            }
+        };
+    }
+}
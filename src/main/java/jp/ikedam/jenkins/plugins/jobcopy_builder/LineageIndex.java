@@ -0,0 +1,549 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.AbstractItem;
+import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.util.XStream2;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Records which jobs were created from which template.
+ *
+ * Kept in memory as maps keyed with full names of jobs,
+ * so both the list of jobs derived from a template
+ * and the template of a derived job are looked up in constant time,
+ * without loading builds of jobs that copied them.
+ *
+ * Stored in JENKINS_HOME/jp.ikedam.jenkins.plugins.jobcopy_builder.LineageIndex.xml.
+ * Saves are performed in background, and multiple changes in a short time are saved at once.
+ */
+@Extension
+public class LineageIndex implements Saveable
+{
+    private static final Logger LOGGER = Logger.getLogger(LineageIndex.class.getName());
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    static
+    {
+        XSTREAM.alias("lineage-index", LineageIndex.class);
+        XSTREAM.alias("record", LineageRecord.class);
+        XSTREAM.alias("operation-set", OperationSet.class);
+    }
+
+    /**
+     * Delay to save changes, in seconds.
+     */
+    private static final long SAVE_DELAY = 5;
+
+    /**
+     * template full name to (derived full name to record).
+     */
+    private ConcurrentMap<String, ConcurrentMap<String, LineageRecord>> derivedJobs
+            = new ConcurrentHashMap<String, ConcurrentMap<String, LineageRecord>>();
+
+    /**
+     * operation hash to operations, shared by records.
+     */
+    private ConcurrentMap<String, OperationSet> operationSets = new ConcurrentHashMap<String, OperationSet>();
+
+    /**
+     * derived full name to template full name.
+     */
+    private transient ConcurrentMap<String, String> templates = new ConcurrentHashMap<String, String>();
+
+    private transient AtomicBoolean saveScheduled = new AtomicBoolean(false);
+
+    /**
+     * Returns the instance.
+     *
+     * @return the instance.
+     */
+    public static LineageIndex get()
+    {
+        return ExtensionList.lookupSingleton(LineageIndex.class);
+    }
+
+    /**
+     * constructor.
+     *
+     * Instantiated by Jenkins, and loads the saved index.
+     */
+    public LineageIndex()
+    {
+        load();
+    }
+
+    private XmlFile getConfigFile()
+    {
+        return new XmlFile(XSTREAM, new File(Jenkins.get().getRootDir(), getClass().getName() + ".xml"));
+    }
+
+    private synchronized void load()
+    {
+        XmlFile file = getConfigFile();
+        if(file.exists())
+        {
+            try
+            {
+                file.unmarshal(this);
+            }
+            catch(IOException e)
+            {
+                LOGGER.log(Level.WARNING, "Failed to load " + file, e);
+            }
+        }
+        if(derivedJobs == null)
+        {
+            derivedJobs = new ConcurrentHashMap<String, ConcurrentMap<String, LineageRecord>>();
+        }
+        if(operationSets == null)
+        {
+            operationSets = new ConcurrentHashMap<String, OperationSet>();
+        }
+        templates = new ConcurrentHashMap<String, String>();
+        for(Map.Entry<String, ConcurrentMap<String, LineageRecord>> entry: derivedJobs.entrySet())
+        {
+            for(String derived: entry.getValue().keySet())
+            {
+                templates.put(derived, entry.getKey());
+            }
+        }
+        saveScheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void save() throws IOException
+    {
+        saveScheduled.set(false);
+        removeUnusedOperationSets();
+        getConfigFile().write(this);
+        SaveableListener.fireOnChange(this, getConfigFile());
+    }
+
+    private void removeUnusedOperationSets()
+    {
+        Set<String> used = new HashSet<String>();
+        for(Map<String, LineageRecord> records: derivedJobs.values())
+        {
+            for(LineageRecord record: records.values())
+            {
+                used.add(record.getOperationHash());
+            }
+        }
+        operationSets.keySet().retainAll(used);
+    }
+
+    private void saveLater()
+    {
+        if(!saveScheduled.compareAndSet(false, true))
+        {
+            // already scheduled.
+            return;
+        }
+        Timer.get().schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                saveQuietly();
+            }
+        }, SAVE_DELAY, TimeUnit.SECONDS);
+    }
+
+    private void saveQuietly()
+    {
+        try
+        {
+            save();
+        }
+        catch(IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Failed to save the lineage index", e);
+        }
+    }
+
+    /**
+     * Saves pending changes when Jenkins shuts down.
+     */
+    @Terminator
+    public static void saveOnShutdown()
+    {
+        LineageIndex index = ExtensionList.lookup(LineageIndex.class).get(LineageIndex.class);
+        if(index != null && index.saveScheduled.get())
+        {
+            index.saveQuietly();
+        }
+    }
+
+    /**
+     * Records that a job is copied from a template.
+     *
+     * The derived job is removed from the template it was copied from before.
+     *
+     * @param template      the job copied from.
+     * @param derived       the job copied to.
+     * @param operationSet  operations applied.
+     * @param xmlString     the configuration written to the derived job.
+     * @param seedJob       the job that performed the copy. may be null.
+     * @return the new record. null if refused as operations refer sensitive variables.
+     * @see #record(Item, Item, OperationSet, String, String, String)
+     */
+    @CheckForNull
+    public LineageRecord record(@NonNull Item template, @NonNull Item derived, @NonNull OperationSet operationSet,
+            @NonNull String xmlString, @CheckForNull String seedJob)
+    {
+        return record(template, derived, operationSet, xmlString, seedJob, null);
+    }
+
+    /**
+     * Records that a job is copied from a template.
+     *
+     * The derived job is removed from the template it was copied from before.
+     * Operations referring sensitive variables are refused not to store their values,
+     * and the derived job is removed from the index as it cannot be propagated.
+     *
+     * @param template      the job copied from.
+     * @param derived       the job copied to.
+     * @param operationSet  operations applied.
+     * @param xmlString     the configuration written to the derived job.
+     * @param seedJob       the job that performed the copy. may be null.
+     * @param inputHash     the fingerprint of all inputs of the copy. may be null.
+     * @return the new record. null if refused as operations refer sensitive variables.
+     * @see #isUpToDate(Item, String)
+     * @see OperationSet#getSensitiveVariable()
+     */
+    @CheckForNull
+    public LineageRecord record(@NonNull Item template, @NonNull Item derived, @NonNull OperationSet operationSet,
+            @NonNull String xmlString, @CheckForNull String seedJob, @CheckForNull String inputHash)
+    {
+        if(operationSet.getSensitiveVariable() != null)
+        {
+            LOGGER.log(Level.INFO, "Refused to record {0} copied from {1}: operations refer a sensitive variable {2}",
+                    new Object[]{derived.getFullName(), template.getFullName(), operationSet.getSensitiveVariable()});
+            forget(derived.getFullName());
+            return null;
+        }
+        LineageRecord record = new LineageRecord(
+                template.getFullName(),
+                derived.getFullName(),
+                operationSet.getHash(),
+                digest(xmlString),
+                digestConfig(derived),
+                seedJob,
+                System.currentTimeMillis(),
+                inputHash
+        );
+        operationSets.putIfAbsent(operationSet.getHash(), operationSet);
+        put(record);
+        saveLater();
+        return record;
+    }
+
+    private synchronized void put(LineageRecord record)
+    {
+        String oldTemplate = templates.put(record.getDerivedJob(), record.getTemplateJob());
+        if(oldTemplate != null && !oldTemplate.equals(record.getTemplateJob()))
+        {
+            removeDerived(oldTemplate, record.getDerivedJob());
+        }
+        ConcurrentMap<String, LineageRecord> records = derivedJobs.get(record.getTemplateJob());
+        if(records == null)
+        {
+            records = new ConcurrentHashMap<String, LineageRecord>();
+            derivedJobs.put(record.getTemplateJob(), records);
+        }
+        records.put(record.getDerivedJob(), record);
+    }
+
+    private synchronized void forget(String derived)
+    {
+        String template = templates.remove(derived);
+        if(template != null)
+        {
+            removeDerived(template, derived);
+            saveLater();
+        }
+    }
+
+    private void removeDerived(String template, String derived)
+    {
+        ConcurrentMap<String, LineageRecord> records = derivedJobs.get(template);
+        if(records == null)
+        {
+            return;
+        }
+        records.remove(derived);
+        if(records.isEmpty())
+        {
+            derivedJobs.remove(template);
+        }
+    }
+
+    /**
+     * Returns whether a job was copied with the same inputs,
+     * and is not modified since.
+     *
+     * Only the configuration file is read, and not parsed.
+     *
+     * @param derived   the job copied to.
+     * @param inputHash the fingerprint of all inputs of the copy.
+     * @return true if copying again results no changes.
+     */
+    public boolean isUpToDate(@NonNull Item derived, @NonNull String inputHash)
+    {
+        LineageRecord record = getRecord(derived.getFullName());
+        return record != null
+                && inputHash.equals(record.getInputHash())
+                && record.getConfigHash() != null
+                && record.getConfigHash().equals(digestConfig(derived));
+    }
+
+    /**
+     * Returns operations recorded with a hash.
+     *
+     * @param operationHash the hash of operations.
+     * @return operations. null if not recorded.
+     */
+    @CheckForNull
+    public OperationSet getOperationSet(@NonNull String operationHash)
+    {
+        return operationSets.get(operationHash);
+    }
+
+    /**
+     * Returns records of jobs derived from a template.
+     *
+     * @param templateFullName the full name of the template.
+     * @return records of derived jobs. empty if no jobs are copied from the template.
+     */
+    @NonNull
+    public List<LineageRecord> getDerivedJobs(@NonNull String templateFullName)
+    {
+        Map<String, LineageRecord> records = derivedJobs.get(templateFullName);
+        if(records == null)
+        {
+            return Collections.emptyList();
+        }
+        return new ArrayList<LineageRecord>(records.values());
+    }
+
+    /**
+     * Returns whether any jobs are copied from a template.
+     *
+     * @param templateFullName the full name of the template.
+     * @return whether any jobs are copied from the template.
+     */
+    public boolean hasDerivedJobs(@NonNull String templateFullName)
+    {
+        return derivedJobs.containsKey(templateFullName);
+    }
+
+    /**
+     * Returns the record of a derived job.
+     *
+     * @param derivedFullName the full name of the derived job.
+     * @return the record. null if the job is not copied from any template.
+     */
+    @CheckForNull
+    public LineageRecord getRecord(@NonNull String derivedFullName)
+    {
+        String template = templates.get(derivedFullName);
+        if(template == null)
+        {
+            return null;
+        }
+        Map<String, LineageRecord> records = derivedJobs.get(template);
+        return (records != null)?records.get(derivedFullName):null;
+    }
+
+    private synchronized void onLocationChanged(String oldFullName, String newFullName)
+    {
+        boolean changed = false;
+
+        // as a template
+        ConcurrentMap<String, LineageRecord> records = derivedJobs.remove(oldFullName);
+        if(records != null)
+        {
+            ConcurrentMap<String, LineageRecord> newRecords = new ConcurrentHashMap<String, LineageRecord>();
+            for(LineageRecord record: records.values())
+            {
+                newRecords.put(record.getDerivedJob(), record.withTemplateJob(newFullName));
+                templates.put(record.getDerivedJob(), newFullName);
+            }
+            derivedJobs.put(newFullName, newRecords);
+            changed = true;
+        }
+
+        // as a derived job
+        String template = templates.remove(oldFullName);
+        if(template != null)
+        {
+            ConcurrentMap<String, LineageRecord> templateRecords = derivedJobs.get(template);
+            LineageRecord record = (templateRecords != null)?templateRecords.remove(oldFullName):null;
+            if(record != null)
+            {
+                templateRecords.put(newFullName, record.withDerivedJob(newFullName));
+                templates.put(newFullName, template);
+            }
+            changed = true;
+        }
+
+        if(changed)
+        {
+            saveLater();
+        }
+    }
+
+    private synchronized void onDeleted(String fullName)
+    {
+        boolean changed = false;
+
+        // as a template
+        ConcurrentMap<String, LineageRecord> records = derivedJobs.remove(fullName);
+        if(records != null)
+        {
+            for(String derived: records.keySet())
+            {
+                templates.remove(derived);
+            }
+            changed = true;
+        }
+
+        // as a derived job
+        String template = templates.remove(fullName);
+        if(template != null)
+        {
+            removeDerived(template, fullName);
+            changed = true;
+        }
+
+        if(changed)
+        {
+            saveLater();
+        }
+    }
+
+    /**
+     * Returns hex string of SHA-256 digest of the configuration file of an item.
+     *
+     * @param item the item.
+     * @return hex string of the digest. null if failed to read.
+     */
+    @CheckForNull
+    static String digestConfig(@NonNull Item item)
+    {
+        if(!(item instanceof AbstractItem))
+        {
+            return null;
+        }
+        try
+        {
+            return digest(((AbstractItem)item).getConfigFile().asString());
+        }
+        catch(IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Failed to read the configuration of " + item.getFullName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns hex string of SHA-256 digest.
+     *
+     * @param value the value to digest.
+     * @return hex string of the digest.
+     */
+    @NonNull
+    static String digest(@NonNull String value)
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(md.digest(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            // SHA-256 is always available.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keeps the index up to date when jobs are renamed, moved or deleted.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName)
+        {
+            LineageIndex.get().onLocationChanged(oldFullName, newFullName);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDeleted(Item item)
+        {
+            LineageIndex.get().onDeleted(item.getFullName());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.Date;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * A record of {@link LineageIndex}: a job was copied from a template.
+ *
+ * Immutable, and replaced with a new record for each copy.
+ */
+@ExportedBean
+public class LineageRecord
+{
+    private final String templateJob;
+    private final String derivedJob;
+    private final String operationHash;
+    private final String outputHash;
+    private final String configHash;
+    private final String seedJob;
+    private final long timestamp;
+    private final String inputHash;
+
+    /**
+     * constructor.
+     *
+     * @param templateJob   the full name of the job copied from.
+     * @param derivedJob    the full name of the job copied to.
+     * @param operationHash the hash of operations applied.
+     * @param outputHash    the hash of the configuration generated with operations.
+     * @param configHash    the hash of the configuration file of the job copied to just after the copy. may be null.
+     * @param seedJob       the full name of the job performed the copy. may be null.
+     * @param timestamp     the time copied.
+     */
+    public LineageRecord(String templateJob, String derivedJob, String operationHash,
+            String outputHash, String configHash, String seedJob, long timestamp)
+    {
+        this(templateJob, derivedJob, operationHash, outputHash, configHash, seedJob, timestamp, null);
+    }
+
+    /**
+     * constructor.
+     *
+     * @param templateJob   the full name of the job copied from.
+     * @param derivedJob    the full name of the job copied to.
+     * @param operationHash the hash of operations applied.
+     * @param outputHash    the hash of the configuration generated with operations.
+     * @param configHash    the hash of the configuration file of the job copied to just after the copy. may be null.
+     * @param seedJob       the full name of the job performed the copy. may be null.
+     * @param timestamp     the time copied.
+     * @param inputHash     the fingerprint of all inputs of the copy. may be null.
+     */
+    public LineageRecord(String templateJob, String derivedJob, String operationHash,
+            String outputHash, String configHash, String seedJob, long timestamp, String inputHash)
+    {
+        this.templateJob = templateJob;
+        this.derivedJob = derivedJob;
+        this.operationHash = operationHash;
+        this.outputHash = outputHash;
+        this.configHash = configHash;
+        this.seedJob = seedJob;
+        this.timestamp = timestamp;
+        this.inputHash = inputHash;
+    }
+
+    /**
+     * Returns the full name of the job copied from.
+     *
+     * @return the full name of the job copied from.
+     */
+    @Exported
+    public String getTemplateJob()
+    {
+        return templateJob;
+    }
+
+    /**
+     * Returns the full name of the job copied to.
+     *
+     * @return the full name of the job copied to.
+     */
+    @Exported
+    public String getDerivedJob()
+    {
+        return derivedJob;
+    }
+
+    /**
+     * Returns the hash of operations applied.
+     *
+     * Jobs with the same hash are copied with the same operations.
+     *
+     * @return the hash of operations applied.
+     */
+    @Exported
+    public String getOperationHash()
+    {
+        return operationHash;
+    }
+
+    /**
+     * Returns the hash of the configuration generated with operations.
+     *
+     * @return the hash of the configuration generated with operations.
+     */
+    public String getOutputHash()
+    {
+        return outputHash;
+    }
+
+    /**
+     * Returns the hash of the configuration file of the job copied to just after the copy.
+     *
+     * Differs from the current one if the job is modified after the copy.
+     *
+     * @return the hash of the configuration file. may be null.
+     */
+    public String getConfigHash()
+    {
+        return configHash;
+    }
+
+    /**
+     * Returns the fingerprint of all inputs of the copy.
+     *
+     * The copy results the same configuration if performed again with the same inputs.
+     *
+     * @return hex string of the fingerprint. null if not recorded.
+     * @see JobcopyBuilder#fingerprint
+     */
+    public String getInputHash()
+    {
+        return inputHash;
+    }
+
+    /**
+     * Returns the full name of the job performed the copy.
+     *
+     * @return the full name of the job performed the copy. may be null.
+     */
+    @Exported
+    public String getSeedJob()
+    {
+        return seedJob;
+    }
+
+    /**
+     * Returns the time copied.
+     *
+     * @return the time copied in milliseconds.
+     */
+    @Exported
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Returns the time copied.
+     *
+     * @return the time copied.
+     */
+    public Date getTime()
+    {
+        return new Date(timestamp);
+    }
+
+    /**
+     * Returns a copy with the template renamed.
+     *
+     * @param newTemplateJob the new full name of the template.
+     * @return the new record.
+     */
+    public LineageRecord withTemplateJob(String newTemplateJob)
+    {
+        return new LineageRecord(newTemplateJob, derivedJob, operationHash, outputHash, configHash, seedJob, timestamp, inputHash);
+    }
+
+    /**
+     * Returns a copy with the derived job renamed.
+     *
+     * @param newDerivedJob the new full name of the derived job.
+     * @return the new record.
+     */
+    public LineageRecord withDerivedJob(String newDerivedJob)
+    {
+        return new LineageRecord(templateJob, newDerivedJob, operationHash, outputHash, configHash, seedJob, timestamp, inputHash);
+    }
+}
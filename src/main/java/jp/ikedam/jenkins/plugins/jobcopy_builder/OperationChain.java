@@ -0,0 +1,673 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+
+import org.apache.commons.lang.StringUtils;
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Applies a list of operations to a configuration.
+ *
+ * Operations are applied to the representation they support
+ * ({@link ByteStreamJobcopyOperation}, {@link StreamingJobcopyOperation}, {@link DomJobcopyOperation}),
+ * and the configuration is converted only when the next operation does not support the current one.
+ * Each operation is applied with the representation shared with the most following operations,
+ * the cheaper one for a tie.
+ * So a chain of {@link AbstractXmlJobcopyOperation}s parses and serializes the configuration only once,
+ * instead of once for each operation.
+ * Operations supporting none of them are applied with
+ * {@link JobcopyOperation#perform(String, String, EnvVars, PrintStream)}.
+ *
+ * Before applied, operations are optimized not to change the result (see {@link #optimize(List)}).
+ */
+public class OperationChain
+{
+    /**
+     * Representations of a configuration, in the order of the cost.
+     */
+    static enum Form
+    {
+        BYTES,
+        EVENTS,
+        DOM,
+        STRING,
+    }
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * Whether subclasses of {@link AbstractXmlJobcopyOperation} can be applied to a shared document.
+     */
+    private static final Map<Class<?>, Boolean> DOM_APPLICABLE = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private static XMLInputFactory createInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private OperationChain()
+    {
+    }
+
+    /**
+     * Returns representations an operation can be applied to.
+     *
+     * @param operation the operation.
+     * @return representations. Always contains {@link Form#STRING}.
+     */
+    static Set<Form> getForms(JobcopyOperation operation)
+    {
+        Set<Form> forms = EnumSet.of(Form.STRING);
+        if(operation instanceof ByteStreamJobcopyOperation)
+        {
+            forms.add(Form.BYTES);
+        }
+        if(operation instanceof StreamingJobcopyOperation)
+        {
+            forms.add(Form.EVENTS);
+        }
+        if(operation instanceof DomJobcopyOperation && isDomApplicable(operation.getClass()))
+        {
+            forms.add(Form.DOM);
+        }
+        return forms;
+    }
+
+    /**
+     * Returns whether all operations can be applied without holding DOMs.
+     *
+     * @param jobcopyOperationList operations.
+     * @return whether all operations support {@link ByteStreamJobcopyOperation} or {@link StreamingJobcopyOperation}.
+     */
+    static boolean isStreamable(List<JobcopyOperation> jobcopyOperationList)
+    {
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            Set<Form> forms = getForms(operation);
+            if(!forms.contains(Form.BYTES) && !forms.contains(Form.EVENTS))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Subclasses of {@link AbstractXmlJobcopyOperation} overriding
+     * {@link AbstractXmlJobcopyOperation#perform(String, String, EnvVars, PrintStream)}
+     * are applied with it, not to skip what they do in it.
+     */
+    private static boolean isDomApplicable(Class<?> clazz)
+    {
+        if(!AbstractXmlJobcopyOperation.class.isAssignableFrom(clazz))
+        {
+            return true;
+        }
+        Boolean applicable = DOM_APPLICABLE.get(clazz);
+        if(applicable == null)
+        {
+            try
+            {
+                applicable = (clazz.getMethod(
+                        "perform",
+                        String.class,
+                        String.class,
+                        EnvVars.class,
+                        PrintStream.class
+                ).getDeclaringClass() == AbstractXmlJobcopyOperation.class);
+            }
+            catch(NoSuchMethodException e)
+            {
+                // never happens
+                throw new IllegalStateException(e);
+            }
+            DOM_APPLICABLE.put(clazz, applicable);
+        }
+        return applicable;
+    }
+
+    /**
+     * Decides the representation to apply each operation with.
+     *
+     * @param jobcopyOperationList operations.
+     * @return representations for each operation.
+     */
+    static List<Form> plan(List<JobcopyOperation> jobcopyOperationList)
+    {
+        return plan(jobcopyOperationList, false);
+    }
+
+    /**
+     * Decides the representation to apply each operation with.
+     *
+     * @param jobcopyOperationList operations.
+     * @param streaming not to hold DOMs, even if operations support them.
+     * @return representations for each operation.
+     */
+    static List<Form> plan(List<JobcopyOperation> jobcopyOperationList, boolean streaming)
+    {
+        List<Set<Form>> formsList = new ArrayList<Set<Form>>(jobcopyOperationList.size());
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            Set<Form> forms = getForms(operation);
+            if(streaming)
+            {
+                forms.remove(Form.DOM);
+            }
+            formsList.add(forms);
+        }
+
+        List<Form> plan = new ArrayList<Form>(formsList.size());
+        Form current = Form.STRING;
+        for(int i = 0; i < formsList.size(); ++i)
+        {
+            Set<Form> forms = formsList.get(i);
+            if(current != Form.STRING && forms.contains(current))
+            {
+                plan.add(current);
+                continue;
+            }
+            Form best = Form.STRING;
+            int bestRun = 0;
+            for(Form form: forms)
+            {
+                if(form == Form.STRING)
+                {
+                    continue;
+                }
+                int run = 1;
+                while(i + run < formsList.size() && formsList.get(i + run).contains(form))
+                {
+                    ++run;
+                }
+                // forms are iterated in the order of the cost.
+                if(run > bestRun)
+                {
+                    best = form;
+                    bestRun = run;
+                }
+            }
+            plan.add(best);
+            current = best;
+        }
+        return plan;
+    }
+
+    /**
+     * Removes redundant operations.
+     *
+     * <ul>
+     *     <li>{@link ReplaceOperation}s replacing a string with the same string are removed.</li>
+     *     <li>{@link EnableOperation}s and {@link DisableOperation}s overwritten by a later one are removed,
+     *         if only {@link ReplaceOperation}s are between them.
+     *         Those replaces change only texts, which the later one overwrites.</li>
+     *     <li>Adjacent {@link ReplaceOperation}s are fused to walk the document only once.</li>
+     * </ul>
+     * Subclasses are not optimized, as they may behave differently.
+     *
+     * @param jobcopyOperationList operations.
+     * @return optimized operations. The same instance if nothing is optimized.
+     */
+    static List<JobcopyOperation> optimize(List<JobcopyOperation> jobcopyOperationList)
+    {
+        boolean optimized = false;
+
+        // Drop no-ops and overwritten flags, scanning from the last.
+        List<JobcopyOperation> alive = new ArrayList<JobcopyOperation>(jobcopyOperationList.size());
+        boolean flagOverwritten = false;
+        for(int i = jobcopyOperationList.size() - 1; i >= 0; --i)
+        {
+            JobcopyOperation operation = jobcopyOperationList.get(i);
+            if(isFlagOperation(operation))
+            {
+                if(flagOverwritten)
+                {
+                    optimized = true;
+                    continue;
+                }
+                flagOverwritten = true;
+            }
+            else if(operation.getClass() == ReplaceOperation.class)
+            {
+                if(((ReplaceOperation)operation).isNoop())
+                {
+                    optimized = true;
+                    continue;
+                }
+            }
+            else
+            {
+                flagOverwritten = false;
+            }
+            alive.add(operation);
+        }
+        Collections.reverse(alive);
+
+        // Fuse adjacent replaces.
+        List<JobcopyOperation> fused = new ArrayList<JobcopyOperation>(alive.size());
+        List<ReplaceOperation> replaces = new ArrayList<ReplaceOperation>();
+        for(JobcopyOperation operation: alive)
+        {
+            if(operation.getClass() == ReplaceOperation.class)
+            {
+                replaces.add((ReplaceOperation)operation);
+                continue;
+            }
+            optimized |= flushReplaces(replaces, fused);
+            fused.add(operation);
+        }
+        optimized |= flushReplaces(replaces, fused);
+
+        return optimized?fused:jobcopyOperationList;
+    }
+
+    private static boolean isFlagOperation(JobcopyOperation operation)
+    {
+        return operation.getClass() == EnableOperation.class
+                || operation.getClass() == DisableOperation.class;
+    }
+
+    /**
+     * @return whether replaces are fused.
+     */
+    private static boolean flushReplaces(List<ReplaceOperation> replaces, List<JobcopyOperation> out)
+    {
+        boolean fused = false;
+        if(replaces.size() == 1)
+        {
+            out.add(replaces.get(0));
+        }
+        else if(replaces.size() > 1)
+        {
+            out.add(new ReplaceOperation.Fused(replaces));
+            fused = true;
+        }
+        replaces.clear();
+        return fused;
+    }
+
+    /**
+     * Describes operations to log.
+     *
+     * @param jobcopyOperationList operations.
+     * @return the description.
+     */
+    static String describe(List<JobcopyOperation> jobcopyOperationList)
+    {
+        List<String> names = new ArrayList<String>(jobcopyOperationList.size());
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            if(operation instanceof ReplaceOperation.Fused)
+            {
+                names.add(String.format(
+                        "%s x%d",
+                        ReplaceOperation.class.getSimpleName(),
+                        ((ReplaceOperation.Fused)operation).getOperations().size()
+                ));
+            }
+            else
+            {
+                names.add(operation.getClass().getSimpleName());
+            }
+        }
+        return StringUtils.join(names, ", ");
+    }
+
+    /**
+     * Applies operations to a configuration XML.
+     *
+     * @param jobcopyOperationList  operations to apply. may be null.
+     * @param xmlString             the XML string.
+     * @param encoding              the encoding of the XML.
+     * @param env                   Variables to apply operations with.
+     * @param logger                The output stream to log.
+     * @return modified XML string. Returns null if an error occurs.
+     * @throws IOException failed to compute variables, or an operation failed to read or write.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    public static String apply(List<JobcopyOperation> jobcopyOperationList, String xmlString, String encoding, LazyEnvironment env, PrintStream logger)
+        throws IOException, InterruptedException
+    {
+        return apply(jobcopyOperationList, xmlString, encoding, env, logger, false);
+    }
+
+    /**
+     * Applies operations to a configuration XML.
+     *
+     * @param jobcopyOperationList  operations to apply. may be null.
+     * @param xmlString             the XML string.
+     * @param encoding              the encoding of the XML.
+     * @param env                   Variables to apply operations with.
+     * @param logger                The output stream to log.
+     * @param streaming             not to hold DOMs. See {@link #plan(List, boolean)}.
+     * @return modified XML string. Returns null if an error occurs.
+     * @throws IOException failed to compute variables, or an operation failed to read or write.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    public static String apply(List<JobcopyOperation> jobcopyOperationList, String xmlString, String encoding, LazyEnvironment env, PrintStream logger,
+            boolean streaming)
+        throws IOException, InterruptedException
+    {
+        if(jobcopyOperationList == null || jobcopyOperationList.isEmpty())
+        {
+            return xmlString;
+        }
+        List<JobcopyOperation> optimized = optimize(jobcopyOperationList);
+        if(optimized != jobcopyOperationList)
+        {
+            logger.println(String.format(
+                    "Optimized %d operations to %d: %s",
+                    jobcopyOperationList.size(),
+                    optimized.size(),
+                    describe(optimized)
+            ));
+            jobcopyOperationList = optimized;
+        }
+        List<Form> plan = plan(jobcopyOperationList, streaming);
+        Content content = new Content(xmlString, encoding);
+        try
+        {
+            for(int i = 0; i < jobcopyOperationList.size(); ++i)
+            {
+                JobcopyOperation operation = jobcopyOperationList.get(i);
+                CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.OPERATION);
+                boolean succeeded = false;
+                try
+                {
+                    if(event.isEnabled())
+                    {
+                        event.setDetail(describe(Collections.singletonList(operation)));
+                        event.setInputBytes(content.size());
+                    }
+                    succeeded = content.apply(operation, plan.get(i), env.getFor(operation), logger);
+                    if(event.isEnabled())
+                    {
+                        event.setOutputBytes(content.size());
+                    }
+                }
+                finally
+                {
+                    event.commit(succeeded);
+                }
+                if(!succeeded)
+                {
+                    return null;
+                }
+            }
+            return content.toXmlString();
+        }
+        catch(XMLStreamException e)
+        {
+            logger.print("Error occured in XML operation");
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+
+    /**
+     * A configuration in one of representations.
+     */
+    private static class Content
+    {
+        private final String encoding;
+        private Form form = Form.STRING;
+        private String xmlString;
+        private byte[] bytes;
+        private Document doc;
+        private String parsedFrom;
+        private XMLEventReader events;
+
+        public Content(String xmlString, String encoding)
+        {
+            this.xmlString = xmlString;
+            this.encoding = encoding;
+        }
+
+        /**
+         * @return false if the operation failed.
+         */
+        public boolean apply(JobcopyOperation operation, Form to, EnvVars env, PrintStream logger)
+            throws XMLStreamException, IOException
+        {
+            switch(to)
+            {
+            case BYTES:
+                {
+                    byte[] input = toBytes();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+                    if(!((ByteStreamJobcopyOperation)operation).perform(
+                            new ByteArrayInputStream(input), out, encoding, env, logger))
+                    {
+                        return false;
+                    }
+                    set(out.toByteArray());
+                    return true;
+                }
+            case EVENTS:
+                {
+                    XMLEventReader reader = ((StreamingJobcopyOperation)operation).perform(toEvents(), env, logger);
+                    if(reader == null)
+                    {
+                        return false;
+                    }
+                    events = reader;
+                    return true;
+                }
+            case DOM:
+                {
+                    Document input = toDocument(logger);
+                    if(input == null)
+                    {
+                        return false;
+                    }
+                    Document output = ((DomJobcopyOperation)operation).perform(input, env, logger);
+                    if(output == null)
+                    {
+                        // It seems that an error occurred in XML processing.
+                        return false;
+                    }
+                    doc = output;
+                    return true;
+                }
+            default:
+                {
+                    String output = operation.perform(toXmlString(), encoding, env, logger);
+                    if(output == null)
+                    {
+                        return false;
+                    }
+                    set(output);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Returns the size of the configuration to record to {@link CopyEvents}.
+         *
+         * @return the size in bytes. -1 if not serialized.
+         */
+        public long size()
+        {
+            switch(form)
+            {
+            case STRING:
+                return CopyEvents.utf8Length(xmlString);
+            case BYTES:
+                return bytes.length;
+            default:
+                return -1;
+            }
+        }
+
+        private void set(String xmlString)
+        {
+            clear();
+            this.form = Form.STRING;
+            this.xmlString = xmlString;
+        }
+
+        private void set(byte[] bytes)
+        {
+            clear();
+            this.form = Form.BYTES;
+            this.bytes = bytes;
+        }
+
+        private void clear()
+        {
+            xmlString = null;
+            bytes = null;
+            doc = null;
+            parsedFrom = null;
+            events = null;
+        }
+
+        public String toXmlString()
+            throws XMLStreamException, UnsupportedEncodingException
+        {
+            switch(form)
+            {
+            case BYTES:
+                set(decode(bytes, encoding));
+                break;
+            case EVENTS:
+                {
+                    StringWriter buf = new StringWriter();
+                    XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(buf);
+                    writer.add(events);
+                    writer.close();
+                    set(buf.toString());
+                }
+                break;
+            case DOM:
+                try
+                {
+                    set(FormatPreservingXmlSerializer.serialize(parsedFrom, doc));
+                }
+                catch(TransformerException e)
+                {
+                    throw new XMLStreamException(e);
+                }
+                break;
+            default:
+                break;
+            }
+            return xmlString;
+        }
+
+        private byte[] toBytes()
+            throws XMLStreamException, UnsupportedEncodingException
+        {
+            if(form != Form.BYTES)
+            {
+                set(encode(toXmlString(), encoding));
+            }
+            return bytes;
+        }
+
+        private XMLEventReader toEvents()
+            throws XMLStreamException, UnsupportedEncodingException
+        {
+            if(form != Form.EVENTS)
+            {
+                XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(toXmlString()));
+                clear();
+                form = Form.EVENTS;
+                events = reader;
+            }
+            return events;
+        }
+
+        private Document toDocument(PrintStream logger)
+            throws XMLStreamException, UnsupportedEncodingException
+        {
+            if(form != Form.DOM)
+            {
+                String source = toXmlString();
+                Document parsed;
+                try
+                {
+                    parsed = AbstractXmlJobcopyOperation.getXmlDocumentFromString(source, encoding, logger);
+                }
+                catch(Exception e)
+                {
+                    logger.print("Error occured in XML operation");
+                    e.printStackTrace(logger);
+                    return null;
+                }
+                clear();
+                form = Form.DOM;
+                doc = parsed;
+                parsedFrom = source;
+            }
+            return doc;
+        }
+    }
+
+    @SuppressFBWarnings("DM_DEFAULT_ENCODING")
+    private static byte[] encode(String str, @CheckForNull String encoding)
+        throws UnsupportedEncodingException
+    {
+        return (encoding != null)?str.getBytes(encoding):str.getBytes();
+    }
+
+    @SuppressFBWarnings("DM_DEFAULT_ENCODING")
+    private static String decode(byte[] bytes, @CheckForNull String encoding)
+        throws UnsupportedEncodingException
+    {
+        return (encoding != null)?new String(bytes, encoding):new String(bytes);
+    }
+}
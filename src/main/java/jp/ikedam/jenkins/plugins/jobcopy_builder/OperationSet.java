@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import hudson.model.Items;
+import hudson.util.Secret;
+
+/**
+ * Operations applied in a copy, with values of variables they refer.
+ *
+ * Holds everything needed to apply the same operations again without the build performed the copy.
+ * Stored in {@link LineageIndex}, shared by all the jobs copied with the same operations.
+ * Values of variables are stored encrypted,
+ * and operations referring sensitive variables are not stored at all.
+ */
+public class OperationSet
+{
+    /**
+     * Variable expressions, same to ones {@link hudson.Util#replaceMacro(String, java.util.Map)} handles.
+     */
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$([A-Za-z0-9_]+|\\{([A-Za-z0-9_.]+)\\})");
+
+    private final List<JobcopyOperation> jobcopyOperationList;
+    private Map<String, Secret> secretVariables;
+    private final String hash;
+    private final transient String sensitiveVariable;
+
+    /**
+     * Values of variables in plain text, only read from the index stored in older versions.
+     */
+    @Deprecated
+    private Map<String, String> variables;
+
+    private OperationSet(List<JobcopyOperation> jobcopyOperationList, Map<String, Secret> secretVariables, String hash,
+            String sensitiveVariable)
+    {
+        this.jobcopyOperationList = jobcopyOperationList;
+        this.secretVariables = secretVariables;
+        this.hash = hash;
+        this.sensitiveVariable = sensitiveVariable;
+    }
+
+    private Object readResolve()
+    {
+        if(variables != null)
+        {
+            // encrypted when the index is saved next time.
+            secretVariables = new TreeMap<String, Secret>();
+            for(Map.Entry<String, String> entry: variables.entrySet())
+            {
+                secretVariables.put(entry.getKey(), Secret.fromString(entry.getValue()));
+            }
+            variables = null;
+        }
+        return this;
+    }
+
+    /**
+     * Creates an operation set.
+     *
+     * Only variables referred from operations depending on variables are recorded,
+     * and variables are not computed if no operations depend on them.
+     * The hash is computed from the operations with the variables expanded,
+     * so the same operations with different variable values results different hashes.
+     * If operations refer sensitive variables, no variables are recorded,
+     * and the operation set is marked not to be stored. See {@link #getSensitiveVariable()}.
+     *
+     * @param jobcopyOperationList operations. may be null.
+     * @param env variables defined in the build.
+     * @return the operation set.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    @NonNull
+    public static OperationSet create(@CheckForNull List<JobcopyOperation> jobcopyOperationList, @NonNull LazyEnvironment env)
+        throws IOException, InterruptedException
+    {
+        List<JobcopyOperation> operations = (jobcopyOperationList != null)
+                ?new ArrayList<JobcopyOperation>(jobcopyOperationList)
+                :new ArrayList<JobcopyOperation>();
+        return create(operations, serialize(operations), env);
+    }
+
+    /**
+     * Serializes operations.
+     *
+     * @param jobcopyOperationList operations.
+     * @return serialized operations, in the same order.
+     */
+    @NonNull
+    static List<String> serialize(@NonNull List<JobcopyOperation> jobcopyOperationList)
+    {
+        List<String> operationXmlList = new ArrayList<String>(jobcopyOperationList.size());
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            operationXmlList.add(Items.XSTREAM2.toXML(operation));
+        }
+        return operationXmlList;
+    }
+
+    /**
+     * Creates an operation set from operations serialized in advance.
+     *
+     * @param jobcopyOperationList operations.
+     * @param operationXmlList operations serialized with {@link #serialize(List)}.
+     * @param env variables defined in the build.
+     * @return the operation set.
+     * @throws IOException failed to compute variables.
+     * @throws InterruptedException interrupted while computing variables.
+     */
+    @NonNull
+    static OperationSet create(@NonNull List<JobcopyOperation> jobcopyOperationList, @NonNull List<String> operationXmlList,
+            @NonNull LazyEnvironment env)
+        throws IOException, InterruptedException
+    {
+        Map<String, String> variables = new TreeMap<String, String>();
+        Set<String> sensitiveVariables = null;
+        String sensitiveVariable = null;
+        StringBuilder xml = new StringBuilder();
+        for(int i = 0; i < jobcopyOperationList.size(); ++i)
+        {
+            JobcopyOperation operation = jobcopyOperationList.get(i);
+            String operationXml = operationXmlList.get(i);
+            if(operation.isEnvironmentDependent())
+            {
+                Matcher m = VARIABLE_PATTERN.matcher(operationXml);
+                while(m.find())
+                {
+                    String name = (m.group(2) != null)?m.group(2):m.group(1);
+                    if(sensitiveVariables == null)
+                    {
+                        sensitiveVariables = env.getSensitiveVariables();
+                    }
+                    if(sensitiveVariable == null && sensitiveVariables.contains(name))
+                    {
+                        sensitiveVariable = name;
+                    }
+                    String value = env.get().get(name);
+                    if(value != null)
+                    {
+                        variables.put(name, value);
+                    }
+                }
+            }
+            xml.append(operationXml);
+        }
+        String hashed = variables.isEmpty()?xml.toString():new EnvVars(variables).expand(xml.toString());
+        Map<String, Secret> secretVariables = new TreeMap<String, Secret>();
+        if(sensitiveVariable == null)
+        {
+            // never stored if refers sensitive variables.
+            for(Map.Entry<String, String> entry: variables.entrySet())
+            {
+                secretVariables.put(entry.getKey(), Secret.fromString(entry.getValue()));
+            }
+        }
+        // copied not to store the list of the caller.
+        return new OperationSet(
+                new ArrayList<JobcopyOperation>(jobcopyOperationList),
+                secretVariables,
+                LineageIndex.digest(hashed),
+                sensitiveVariable
+        );
+    }
+
+    /**
+     * Returns operations.
+     *
+     * @return operations.
+     */
+    @NonNull
+    public List<JobcopyOperation> getJobcopyOperationList()
+    {
+        return (jobcopyOperationList != null)
+                ?Collections.unmodifiableList(jobcopyOperationList)
+                :Collections.<JobcopyOperation>emptyList();
+    }
+
+    /**
+     * Returns variables referred from operations.
+     *
+     * @return variables to apply operations with.
+     */
+    @NonNull
+    public EnvVars getEnvironment()
+    {
+        EnvVars env = new EnvVars();
+        if(secretVariables != null)
+        {
+            for(Map.Entry<String, Secret> entry: secretVariables.entrySet())
+            {
+                env.put(entry.getKey(), Secret.toString(entry.getValue()));
+            }
+        }
+        return env;
+    }
+
+    /**
+     * Returns a sensitive variable referred from operations.
+     *
+     * Operations referring sensitive variables, like password parameters,
+     * cannot be applied again without the build, and must not be stored.
+     *
+     * @return the name of a sensitive variable. null if no sensitive variables are referred.
+     */
+    @CheckForNull
+    public String getSensitiveVariable()
+    {
+        return sensitiveVariable;
+    }
+
+    /**
+     * Returns the hash of operations.
+     *
+     * @return hex string of the hash.
+     */
+    @NonNull
+    public String getHash()
+    {
+        return hash;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import hudson.EnvVars;
+import hudson.model.TaskListener;
+import jenkins.security.MasterToSlaveCallable;
+
+/**
+ * Applies operations to a configuration on an agent.
+ *
+ * Only the configuration, operations and variables are sent,
+ * and only the result is sent back.
+ * Files in JENKINS_HOME are read and written on the controller.
+ *
+ * The result is written with the authority of the controller,
+ * so agents must be trusted.
+ * The controller checks the result with {@link #isValidResult(String, String)}
+ * not to write what is not a configuration of the same kind of item,
+ * but cannot detect malicious changes in the configuration.
+ */
+public class RemoteTransformation extends MasterToSlaveCallable<String, RuntimeException>
+{
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<JobcopyOperation> jobcopyOperationList;
+    private final String xmlString;
+    private final String encoding;
+    private final EnvVars env;
+    private final TaskListener listener;
+
+    /**
+     * constructor.
+     *
+     * @param jobcopyOperationList  operations to apply. All of them must be {@link Serializable}.
+     * @param xmlString             the configuration.
+     * @param encoding              the encoding of the configuration.
+     * @param env                   variables to apply operations with.
+     * @param listener              the listener to log.
+     */
+    public RemoteTransformation(List<JobcopyOperation> jobcopyOperationList, String xmlString, String encoding,
+            EnvVars env, TaskListener listener)
+    {
+        this.jobcopyOperationList = new ArrayList<JobcopyOperation>(jobcopyOperationList);
+        this.xmlString = xmlString;
+        this.encoding = encoding;
+        this.env = env;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns whether operations can be sent to agents.
+     *
+     * @param jobcopyOperationList operations.
+     * @return whether all the operations are {@link Serializable}.
+     */
+    public static boolean isApplicable(List<JobcopyOperation> jobcopyOperationList)
+    {
+        for(JobcopyOperation operation: jobcopyOperationList)
+        {
+            if(!(operation instanceof Serializable))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the result sent back from an agent.
+     *
+     * @param xmlString the configuration sent to the agent.
+     * @param result    the result sent back.
+     * @return whether the result is a well-formed XML with the same root element as the configuration.
+     */
+    public static boolean isValidResult(String xmlString, String result)
+    {
+        try
+        {
+            QName root = getRootName(xmlString);
+            return root != null && root.equals(getRootName(result));
+        }
+        catch(XMLStreamException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Reads through an XML.
+     *
+     * @param xmlString the XML.
+     * @return the name of the root element. null if no root element.
+     * @throws XMLStreamException the XML is malformed.
+     */
+    private static QName getRootName(String xmlString) throws XMLStreamException
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(xmlString));
+        try
+        {
+            QName root = null;
+            while(reader.hasNext())
+            {
+                if(reader.next() == XMLStreamReader.START_ELEMENT && root == null)
+                {
+                    root = reader.getName();
+                }
+            }
+            return root;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Applies operations.
+     *
+     * @return modified XML string. null if an error occurs.
+     */
+    @Override
+    public String call()
+    {
+        try
+        {
+            return OperationChain.apply(jobcopyOperationList, xmlString, encoding, LazyEnvironment.of(env), listener.getLogger());
+        }
+        catch(IOException e)
+        {
+            listener.getLogger().println("Failed to apply operations");
+            e.printStackTrace(listener.getLogger());
+            return null;
+        }
+        catch(InterruptedException e)
+        {
+            // never happens as variables are already computed.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -25,10 +25,12 @@ package jp.ikedam.jenkins.plugins.jobcopy_builder;
 
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import hudson.EnvVars;
 import hudson.Extension;
@@ -177,6 +179,19 @@ public class ReplaceOperation extends AbstractXmlJobcopyOperation implements Ser
     }
     
     
+    /**
+     * Returns whether this operation refers variables of the build.
+     * 
+     * @return true if variables are expanded and strings contain variables.
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.JobcopyOperation#isEnvironmentDependent()
+     */
+    @Override
+    public boolean isEnvironmentDependent()
+    {
+        return (isExpandFromStr() && StringUtils.contains(getFromStr(), '$'))
+                || (isExpandToStr() && StringUtils.contains(getToStr(), '$'));
+    }
+    
     /**
      * Returns modified XML Document of the job configuration.
      * 
@@ -192,42 +207,103 @@ public class ReplaceOperation extends AbstractXmlJobcopyOperation implements Ser
     @Override
     public Document perform(Document doc, EnvVars env, PrintStream logger)
     {
-        String fromStr = getFromStr();
-        String toStr = getToStr();
-        
-        if(StringUtils.isEmpty(fromStr))
-        {
-            logger.println("From String is empty");
-            return null;
-        }
-        if(toStr == null)
-        {
-            toStr = "";
-        }
-        String expandedFromStr = isExpandFromStr()?env.expand(fromStr):fromStr;
-        String expandedToStr = isExpandToStr()?env.expand(toStr):toStr;
-        if(StringUtils.isEmpty(expandedFromStr))
+        return replace(doc, Collections.singletonList(this), env, logger);
+    }
+    
+    /**
+     * Returns whether this operation never changes the configuration.
+     * 
+     * @return true if the string is replaced with the same string regardless of variables.
+     */
+    public boolean isNoop()
+    {
+        return !StringUtils.isEmpty(getFromStr())
+                && getFromStr().equals(getToStr())
+                && !isEnvironmentDependent();
+    }
+    
+    /**
+     * Performs replaces in a single walk of the document.
+     * 
+     * Replaces are applied to each text node in order,
+     * which results the same as replacing the whole document one by one.
+     * 
+     * @param doc           XML Document of the job to be copied.
+     * @param operations    replaces to perform.
+     * @param env           Variables defined in the build.
+     * @param logger        The output stream to log.
+     * @return              modified XML Document. Return null if an error occurs.
+     */
+    static Document replace(Document doc, List<ReplaceOperation> operations, EnvVars env, PrintStream logger)
+    {
+        String[] expandedFromStrs = new String[operations.size()];
+        String[] expandedToStrs = new String[operations.size()];
+        for(int i = 0; i < operations.size(); ++i)
         {
-            logger.println("From String got to be empty");
-            return null;
+            ReplaceOperation operation = operations.get(i);
+            String fromStr = operation.getFromStr();
+            String toStr = operation.getToStr();
+            
+            if(StringUtils.isEmpty(fromStr))
+            {
+                logger.println("From String is empty");
+                return null;
+            }
+            if(toStr == null)
+            {
+                toStr = "";
+            }
+            String expandedFromStr = operation.isExpandFromStr()?env.expand(fromStr):fromStr;
+            String expandedToStr = operation.isExpandToStr()?env.expand(toStr):toStr;
+            if(StringUtils.isEmpty(expandedFromStr))
+            {
+                logger.println("From String got to be empty");
+                return null;
+            }
+            if(expandedToStr == null)
+            {
+                expandedToStr = "";
+            }
+            expandedFromStrs[i] = expandedFromStr;
+            expandedToStrs[i] = expandedToStr;
         }
-        if(expandedToStr == null)
+        
+        for(int i = 0; i < operations.size(); ++i)
         {
-            expandedToStr = "";
+            if(i > 0)
+            {
+                logger.println("");
+            }
+            logger.print("Replacing: " + expandedFromStrs[i] + " -> " + expandedToStrs[i]);
         }
-        
-        logger.print("Replacing: " + expandedFromStr + " -> " + expandedToStr);
         try
         {
-            // Retrieve all text nodes.
-            NodeList textNodeList = getNodeList(doc, "//text()");
-            
             // Perform replacing to all text nodes.
-            // NodeList does not implement Collection, and foreach is not usable.
-            for(int i = 0; i < textNodeList.getLength(); ++i)
+            // Walks the tree directly, without evaluating "//text()".
+            // CDATA sections are not replaced, as "//text()" does not retrieve them.
+            Node node = doc.getDocumentElement();
+            while(node != null)
             {
-                Node node = textNodeList.item(i);
-                node.setNodeValue(StringUtils.replace(node.getNodeValue(), expandedFromStr, expandedToStr));
+                if(node.getNodeType() == Node.TEXT_NODE)
+                {
+                    String value = node.getNodeValue();
+                    if(value != null)
+                    {
+                        String replaced = value;
+                        for(int i = 0; i < expandedFromStrs.length; ++i)
+                        {
+                            if(replaced.contains(expandedFromStrs[i]))
+                            {
+                                replaced = StringUtils.replace(replaced, expandedFromStrs[i], expandedToStrs[i]);
+                            }
+                        }
+                        if(!replaced.equals(value))
+                        {
+                            node.setNodeValue(replaced);
+                        }
+                    }
+                }
+                node = nextNode(node);
             }
             logger.println("");
             
@@ -240,5 +316,76 @@ public class ReplaceOperation extends AbstractXmlJobcopyOperation implements Ser
             return null;
         }
     }
+    
+    /**
+     * Returns the next node in the document order.
+     * 
+     * @param node  the current node.
+     * @return      the next node. null if no more nodes.
+     */
+    private static Node nextNode(Node node)
+    {
+        if(node.getFirstChild() != null)
+        {
+            return node.getFirstChild();
+        }
+        for(Node n = node; n != null && n.getNodeType() != Node.DOCUMENT_NODE; n = n.getParentNode())
+        {
+            if(n.getNextSibling() != null)
+            {
+                return n.getNextSibling();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Adjacent replaces performed in a single walk of the document.
+     * 
+     * Created only by {@link OperationChain}, and never saved.
+     */
+    static class Fused extends AbstractXmlJobcopyOperation
+    {
+        private final List<ReplaceOperation> operations;
+        
+        /**
+         * constructor.
+         * 
+         * @param operations replaces to perform in order.
+         */
+        public Fused(List<ReplaceOperation> operations)
+        {
+            this.operations = new ArrayList<ReplaceOperation>(operations);
+        }
+        
+        /**
+         * Returns replaces to perform.
+         * 
+         * @return replaces to perform in order.
+         */
+        public List<ReplaceOperation> getOperations()
+        {
+            return Collections.unmodifiableList(operations);
+        }
+        
+        @Override
+        public boolean isEnvironmentDependent()
+        {
+            for(ReplaceOperation operation: operations)
+            {
+                if(operation.isEnvironmentDependent())
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return replace(doc, operations, env, logger);
+        }
+    }
 }
 
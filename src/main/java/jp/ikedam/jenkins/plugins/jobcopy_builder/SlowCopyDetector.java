@@ -0,0 +1,233 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Detects copies taking long, and logs how long each phase of them took.
+ *
+ * A copy is slow when it takes {@code thresholdMillis} or longer in total,
+ * or any of its phases takes {@code phaseThresholdMillis} or longer.
+ * Slow copies are logged to the system log with phase timings, sizes of configurations,
+ * the number of operations and the stack of the copying thread.
+ * The stack is captured by a watchdog when the copy reaches the threshold,
+ * so it shows where the copy is stuck, not where it finished.
+ *
+ * Thresholds are set with system properties
+ * {@code jp.ikedam.jenkins.plugins.jobcopy_builder.SlowCopyDetector.thresholdMillis} (defaults to 60 seconds)
+ * and {@code jp.ikedam.jenkins.plugins.jobcopy_builder.SlowCopyDetector.phaseThresholdMillis} (defaults to 30 seconds).
+ * 0 or less disables each of them.
+ *
+ * Not thread safe except the watchdog: used only in the thread performing the copy.
+ */
+public class SlowCopyDetector
+{
+    private static final Logger LOGGER = Logger.getLogger(SlowCopyDetector.class.getName());
+
+    private static final long THRESHOLD_MILLIS = SystemProperties.getLong(
+            SlowCopyDetector.class.getName() + ".thresholdMillis",
+            60000L
+    );
+
+    private static final long PHASE_THRESHOLD_MILLIS = SystemProperties.getLong(
+            SlowCopyDetector.class.getName() + ".phaseThresholdMillis",
+            30000L
+    );
+
+    /**
+     * The number of frames logged.
+     */
+    private static final int STACK_DEPTH = 20;
+
+    private final long thresholdMillis;
+    private final long phaseThresholdMillis;
+    private final long start = System.nanoTime();
+    private long phaseStart = start;
+    private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+    private final Future<?> watchdog;
+    private volatile String stack = null;
+
+    /**
+     * Starts watching the copy performed in the current thread.
+     *
+     * @return the detector.
+     */
+    public static SlowCopyDetector start()
+    {
+        return new SlowCopyDetector(THRESHOLD_MILLIS, PHASE_THRESHOLD_MILLIS);
+    }
+
+    SlowCopyDetector(long thresholdMillis, long phaseThresholdMillis)
+    {
+        this.thresholdMillis = thresholdMillis;
+        this.phaseThresholdMillis = phaseThresholdMillis;
+        long watchMillis = Math.min(
+                (thresholdMillis > 0)?thresholdMillis:Long.MAX_VALUE,
+                (phaseThresholdMillis > 0)?phaseThresholdMillis:Long.MAX_VALUE
+        );
+        if(watchMillis == Long.MAX_VALUE)
+        {
+            watchdog = null;
+            return;
+        }
+        final long threadId = Thread.currentThread().getId();
+        watchdog = Timer.get().schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                stack = dumpThread(threadId);
+            }
+        }, watchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends a phase.
+     *
+     * The time since the previous phase ended is added to the phase.
+     *
+     * @param name the name of the phase.
+     */
+    public void phase(String name)
+    {
+        long now = System.nanoTime();
+        Long spent = phases.get(name);
+        phases.put(name, ((spent != null)?spent:0L) + (now - phaseStart));
+        phaseStart = now;
+    }
+
+    /**
+     * Ends the copy, and logs it if it is slow.
+     *
+     * The time since the last phase ended is added to the phase "other".
+     *
+     * @param fromJob           the job copied from. may be null.
+     * @param toJob             the job copied to. may be null.
+     * @param detail            what is done. may be null.
+     * @param operationCount    the number of operations. negative if unknown.
+     * @param inputBytes        the size of the original configuration. negative if unknown.
+     * @param outputBytes       the size of the copied configuration. negative if unknown.
+     * @param succeeded         the outcome.
+     * @return the time the copy took in milliseconds if slow, 0 otherwise.
+     */
+    public long finish(String fromJob, String toJob, String detail, int operationCount,
+            long inputBytes, long outputBytes, boolean succeeded)
+    {
+        if(watchdog != null)
+        {
+            watchdog.cancel(false);
+        }
+        phase("other");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        String slowPhase = null;
+        StringBuilder phaseTimings = new StringBuilder();
+        for(Map.Entry<String, Long> entry: phases.entrySet())
+        {
+            long millis = TimeUnit.NANOSECONDS.toMillis(entry.getValue());
+            if(slowPhase == null && phaseThresholdMillis > 0 && millis >= phaseThresholdMillis)
+            {
+                slowPhase = entry.getKey();
+            }
+            if(phaseTimings.length() > 0)
+            {
+                phaseTimings.append(", ");
+            }
+            phaseTimings.append(String.format("%s=%d", entry.getKey(), millis));
+        }
+        if(slowPhase == null && (thresholdMillis <= 0 || elapsedMillis < thresholdMillis))
+        {
+            return 0;
+        }
+
+        StringBuilder record = new StringBuilder();
+        record.append(String.format(
+                "Slow copy: from=%s to=%s detail=%s elapsedMillis=%d thresholdMillis=%d slowPhase=%s"
+                    + " phaseMillis=[%s] operations=%d inputBytes=%d outputBytes=%d succeeded=%s",
+                fromJob,
+                toJob,
+                detail,
+                elapsedMillis,
+                thresholdMillis,
+                slowPhase,
+                phaseTimings,
+                operationCount,
+                inputBytes,
+                outputBytes,
+                succeeded
+        ));
+        String captured = stack;
+        if(captured != null)
+        {
+            record.append("\nThread when the threshold was reached:\n");
+            record.append(captured);
+        }
+        LOGGER.warning(record.toString());
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the state and the top of the stack of a thread.
+     *
+     * @param threadId the thread.
+     * @return the excerpt of the thread dump. null if the thread is already terminated.
+     */
+    static String dumpThread(long threadId)
+    {
+        ThreadInfo info = ManagementFactory.getThreadMXBean().getThreadInfo(threadId, STACK_DEPTH);
+        if(info == null)
+        {
+            return null;
+        }
+        StringBuilder dump = new StringBuilder();
+        dump.append(String.format("\"%s\" %s", info.getThreadName(), info.getThreadState()));
+        if(info.getLockName() != null)
+        {
+            dump.append(String.format(" on %s", info.getLockName()));
+        }
+        if(info.getLockOwnerName() != null)
+        {
+            dump.append(String.format(" owned by \"%s\"", info.getLockOwnerName()));
+        }
+        dump.append('\n');
+        for(StackTraceElement element: info.getStackTrace())
+        {
+            dump.append(String.format("\tat %s\n", element));
+        }
+        if(info.getStackTrace().length >= STACK_DEPTH)
+        {
+            dump.append("\t...\n");
+        }
+        return dump.toString();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+
+/**
+ * Rewrites fixed minutes in schedules of triggers into the hash form ({@code H}).
+ *
+ * Jobs copied from the same job have the same schedules,
+ * and all of them poll SCMs or start builds at the same minute.
+ * Jenkins computes {@code H} from the full name of each job,
+ * so rewritten schedules are spread over the hour deterministically for each job copied to.
+ *
+ * Only minutes are rewritten, and the frequency is preserved:
+ * <ul>
+ *     <li>{@code 0} to {@code H}</li>
+ *     <li>{@code *}{@code /15} to {@code H/15}</li>
+ *     <li>{@code 0-29} to {@code H(0-29)}</li>
+ *     <li>{@code 0-29/10} to {@code H(0-29)/10}</li>
+ * </ul>
+ * Other forms ({@code *}, lists, {@code H} and aliases like {@code @daily}) are left as they are.
+ */
+public class SpreadTriggersOperation extends AbstractXmlJobcopyOperation implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A schedule: minute and the following four fields.
+     */
+    private static final Pattern SCHEDULE = Pattern.compile("^(\\s*)(\\S+)(\\s+\\S+\\s+\\S+\\s+\\S+\\s+\\S+\\s*)$");
+
+    private static final Pattern MINUTE = Pattern.compile("[0-5]?\\d");
+    private static final Pattern STEP = Pattern.compile("\\*/(\\d+)");
+    private static final Pattern RANGE = Pattern.compile("([0-5]?\\d-[0-5]?\\d)(/\\d+)?");
+
+    /**
+     * The internal class to work with views.
+     *
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>help.html</dt>
+     *         <dd>shown in the job configuration page, as a help of this operation.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<JobcopyOperation>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page,
+         * in the dropdown of &quot;Add Copy Operation&quot;.
+         *
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.SpreadTriggersOperation_DisplayName();
+        }
+    }
+
+    /**
+     * Constructor to initialize with the input parameters.
+     *
+     * For there's no input parameters. Nothing to do.
+     */
+    @DataBoundConstructor
+    public SpreadTriggersOperation()
+    {
+    }
+
+    /**
+     * This operation does not refer variables.
+     *
+     * @return false
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.JobcopyOperation#isEnvironmentDependent()
+     */
+    @Override
+    public boolean isEnvironmentDependent()
+    {
+        return false;
+    }
+
+    /**
+     * Returns modified XML Document of the job configuration.
+     *
+     * Rewrites schedules of triggers (//triggers/*&#47;spec),
+     * including ones of triggers of pipelines in properties.
+     *
+     * @param doc       XML Document of the job to be copied (job/NAME/config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.AbstractXmlJobcopyOperation#perform(org.w3c.dom.Document, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, EnvVars env, PrintStream logger)
+    {
+        logger.println("Spreading triggers...");
+        try
+        {
+            NodeList specNodeList = getNodeList(doc, "//triggers/*/spec");
+            for(int i = 0; i < specNodeList.getLength(); ++i)
+            {
+                Node specNode = specNodeList.item(i);
+                String spec = specNode.getTextContent();
+                String spread = spread(spec);
+                if(spread.equals(spec))
+                {
+                    continue;
+                }
+                logger.println(String.format("%s: %s -> %s", getXpath(specNode), spec, spread));
+                specNode.setTextContent(spread);
+            }
+            return doc;
+        }
+        catch(Exception e)
+        {
+            logger.print("Error occured in XML operation");
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+
+    /**
+     * Rewrites fixed minutes in a schedule.
+     *
+     * @param spec the schedule. may contain multiple lines.
+     * @return the rewritten schedule.
+     */
+    static String spread(String spec)
+    {
+        // keep line separators.
+        String[] lines = spec.split("(?<=\n)", -1);
+        StringBuilder spread = new StringBuilder(spec.length() + 8);
+        for(String line: lines)
+        {
+            String body = line;
+            String separator = "";
+            if(body.endsWith("\n"))
+            {
+                int end = (body.endsWith("\r\n"))?(body.length() - 2):(body.length() - 1);
+                separator = body.substring(end);
+                body = body.substring(0, end);
+            }
+            spread.append(spreadLine(body)).append(separator);
+        }
+        return spread.toString();
+    }
+
+    private static String spreadLine(String line)
+    {
+        if(line.trim().startsWith("#"))
+        {
+            return line;
+        }
+        Matcher m = SCHEDULE.matcher(line);
+        if(!m.matches())
+        {
+            // blank lines, TZ=..., or @daily and so on.
+            return line;
+        }
+        return m.group(1) + spreadMinute(m.group(2)) + m.group(3);
+    }
+
+    /**
+     * Rewrites a minute field.
+     *
+     * @param minute the minute field.
+     * @return the rewritten field. the same one if not rewritten.
+     */
+    static String spreadMinute(String minute)
+    {
+        if(MINUTE.matcher(minute).matches())
+        {
+            return "H";
+        }
+        Matcher m = STEP.matcher(minute);
+        if(m.matches())
+        {
+            return String.format("H/%s", m.group(1));
+        }
+        m = RANGE.matcher(minute);
+        if(m.matches())
+        {
+            return String.format("H(%s)%s", m.group(1), (m.group(2) != null)?m.group(2):"");
+        }
+        return minute;
+    }
+}
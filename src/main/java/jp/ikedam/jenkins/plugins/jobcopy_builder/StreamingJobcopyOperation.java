@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.PrintStream;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+
+import hudson.EnvVars;
+
+/**
+ * A {@link JobcopyOperation} filtering the configuration as a stream of StAX events.
+ *
+ * Consecutive operations implementing this are chained as filters,
+ * and the configuration is read and written only once for all of them
+ * without building a whole document in memory.
+ * The formatting of the configuration is not preserved by the writer.
+ * Implementations must still implement {@link JobcopyOperation#perform(String, String, EnvVars, PrintStream)}.
+ *
+ * @see OperationChain
+ * @see javax.xml.stream.XMLInputFactory#createFilteredReader(XMLEventReader, javax.xml.stream.EventFilter)
+ */
+public interface StreamingJobcopyOperation
+{
+    /**
+     * Returns the reader to read modified events.
+     *
+     * Events are read lazily: errors in reading events
+     * are thrown when the returned reader is read.
+     *
+     * @param reader    events of the configuration.
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          the reader of modified events. Return null if an error occurs.
+     * @throws XMLStreamException failed to read events.
+     */
+    public XMLEventReader perform(XMLEventReader reader, EnvVars env, PrintStream logger)
+        throws XMLStreamException;
+}
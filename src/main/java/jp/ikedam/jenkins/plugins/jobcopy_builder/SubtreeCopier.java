@@ -0,0 +1,381 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.acegisecurity.Authentication;
+
+import hudson.XmlFile;
+import hudson.model.AbstractItem;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.TopLevelItem;
+import jenkins.model.Jenkins;
+import jenkins.model.ModifiableTopLevelItemGroup;
+
+/**
+ * Copies all the items contained in a folder into another folder.
+ *
+ * Items are processed level by level:
+ * all the children of folders copied in the previous level are copied in parallel,
+ * and the next level starts after all of them finished.
+ * So the total time is proportional to the depth of the tree,
+ * not to the number of items in it.
+ *
+ * Views of folders are contained in their config.xml, and copied with them.
+ */
+public class SubtreeCopier
+{
+    private final List<JobcopyOperation> jobcopyOperationList;
+    private final List<AdditionalFileset> additionalFilesetList;
+    private final boolean overwrite;
+    private final OperationSet operationSet;
+    private final String seedJob;
+    private final LazyEnvironment env;
+    private final PrintStream logger;
+
+    /**
+     * constructor.
+     *
+     * @param jobcopyOperationList  operations applied to the configuration of each item.
+     * @param additionalFilesetList files copied for each item.
+     * @param overwrite             whether to overwrite existing items.
+     * @param operationSet          operations recorded to {@link LineageIndex}.
+     * @param seedJob               the full name of the job performing the copy.
+     * @param env                   variables defined in the build.
+     * @param logger                the output stream to log.
+     */
+    public SubtreeCopier(List<JobcopyOperation> jobcopyOperationList, List<AdditionalFileset> additionalFilesetList,
+            boolean overwrite, OperationSet operationSet, String seedJob, LazyEnvironment env, PrintStream logger)
+    {
+        this.jobcopyOperationList = jobcopyOperationList;
+        this.additionalFilesetList = additionalFilesetList;
+        this.overwrite = overwrite;
+        this.operationSet = operationSet;
+        this.seedJob = seedJob;
+        this.env = env;
+        this.logger = logger;
+    }
+
+    /**
+     * A pair of a folder copied from and the folder copied to.
+     */
+    private static class Level
+    {
+        public final ItemGroup<? extends Item> from;
+        public final ModifiableTopLevelItemGroup to;
+
+        public Level(ItemGroup<? extends Item> from, ModifiableTopLevelItemGroup to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Copies the contents of a folder.
+     *
+     * @param from  the folder to copy contents from.
+     * @param to    the folder to copy contents to.
+     * @return whether all the items were copied successfully.
+     * @throws InterruptedException interrupted while waiting for copies.
+     */
+    public boolean copy(ItemGroup<? extends Item> from, ModifiableTopLevelItemGroup to)
+        throws InterruptedException
+    {
+        final Authentication auth = Jenkins.getAuthentication();
+        ExecutorService executor = CopyExecutors.newExecutor("JobcopyBuilder subtree copy");
+        boolean succeeded = true;
+        try
+        {
+            List<Level> levels = new ArrayList<Level>();
+            levels.add(new Level(from, to));
+            int depth = 1;
+            while(!levels.isEmpty())
+            {
+                List<Future<ItemResult>> futures = new ArrayList<Future<ItemResult>>();
+                for(Level level: levels)
+                {
+                    for(final Item child: level.from.getItems())
+                    {
+                        final ModifiableTopLevelItemGroup toParent = level.to;
+                        futures.add(executor.submit(CopyExecutors.impersonating(auth, new Callable<ItemResult>() {
+                            @Override
+                            public ItemResult call() throws Exception
+                            {
+                                return copyItem(child, toParent);
+                            }
+                        })));
+                    }
+                }
+                logger.println(String.format("Copying %d items in depth %d...", futures.size(), depth));
+
+                List<Level> nextLevels = new ArrayList<Level>();
+                for(Future<ItemResult> future: futures)
+                {
+                    ItemResult result;
+                    try
+                    {
+                        result = future.get();
+                    }
+                    catch(ExecutionException e)
+                    {
+                        e.getCause().printStackTrace(logger);
+                        succeeded = false;
+                        continue;
+                    }
+                    logger.print(result.log);
+                    if(!result.succeeded)
+                    {
+                        succeeded = false;
+                    }
+                    if(result.next != null)
+                    {
+                        nextLevels.add(result.next);
+                    }
+                }
+                levels = nextLevels;
+                ++depth;
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return succeeded;
+    }
+
+    /**
+     * The result of copying an item.
+     */
+    private static class ItemResult
+    {
+        public boolean succeeded = false;
+        public String log;
+        public Level next;
+    }
+
+    /**
+     * Copies an item.
+     *
+     * Outputs are buffered not to be mixed with ones of items copied in parallel.
+     *
+     * @param fromItem  the item to copy.
+     * @param toParent  the folder to create the new item in.
+     * @return the result.
+     */
+    private ItemResult copyItem(Item fromItem, ModifiableTopLevelItemGroup toParent)
+        throws InterruptedException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream itemLogger;
+        try
+        {
+            itemLogger = new PrintStream(buf, true, "UTF-8");
+        }
+        catch(UnsupportedEncodingException e)
+        {
+            // never happens
+            throw new IllegalStateException(e);
+        }
+
+        ItemResult result = new ItemResult();
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.COPY).setDetail("recursive");
+        try
+        {
+            result.succeeded = copyItem(fromItem, toParent, itemLogger, result, event);
+        }
+        catch(IOException e)
+        {
+            itemLogger.println(String.format("Error: Failed to copy %s", fromItem.getFullName()));
+            e.printStackTrace(itemLogger);
+        }
+        catch(RuntimeException e)
+        {
+            itemLogger.println(String.format("Error: Failed to copy %s", fromItem.getFullName()));
+            e.printStackTrace(itemLogger);
+        }
+        finally
+        {
+            event.commit(result.succeeded);
+        }
+        itemLogger.flush();
+        try
+        {
+            result.log = buf.toString("UTF-8");
+        }
+        catch(UnsupportedEncodingException e)
+        {
+            // never happens
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    private boolean copyItem(Item fromItem, ModifiableTopLevelItemGroup toParent, PrintStream logger, ItemResult result,
+            CopyEvents.Event event)
+        throws IOException, InterruptedException
+    {
+        String name = fromItem.getName();
+        String toFullName = ("".equals(toParent.getFullName()))?name:String.format("%s/%s", toParent.getFullName(), name);
+        logger.println(String.format("Copying %s to %s", fromItem.getFullName(), toFullName));
+        event.setJobs(fromItem.getFullName(), toFullName);
+
+        if(!(fromItem instanceof AbstractItem) || !(fromItem instanceof TopLevelItem))
+        {
+            logger.println(String.format("Error: Item '%s' was found, but cannot be copied (does not support AbstractItem).", fromItem.getFullName()));
+            return false;
+        }
+        if(!fromItem.hasPermission(Item.EXTENDED_READ))
+        {
+            logger.println(String.format("Error: Requires EXTENDED_READ or CONFIGURE permission for '%s'.", fromItem.getFullName()));
+            return false;
+        }
+
+        XmlFile file = ((AbstractItem)fromItem).getConfigFile();
+        String encoding = file.sniffEncoding();
+        String original = file.asString();
+        event.setInput(original).setOperationCount(jobcopyOperationList.size()).phase("read");
+        CopyAdmission.Ticket admission = CopyAdmission.get().admit(jobcopyOperationList, original, logger);
+        if(admission == null)
+        {
+            return false;
+        }
+        String jobConfigXmlString;
+        try
+        {
+            jobConfigXmlString = OperationChain.apply(
+                    jobcopyOperationList,
+                    original,
+                    encoding,
+                    env,
+                    logger,
+                    admission.isStreaming()
+            );
+        }
+        finally
+        {
+            admission.release();
+        }
+        if(jobConfigXmlString == null)
+        {
+            return false;
+        }
+        event.setOutput(jobConfigXmlString).phase("operations");
+
+        // Copies to the same item are performed one by one.
+        TopLevelItem toItem;
+        boolean succeeded;
+        CopyLocks.Ticket ticket = CopyLocks.acquire(toFullName, null);
+        event.phase("lock");
+        try
+        {
+            toItem = toParent.getItem(name);
+            if(toItem != null)
+            {
+                logger.println(String.format("Already exists: %s", toFullName));
+                if(!overwrite)
+                {
+                    return false;
+                }
+                if(!(toItem instanceof AbstractItem))
+                {
+                    logger.println("Only AbstractItem can be overwritten: please delete manually, and run copy again");
+                    return false;
+                }
+            }
+
+            CopyTransaction transaction = new CopyTransaction(jobConfigXmlString, encoding);
+            succeeded = JobcopyBuilder.stageAdditionalFiles(
+                    additionalFilesetList,
+                    transaction,
+                    (toItem != null)?toItem.getRootDir():null,
+                    (TopLevelItem)fromItem,
+                    env,
+                    logger
+            );
+            event.phase("files");
+
+            if(toItem == null)
+            {
+                logger.println(String.format("Creating %s", toFullName));
+                toItem = transaction.commitCreate(toParent, name, logger);
+                if(toItem == null)
+                {
+                    logger.println(String.format("Failed to create %s", toFullName));
+                    return false;
+                }
+            }
+            else
+            {
+                logger.println(String.format("Updating %s", toFullName));
+                transaction.commitUpdate((AbstractItem)toItem, logger);
+            }
+            event.phase("commit");
+            if(transaction.isFailed())
+            {
+                succeeded = false;
+            }
+            if(LineageIndex.get().record(fromItem, toItem, operationSet, transaction.getXmlString(), seedJob) == null)
+            {
+                logger.println(String.format(
+                        "%s is not recorded for propagation: operations refer a sensitive variable %s",
+                        toFullName,
+                        operationSet.getSensitiveVariable()
+                ));
+            }
+        }
+        finally
+        {
+            ticket.release();
+        }
+
+        if(fromItem instanceof ItemGroup)
+        {
+            if(toItem instanceof ModifiableTopLevelItemGroup)
+            {
+                @SuppressWarnings("unchecked")
+                ItemGroup<? extends Item> fromGroup = (ItemGroup<? extends Item>)fromItem;
+                result.next = new Level(fromGroup, (ModifiableTopLevelItemGroup)toItem);
+            }
+            else
+            {
+                logger.println(String.format("Error: Target folder '%s' does not support ModifiableTopLevelItemGroup", toFullName));
+                succeeded = false;
+            }
+        }
+
+        return succeeded;
+    }
+}
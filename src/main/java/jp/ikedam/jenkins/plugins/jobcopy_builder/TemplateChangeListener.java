@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.acegisecurity.Authentication;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractItem;
+import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Propagates templates to derived jobs when templates are saved,
+ * if enabled in {@link JobcopyConfiguration}.
+ *
+ * Propagations are delayed for {@link JobcopyConfiguration#getPropagationDelay()} seconds,
+ * and saves in that period are coalesced into one propagation.
+ * Propagations are not delayed for longer than {@link JobcopyConfiguration#getMaxPropagationDelay()} seconds
+ * since the first save, even if the template is kept saved.
+ * Propagations run as the user saved the template at last.
+ * Saves by SYSTEM are propagated as anonymous, like copy builds.
+ */
+public class TemplateChangeListener
+{
+    private static final Logger LOGGER = Logger.getLogger(TemplateChangeListener.class.getName());
+
+    /**
+     * template full name to the scheduled propagation.
+     */
+    private static final ConcurrentMap<String, Scheduled> SCHEDULED
+            = new ConcurrentHashMap<String, Scheduled>();
+
+    /**
+     * A scheduled propagation.
+     */
+    private static class Scheduled
+    {
+        /**
+         * when the template is saved first after the last propagation, in milliseconds.
+         */
+        public final long firstChanged;
+        public final ScheduledFuture<?> future;
+
+        public Scheduled(long firstChanged, ScheduledFuture<?> future)
+        {
+            this.firstChanged = firstChanged;
+            this.future = future;
+        }
+    }
+
+    private TemplateChangeListener()
+    {
+    }
+
+    /**
+     * Schedules the propagation of a template if needed.
+     *
+     * @param item the saved item.
+     */
+    static void onChanged(Item item)
+    {
+        if(!(item instanceof AbstractItem))
+        {
+            return;
+        }
+        JobcopyConfiguration config = JobcopyConfiguration.get();
+        if(!config.isAutoPropagation())
+        {
+            return;
+        }
+        final String fullName = item.getFullName();
+        if(!LineageIndex.get().hasDerivedJobs(fullName))
+        {
+            return;
+        }
+
+        Authentication auth = Jenkins.getAuthentication();
+        final Authentication runAs = ACL.SYSTEM.equals(auth)?Jenkins.ANONYMOUS:auth;
+        synchronized(SCHEDULED)
+        {
+            long now = System.currentTimeMillis();
+            long delay = TimeUnit.SECONDS.toMillis(config.getPropagationDelay());
+            long firstChanged = now;
+            Scheduled scheduled = SCHEDULED.get(fullName);
+            if(scheduled != null && scheduled.future.cancel(false))
+            {
+                // restart the wait, but not longer than the max delay.
+                firstChanged = scheduled.firstChanged;
+                if(config.getMaxPropagationDelay() > 0)
+                {
+                    long deadline = firstChanged + TimeUnit.SECONDS.toMillis(config.getMaxPropagationDelay());
+                    delay = Math.max(0, Math.min(delay, deadline - now));
+                }
+            }
+            SCHEDULED.put(fullName, new Scheduled(firstChanged, Timer.get().schedule(new Runnable() {
+                @Override
+                public void run()
+                {
+                    synchronized(SCHEDULED)
+                    {
+                        SCHEDULED.remove(fullName);
+                    }
+                    Item template = Jenkins.get().getItemByFullName(fullName);
+                    if(!(template instanceof AbstractItem))
+                    {
+                        // renamed or deleted.
+                        return;
+                    }
+                    LOGGER.fine(String.format("Propagating %s", fullName));
+                    TemplatePropagator.start((AbstractItem)template, runAs);
+                }
+            }, delay, TimeUnit.MILLISECONDS)));
+        }
+    }
+
+    /**
+     * Listens items configured by users.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onUpdated(Item item)
+        {
+            onChanged(item);
+        }
+    }
+
+    /**
+     * Listens items saved in other ways.
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file)
+        {
+            if(o instanceof Item)
+            {
+                onChanged((Item)o);
+            }
+        }
+    }
+}
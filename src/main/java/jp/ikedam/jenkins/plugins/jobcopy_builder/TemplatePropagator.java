@@ -0,0 +1,481 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.XmlFile;
+import hudson.model.AbstractItem;
+import hudson.model.Computer;
+import hudson.model.Item;
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+
+/**
+ * Applies a template to all the jobs derived from it again.
+ *
+ * Uses operations recorded in {@link LineageIndex}, so copy builds don't need to run again.
+ * <ul>
+ *     <li>The template is read only once.</li>
+ *     <li>Operations are applied only once for each distinct set of operations,
+ *         and the result is shared by all the jobs copied with them.</li>
+ *     <li>Jobs are updated in parallel.</li>
+ *     <li>Jobs are skipped if the configuration to write is same to the one written last time
+ *         and they are not modified since then.</li>
+ * </ul>
+ * Additional files are not copied again.
+ *
+ * Only one propagation runs for a template at a time.
+ * Requests while running are performed after the running one finished, at once.
+ * The log of the last propagation is written to {@value #LOG_FILE} in the directory of the template,
+ * and propagations are not kept after finished.
+ */
+public class TemplatePropagator
+{
+    private static final Logger LOGGER = Logger.getLogger(TemplatePropagator.class.getName());
+
+    /**
+     * The name of the file to write the log of the last propagation to.
+     */
+    static final String LOG_FILE = "jobcopy-propagation.log";
+
+    /**
+     * template full name to the running propagation.
+     */
+    private static final ConcurrentMap<String, TemplatePropagator> PROPAGATORS
+            = new ConcurrentHashMap<String, TemplatePropagator>();
+
+    private final AbstractItem template;
+    private final String key;
+    private PrintStream logger;
+    private final AtomicInteger updated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private Authentication auth;
+    private boolean running = false;
+    private boolean requested = false;
+    private boolean finished = false;
+
+    private TemplatePropagator(AbstractItem template)
+    {
+        this.template = template;
+        this.key = template.getFullName();
+    }
+
+    /**
+     * Starts propagation of a template in background.
+     *
+     * If a propagation of the template is running,
+     * another propagation is performed after it finishes.
+     *
+     * @param template  the template.
+     * @param auth      the user to update jobs as.
+     * @return the propagation.
+     */
+    @NonNull
+    public static TemplatePropagator start(@NonNull AbstractItem template, @NonNull Authentication auth)
+    {
+        synchronized(PROPAGATORS)
+        {
+            TemplatePropagator propagator = PROPAGATORS.get(template.getFullName());
+            if(propagator != null && propagator.request(auth))
+            {
+                return propagator;
+            }
+            propagator = new TemplatePropagator(template);
+            propagator.request(auth);
+            PROPAGATORS.put(template.getFullName(), propagator);
+            final TemplatePropagator task = propagator;
+            Computer.threadPoolForRemoting.submit(new Runnable() {
+                @Override
+                public void run()
+                {
+                    task.run();
+                }
+            });
+            return propagator;
+        }
+    }
+
+    /**
+     * Returns the running propagation of a template.
+     *
+     * @param templateFullName the full name of the template.
+     * @return the propagation. null if not running.
+     */
+    @CheckForNull
+    public static TemplatePropagator get(@NonNull String templateFullName)
+    {
+        return PROPAGATORS.get(templateFullName);
+    }
+
+    /**
+     * Requests to perform propagation.
+     *
+     * @param auth the user to update jobs as.
+     * @return false if already finished, and cannot accept requests.
+     */
+    private synchronized boolean request(Authentication auth)
+    {
+        if(finished)
+        {
+            return false;
+        }
+        this.auth = auth;
+        requested = true;
+        return true;
+    }
+
+    private synchronized Authentication take()
+    {
+        if(!requested)
+        {
+            running = false;
+            finished = true;
+            return null;
+        }
+        requested = false;
+        running = true;
+        return auth;
+    }
+
+    private void run()
+    {
+        try
+        {
+            Authentication runAs;
+            while((runAs = take()) != null)
+            {
+                // only the log of the last run is kept.
+                logger = openLog();
+                updated.set(0);
+                skipped.set(0);
+                failed.set(0);
+                SecurityContext orig = ACL.impersonate(runAs);
+                try
+                {
+                    propagate(runAs);
+                }
+                catch(InterruptedException e)
+                {
+                    logger.println("Interrupted");
+                    synchronized(this)
+                    {
+                        requested = false;
+                        running = false;
+                        finished = true;
+                    }
+                    return;
+                }
+                catch(Exception e)
+                {
+                    LOGGER.log(Level.WARNING, "Failed to propagate " + template.getFullName(), e);
+                    e.printStackTrace(logger);
+                }
+                finally
+                {
+                    SecurityContextHolder.setContext(orig);
+                    logger.close();
+                }
+            }
+        }
+        finally
+        {
+            // requests after this are performed by a new propagation.
+            PROPAGATORS.remove(key, this);
+        }
+    }
+
+    private PrintStream openLog()
+    {
+        try
+        {
+            return new PrintStream(new FileOutputStream(getLogFile(template)), true, "UTF-8");
+        }
+        catch(IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Failed to write the propagation log of " + template.getFullName(), e);
+            return new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+    }
+
+    /**
+     * Returns the file to write the log of the last propagation to.
+     *
+     * @param template the template.
+     * @return the log file.
+     */
+    @NonNull
+    static File getLogFile(@NonNull AbstractItem template)
+    {
+        return new File(template.getRootDir(), LOG_FILE);
+    }
+
+    /**
+     * Returns the log of the last propagation of a template.
+     *
+     * @param template the template.
+     * @return the log. null if never performed.
+     */
+    @CheckForNull
+    public static String getLastLog(@NonNull AbstractItem template)
+    {
+        File file = getLogFile(template);
+        if(!file.exists())
+        {
+            return null;
+        }
+        try
+        {
+            return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        }
+        catch(IOException e)
+        {
+            LOGGER.log(Level.WARNING, "Failed to read " + file, e);
+            return null;
+        }
+    }
+
+    private void propagate(Authentication runAs) throws IOException, InterruptedException
+    {
+        logger.println(String.format("Propagating %s as %s", template.getFullName(), runAs.getName()));
+        if(!template.hasPermission(Item.EXTENDED_READ))
+        {
+            logger.println(String.format("Error: Requires EXTENDED_READ or CONFIGURE permission for '%s'.", template.getFullName()));
+            failed.incrementAndGet();
+            return;
+        }
+
+        LineageIndex index = LineageIndex.get();
+        Map<String, List<LineageRecord>> recordsByOperations = new LinkedHashMap<String, List<LineageRecord>>();
+        for(LineageRecord record: index.getDerivedJobs(template.getFullName()))
+        {
+            List<LineageRecord> records = recordsByOperations.get(record.getOperationHash());
+            if(records == null)
+            {
+                records = new ArrayList<LineageRecord>();
+                recordsByOperations.put(record.getOperationHash(), records);
+            }
+            records.add(record);
+        }
+
+        // read the template only once.
+        XmlFile file = template.getConfigFile();
+        String xmlString = file.asString();
+        final String encoding = file.sniffEncoding();
+
+        ExecutorService executor = CopyExecutors.newExecutor("JobcopyBuilder propagation");
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(Map.Entry<String, List<LineageRecord>> entry: recordsByOperations.entrySet())
+            {
+                final OperationSet operationSet = index.getOperationSet(entry.getKey());
+                if(operationSet == null)
+                {
+                    logger.println(String.format("Error: Operations for %d jobs are not recorded. Run copy builds for them.", entry.getValue().size()));
+                    failed.addAndGet(entry.getValue().size());
+                    continue;
+                }
+                // apply operations only once for the same operations.
+                final String output = JobcopyBuilder.applyOperations(
+                        operationSet.getJobcopyOperationList(),
+                        xmlString,
+                        encoding,
+                        operationSet.getEnvironment(),
+                        logger
+                );
+                if(output == null)
+                {
+                    failed.addAndGet(entry.getValue().size());
+                    continue;
+                }
+                final String outputHash = LineageIndex.digest(output);
+                for(final LineageRecord record: entry.getValue())
+                {
+                    futures.add(executor.submit(CopyExecutors.impersonating(runAs, new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            update(record, operationSet, output, outputHash, encoding);
+                            return null;
+                        }
+                    })));
+                }
+            }
+            for(Future<?> future: futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch(ExecutionException e)
+                {
+                    e.getCause().printStackTrace(logger);
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        logger.println(String.format(
+                "Finished: %d updated, %d skipped, %d failed",
+                updated.get(),
+                skipped.get(),
+                failed.get()
+        ));
+    }
+
+    private void update(LineageRecord record, OperationSet operationSet, String output, String outputHash, String encoding)
+        throws IOException, InterruptedException
+    {
+        // Not to conflict with copy steps copying to the same job.
+        CopyLocks.Ticket ticket = CopyLocks.acquire(record.getDerivedJob(), null);
+        try
+        {
+            updateLocked(record, operationSet, output, outputHash, encoding);
+        }
+        finally
+        {
+            ticket.release();
+        }
+    }
+
+    private void updateLocked(LineageRecord record, OperationSet operationSet, String output, String outputHash, String encoding)
+        throws IOException
+    {
+        Item item = Jenkins.get().getItemByFullName(record.getDerivedJob());
+        if(!(item instanceof AbstractItem))
+        {
+            logger.println(String.format("Error: %s is not found, or cannot be updated.", record.getDerivedJob()));
+            failed.incrementAndGet();
+            return;
+        }
+        if(!item.hasPermission(Item.CONFIGURE))
+        {
+            logger.println(String.format("Error: Requires CONFIGURE permission for '%s'.", record.getDerivedJob()));
+            failed.incrementAndGet();
+            return;
+        }
+        if(outputHash.equals(record.getOutputHash())
+                && record.getConfigHash() != null
+                && record.getConfigHash().equals(LineageIndex.digestConfig(item)))
+        {
+            skipped.incrementAndGet();
+            return;
+        }
+        logger.println(String.format("Updating %s", record.getDerivedJob()));
+        JobcopyBuilder.updateByXml((AbstractItem)item, output, encoding);
+        LineageIndex.get().record(template, item, operationSet, output, record.getSeedJob());
+        updated.incrementAndGet();
+    }
+
+    /**
+     * Returns the template.
+     *
+     * @return the template.
+     */
+    public AbstractItem getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Returns whether the propagation is running.
+     *
+     * @return whether the propagation is running.
+     */
+    public synchronized boolean isRunning()
+    {
+        return running || requested;
+    }
+
+    /**
+     * Returns the number of jobs updated.
+     *
+     * @return the number of jobs updated.
+     */
+    public int getUpdated()
+    {
+        return updated.get();
+    }
+
+    /**
+     * Returns the number of jobs skipped as they are up to date.
+     *
+     * @return the number of jobs skipped.
+     */
+    public int getSkipped()
+    {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of jobs failed to update.
+     *
+     * @return the number of jobs failed to update.
+     */
+    public int getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Returns the log of the propagation.
+     *
+     * @return the log. null if not started yet.
+     */
+    @CheckForNull
+    public String getLog()
+    {
+        return getLastLog(template);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.AncestorInPath;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.model.Item;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+/**
+ * Transforms the configuration with a XSLT stylesheet.
+ *
+ * Allows structural changes other operations cannot do,
+ * e.g. removing publishers, reordering builders, or adding parameters.
+ *
+ * Compiled stylesheets are cached by their hashes,
+ * and a stylesheet is compiled only once however many jobs are copied with it.
+ * Stylesheets are compiled with secure processing:
+ * extension functions and external resources are not allowed.
+ * Always compiled with the XSLT processor of the JDK,
+ * not with other processors installed by plugins, which may not support restricting them.
+ */
+public class XsltOperation extends AbstractXmlJobcopyOperation implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of compiled stylesheets cached.
+     */
+    private static final int CACHE_SIZE = SystemProperties.getInteger(
+            XsltOperation.class.getName() + ".cacheSize",
+            64
+    );
+
+    /**
+     * The XSLT processor bundled with the JDK.
+     */
+    private static final String TRANSFORMER_FACTORY = "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl";
+
+    /**
+     * Compiled stylesheets by their hashes.
+     * {@link Templates} is thread safe, and shared by all threads.
+     */
+    private static final Map<String, Templates> TEMPLATES = new LinkedHashMap<String, Templates>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Templates> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * The internal class to work with views.
+     *
+     * The following files are used (put in main/resource directory in the source tree).
+     * <dl>
+     *     <dt>config.jelly</dt>
+     *         <dd>shown in the job configuration page, as an additional view to a Jobcopy build step.</dd>
+     * </dl>
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<JobcopyOperation>
+    {
+        /**
+         * Returns the string to be shown in a job configuration page,
+         * in the dropdown of &quot;Add Copy Operation&quot;.
+         *
+         * @return the display name
+         * @see hudson.model.Descriptor#getDisplayName()
+         */
+        @Override
+        public String getDisplayName()
+        {
+            return Messages.XsltOperation_DisplayName();
+        }
+
+        /**
+         * Validate the value input to "Stylesheet"
+         *
+         * Compiles the stylesheet, so allowed only to users who can configure the job.
+         *
+         * @param item the job configured. null if not configured in a job.
+         * @param stylesheet the input to "Stylesheet"
+         * @return validation result
+         */
+        @POST
+        public FormValidation doCheckStylesheet(@AncestorInPath Item item, @QueryParameter String stylesheet)
+        {
+            if(item != null)
+            {
+                item.checkPermission(Item.CONFIGURE);
+            }
+            else
+            {
+                Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            }
+            if(StringUtils.isBlank(stylesheet))
+            {
+                return FormValidation.error(Messages.XsltOperation_stylesheet_empty());
+            }
+            try
+            {
+                compile(stylesheet);
+            }
+            catch(TransformerConfigurationException e)
+            {
+                return FormValidation.error(Messages.XsltOperation_stylesheet_invalid(e.getMessageAndLocation()));
+            }
+            return FormValidation.ok();
+        }
+    }
+
+    private String stylesheet;
+
+    /**
+     * Returns the XSLT stylesheet.
+     *
+     * @return the XSLT stylesheet.
+     */
+    public String getStylesheet()
+    {
+        return stylesheet;
+    }
+
+    /**
+     * Constructor to instantiate from parameters in the job configuration page.
+     *
+     * When instantiating from the saved configuration,
+     * the object is directly serialized with XStream,
+     * and no constructor is used.
+     *
+     * @param stylesheet the XSLT stylesheet.
+     */
+    @DataBoundConstructor
+    public XsltOperation(String stylesheet)
+    {
+        this.stylesheet = stylesheet;
+    }
+
+    /**
+     * This operation does not refer variables.
+     *
+     * @return false
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.JobcopyOperation#isEnvironmentDependent()
+     */
+    @Override
+    public boolean isEnvironmentDependent()
+    {
+        return false;
+    }
+
+    /**
+     * Returns modified XML Document of the job configuration.
+     *
+     * Transforms the whole document with the stylesheet.
+     *
+     * @param doc       XML Document of the job to be copied (job/NAME/config.xml)
+     * @param env       Variables defined in the build.
+     * @param logger    The output stream to log.
+     * @return          modified XML Document. Return null if an error occurs.
+     * @see jp.ikedam.jenkins.plugins.jobcopy_builder.AbstractXmlJobcopyOperation#perform(org.w3c.dom.Document, hudson.EnvVars, java.io.PrintStream)
+     */
+    @Override
+    public Document perform(Document doc, EnvVars env, PrintStream logger)
+    {
+        if(StringUtils.isBlank(getStylesheet()))
+        {
+            logger.println("Stylesheet is empty");
+            return null;
+        }
+        logger.print("Transforming with XSLT...");
+        try
+        {
+            Templates templates = getTemplates(getStylesheet());
+            DOMResult result = new DOMResult();
+            templates.newTransformer().transform(new DOMSource(doc), result);
+            Node node = result.getNode();
+            if(!(node instanceof Document) || ((Document)node).getDocumentElement() == null)
+            {
+                logger.println("The stylesheet produced no elements.");
+                return null;
+            }
+            logger.println("");
+            return (Document)node;
+        }
+        catch(Exception e)
+        {
+            logger.print("Error occured in XML operation");
+            e.printStackTrace(logger);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the compiled stylesheet, compiling it only at the first time.
+     *
+     * @param stylesheet the stylesheet.
+     * @return the compiled stylesheet.
+     * @throws TransformerConfigurationException the stylesheet is invalid.
+     */
+    static Templates getTemplates(String stylesheet)
+        throws TransformerConfigurationException
+    {
+        String hash = LineageIndex.digest(stylesheet);
+        synchronized(TEMPLATES)
+        {
+            Templates templates = TEMPLATES.get(hash);
+            if(templates != null)
+            {
+                return templates;
+            }
+        }
+        // compiled out of the lock, as compiling can take long.
+        Templates templates = compile(stylesheet);
+        synchronized(TEMPLATES)
+        {
+            TEMPLATES.put(hash, templates);
+        }
+        return templates;
+    }
+
+    /**
+     * Compiles a stylesheet securely.
+     *
+     * Refuses to compile if external resources cannot be restricted.
+     *
+     * @param stylesheet the stylesheet.
+     * @return the compiled stylesheet.
+     * @throws TransformerConfigurationException the stylesheet is invalid, or cannot be compiled securely.
+     */
+    private static Templates compile(String stylesheet)
+        throws TransformerConfigurationException
+    {
+        TransformerFactory factory = TransformerFactory.newInstance(TRANSFORMER_FACTORY, null);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        try
+        {
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new TransformerConfigurationException("External resources cannot be restricted", e);
+        }
+        return factory.newTemplates(new StreamSource(new StringReader(stylesheet)));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for ConfigDiff, not concerning with Jenkins.
+ */
+public class ConfigDiffSimpleTest extends TestCase
+{
+    private static final String CONFIG = "<?xml version='1.1' encoding='UTF-8'?>\n"
+            + "<project>\n"
+            + "  <description>test</description>\n"
+            + "  <disabled>false</disabled>\n"
+            + "  <builders><some.Builder><disabled>false</disabled></some.Builder></builders>\n"
+            + "</project>\n";
+
+    public void testIdentical()
+    {
+        ConfigDiff diff = ConfigDiff.compare(CONFIG, CONFIG);
+        assertTrue(diff.isIdentical());
+        assertNull(diff.getDisabled());
+    }
+
+    public void testOnlyDisabled()
+    {
+        ConfigDiff diff = ConfigDiff.compare(CONFIG, CONFIG.replace("  <disabled>false", "  <disabled>true"));
+        assertFalse(diff.isIdentical());
+        assertEquals(Boolean.TRUE, diff.getDisabled());
+    }
+
+    public void testNestedDisabled()
+    {
+        ConfigDiff diff = ConfigDiff.compare(CONFIG, CONFIG.replace("<some.Builder><disabled>false", "<some.Builder><disabled>true"));
+        assertFalse(diff.isIdentical());
+        assertNull(diff.getDisabled());
+    }
+
+    public void testOtherChanges()
+    {
+        ConfigDiff diff = ConfigDiff.compare(
+                CONFIG,
+                CONFIG.replace("  <disabled>false", "  <disabled>true").replace(">test<", ">changed<")
+        );
+        assertFalse(diff.isIdentical());
+        assertNull(diff.getDisabled());
+    }
+
+    public void testMalformed()
+    {
+        ConfigDiff diff = ConfigDiff.compare(CONFIG, "<project>");
+        assertFalse(diff.isIdentical());
+        assertNull(diff.getDisabled());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLEventReader;
+
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CopyAdmission, not concerning with Jenkins.
+ */
+public class CopyAdmissionSimpleTest extends TestCase
+{
+    private static class StringOperation extends JobcopyOperation
+    {
+        @Override
+        public String perform(String xmlString, String encoding, EnvVars env, PrintStream logger)
+        {
+            return xmlString;
+        }
+    }
+
+    private static class DomOperation extends StringOperation implements DomJobcopyOperation
+    {
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return doc;
+        }
+    }
+
+    private static class ByteOperation extends StringOperation implements ByteStreamJobcopyOperation
+    {
+        @Override
+        public boolean perform(InputStream in, OutputStream out, String encoding, EnvVars env, PrintStream logger)
+            throws IOException
+        {
+            IOUtils.copy(in, out);
+            return true;
+        }
+    }
+
+    /**
+     * Supports both DOM and byte streams.
+     */
+    private static class DomByteOperation extends ByteOperation implements DomJobcopyOperation
+    {
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return doc;
+        }
+    }
+
+    /**
+     * Supports both DOM and events.
+     */
+    private static class DomEventOperation extends DomOperation implements StreamingJobcopyOperation
+    {
+        @Override
+        public XMLEventReader perform(XMLEventReader reader, EnvVars env, PrintStream logger)
+        {
+            return reader;
+        }
+    }
+
+    private static String createXml(int length)
+    {
+        StringBuilder xml = new StringBuilder("<a>");
+        while(xml.length() < length - 4)
+        {
+            xml.append('x');
+        }
+        return xml.append("</a>").toString();
+    }
+
+    private static long estimate(int chars, JobcopyOperation... operations)
+    {
+        return CopyAdmission.estimate(chars, Arrays.asList(operations));
+    }
+
+    public void testEstimate()
+    {
+        assertEquals(2L * 1000 * 2, estimate(1000));
+        assertEquals(2L * 1000 * 2, estimate(1000, new StringOperation()));
+        assertEquals(2L * 1000 * 2, estimate(1000, new ByteOperation(), new ByteOperation()));
+        assertEquals(2L * 1000 * 6, estimate(1000, new DomOperation()));
+        // operations in a run share one DOM.
+        assertEquals(2L * 1000 * 6, estimate(1000, new DomOperation(), new DomOperation(), new DomOperation()));
+        // parsed again after an operation applied with a string.
+        assertEquals(2L * 1000 * 10, estimate(1000, new DomOperation(), new StringOperation(), new DomOperation()));
+        assertEquals(2L * 1000 * 2, CopyAdmission.estimateStreaming(1000));
+    }
+
+    public void testAdmit() throws Exception
+    {
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        CopyAdmission admission = new CopyAdmission(1024L * 1024);
+        List<JobcopyOperation> operations = Arrays.<JobcopyOperation>asList(new DomOperation());
+
+        CopyAdmission.Ticket empty = admission.admit(Collections.<JobcopyOperation>emptyList(), createXml(10000), logger);
+        assertEquals(0, empty.getReserved());
+        assertEquals(1024L * 1024, admission.getAvailable());
+
+        // 10000 * 2 * 6 = 120000 bytes: 118 KiB.
+        CopyAdmission.Ticket ticket = admission.admit(operations, createXml(10000), logger);
+        assertEquals(118 * 1024, ticket.getReserved());
+        assertEquals(1024L * 1024 - 118 * 1024, admission.getAvailable());
+        ticket.release();
+        ticket.release();
+        assertEquals(1024L * 1024, admission.getAvailable());
+        empty.release();
+        assertEquals(1024L * 1024, admission.getAvailable());
+    }
+
+    public void testOversize() throws Exception
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(buf, true, "UTF-8");
+        CopyAdmission admission = new CopyAdmission(100L * 1024);
+
+        // 10000 * 2 * 6 = 120000 bytes
+        assertNull(admission.admit(Arrays.<JobcopyOperation>asList(new DomOperation()), createXml(10000), logger));
+        assertTrue(buf.toString("UTF-8"), buf.toString("UTF-8").contains("more than the budget"));
+
+        // planned with a DOM, but can be applied with streaming: 10000 * 2 * 2 = 40000 bytes
+        List<JobcopyOperation> streamable = Arrays.<JobcopyOperation>asList(new DomByteOperation(), new DomEventOperation());
+        assertEquals(
+                Arrays.asList(OperationChain.Form.DOM, OperationChain.Form.DOM),
+                OperationChain.plan(streamable)
+        );
+        CopyAdmission.Ticket ticket = admission.admit(streamable, createXml(10000), logger);
+        assertNotNull(ticket);
+        assertEquals(40 * 1024, ticket.getReserved());
+        assertTrue(ticket.isStreaming());
+        assertTrue(buf.toString("UTF-8"), buf.toString("UTF-8").contains("applied with streaming"));
+        assertEquals(
+                Arrays.asList(OperationChain.Form.BYTES, OperationChain.Form.EVENTS),
+                OperationChain.plan(streamable, ticket.isStreaming())
+        );
+        ticket.release();
+
+        // fits in the budget without forcing streaming.
+        ticket = admission.admit(Arrays.<JobcopyOperation>asList(new ByteOperation()), createXml(10000), logger);
+        assertEquals(40 * 1024, ticket.getReserved());
+        assertFalse(ticket.isStreaming());
+        ticket.release();
+
+        assertNull(admission.admit(streamable, createXml(30000), logger));
+    }
+
+    public void testWait() throws Exception
+    {
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        final CopyAdmission admission = new CopyAdmission(200L * 1024);
+        final List<JobcopyOperation> operations = Arrays.<JobcopyOperation>asList(new DomOperation());
+
+        // 120000 bytes each: only one fits.
+        CopyAdmission.Ticket first = admission.admit(operations, createXml(10000), logger);
+        final CopyAdmission.Ticket[] second = new CopyAdmission.Ticket[1];
+        Thread waiting = new Thread() {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    second[0] = admission.admit(operations, createXml(10000), new PrintStream(new ByteArrayOutputStream()));
+                }
+                catch(InterruptedException e)
+                {
+                    // fails with second[0] == null.
+                }
+            }
+        };
+        waiting.start();
+        waiting.join(500);
+        assertTrue(waiting.isAlive());
+
+        first.release();
+        waiting.join(10000);
+        assertFalse(waiting.isAlive());
+        assertNotNull(second[0]);
+        second[0].release();
+        assertEquals(200L * 1024, admission.getAvailable());
+    }
+}
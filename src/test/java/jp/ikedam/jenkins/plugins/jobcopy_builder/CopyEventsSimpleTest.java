@@ -0,0 +1,52 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CopyEvents, not concerning with Jenkins.
+ */
+public class CopyEventsSimpleTest extends TestCase
+{
+    public void testUtf8Length()
+    {
+        for(String value: new String[]{"", "abc", "été", "日本語", "😀", "\ud83d"})
+        {
+            assertEquals(value, value.getBytes(StandardCharsets.UTF_8).length, CopyEvents.utf8Length(value));
+        }
+        assertEquals(-1, CopyEvents.utf8Length(null));
+    }
+
+    public void testNotRecorded()
+    {
+        // No recordings are running: events are not recorded, and do nothing.
+        CopyEvents.Event event = CopyEvents.begin(CopyEvents.Kind.COPY);
+        assertFalse(event.isEnabled());
+        event.setJobs("from", "to").setInput("input").setOutput("output").setDetail("detail").commit(true);
+        event.commit(false);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CopyLocks, not concerning with Jenkins.
+ */
+public class CopyLocksSimpleTest extends TestCase
+{
+    private Thread acquireLater(final String fullName, final String contents, final AtomicReference<CopyLocks.Ticket> ret)
+        throws InterruptedException
+    {
+        return acquireLater(fullName, contents, ret, false);
+    }
+
+    private Thread acquireLater(final String fullName, final String contents, final AtomicReference<CopyLocks.Ticket> ret,
+            final boolean commit)
+        throws InterruptedException
+    {
+        Thread t = new Thread() {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    CopyLocks.Ticket ticket = CopyLocks.acquire(fullName, contents);
+                    ret.set(ticket);
+                    if(commit)
+                    {
+                        ticket.commit();
+                    }
+                    ticket.release();
+                }
+                catch(InterruptedException e)
+                {
+                    // finish
+                }
+            }
+        };
+        t.start();
+        // wait for the thread to start waiting.
+        for(int i = 0; i < 100 && t.getState() != Thread.State.WAITING; ++i)
+        {
+            Thread.sleep(10);
+        }
+        return t;
+    }
+
+    public void testSuperseded() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job1", "hash1");
+        assertFalse(ticket.isSuperseded());
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job1", "hash1", later);
+        assertTrue(ticket.isSuperseded());
+        assertNull(later.get());
+
+        ticket.release();
+        t.join(10000);
+        assertNotNull(later.get());
+        assertFalse(later.get().isSuperseded());
+    }
+
+    public void testSkippedIfLaterCommitted() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job5", "hash1");
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job5", "hash1", later, true);
+        assertTrue(ticket.awaitSuperseding());
+        ticket.release();
+
+        t.join(10000);
+        assertNotNull(later.get());
+        // the lock is released.
+        CopyLocks.acquire("job5", null).release();
+    }
+
+    public void testPerformedIfLaterFailed() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job6", "hash1");
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job6", "hash1", later, false);
+        // the later one finished without committing.
+        assertFalse(ticket.awaitSuperseding());
+        assertNotNull(later.get());
+        t.join(10000);
+
+        // the lock is held again.
+        AtomicReference<CopyLocks.Ticket> another = new AtomicReference<CopyLocks.Ticket>();
+        Thread t2 = acquireLater("job6", null, another);
+        assertNull(another.get());
+        ticket.release();
+        t2.join(10000);
+        assertNotNull(another.get());
+    }
+
+    public void testInterrupted() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job4", "hash1");
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job4", "hash1", later);
+        assertTrue(ticket.isSuperseded());
+
+        // the aborted copy no longer supersedes.
+        t.interrupt();
+        t.join(10000);
+        assertFalse(t.isAlive());
+        assertNull(later.get());
+        assertFalse(ticket.isSuperseded());
+        assertFalse(ticket.awaitSuperseding());
+
+        ticket.release();
+    }
+
+    public void testNotSupersededWithDifferentContents() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job2", "hash1");
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job2", "hash2", later);
+        assertFalse(ticket.isSuperseded());
+
+        ticket.release();
+        t.join(10000);
+        assertNotNull(later.get());
+    }
+
+    public void testNotCoalescedWithoutContents() throws Exception
+    {
+        CopyLocks.Ticket ticket = CopyLocks.acquire("job3", null);
+
+        AtomicReference<CopyLocks.Ticket> later = new AtomicReference<CopyLocks.Ticket>();
+        Thread t = acquireLater("job3", null, later);
+        assertFalse(ticket.isSuperseded());
+
+        ticket.release();
+        t.join(10000);
+        assertNotNull(later.get());
+        assertFalse(later.get().isSuperseded());
+    }
+}
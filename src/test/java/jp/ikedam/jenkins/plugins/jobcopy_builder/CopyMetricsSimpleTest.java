@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CopyMetrics, not concerning with Jenkins.
+ */
+public class CopyMetricsSimpleTest extends TestCase
+{
+    private static long millis(long millis)
+    {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public void testBucketOf()
+    {
+        assertEquals(0, CopyMetrics.LatencyHistogram.bucketOf(0));
+        assertEquals(0, CopyMetrics.LatencyHistogram.bucketOf(millis(1) - 1));
+        assertEquals(1, CopyMetrics.LatencyHistogram.bucketOf(millis(1)));
+        assertEquals(2, CopyMetrics.LatencyHistogram.bucketOf(millis(2)));
+        assertEquals(2, CopyMetrics.LatencyHistogram.bucketOf(millis(3)));
+        assertEquals(3, CopyMetrics.LatencyHistogram.bucketOf(millis(4)));
+        assertEquals(21, CopyMetrics.LatencyHistogram.bucketOf(millis(1L << 20)));
+        assertEquals(21, CopyMetrics.LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    public void testPercentile()
+    {
+        CopyMetrics.LatencyHistogram histogram = new CopyMetrics.LatencyHistogram();
+        assertEquals(0, histogram.getP50Millis());
+        assertEquals(0.0, histogram.getMeanMillis());
+
+        for(int i = 0; i < 90; ++i)
+        {
+            histogram.record(millis(3));
+        }
+        for(int i = 0; i < 9; ++i)
+        {
+            histogram.record(millis(100));
+        }
+        histogram.record(millis(5000000));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(4, histogram.getP50Millis());
+        assertEquals(4, histogram.getP90Millis());
+        assertEquals(128, histogram.getP99Millis());
+        // the bucket for longer ones reports the maximum.
+        assertEquals(5000000, histogram.getPercentileMillis(100));
+        assertEquals(5000000.0, histogram.getMaxMillis());
+    }
+
+    public void testRecord()
+    {
+        CopyMetrics metrics = new CopyMetrics();
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, 200, true, false);
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, -1, false, false);
+        metrics.record(CopyEvents.Kind.COPY, millis(10), -1, -1, true, true);
+        metrics.recordSkip();
+        metrics.record(CopyEvents.Kind.OPERATION, millis(1), 100, 200, false, false);
+        metrics.record(CopyEvents.Kind.FILESET, millis(1), 10, 20, true, false);
+        metrics.recordFilesetFiles(2);
+        metrics.record(CopyEvents.Kind.COMMIT, millis(1), -1, 200, true, false);
+
+        assertEquals(2, metrics.getCopies());
+        assertEquals(1, metrics.getCopyFailures());
+        assertEquals(2, metrics.getCopySkips());
+        assertEquals(1, metrics.getOperations());
+        assertEquals(1, metrics.getOperationFailures());
+        assertEquals(2, metrics.getFilesetFiles());
+        assertEquals(1, metrics.getCommits());
+        assertEquals(0, metrics.getCommitFailures());
+        assertEquals(210, metrics.getBytesRead());
+        assertEquals(220, metrics.getBytesWritten());
+        assertEquals(2, metrics.getCopyLatency().getCount());
+    }
+
+    public void testThroughput()
+    {
+        CopyMetrics metrics = new CopyMetrics();
+        metrics.sample(1000);
+        assertTrue(metrics.getThroughput().isEmpty());
+
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, -1, true, false);
+        metrics.sample(2000);
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, -1, true, false);
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, -1, true, false);
+        metrics.sample(3000);
+
+        List<CopyMetrics.Sample> throughput = metrics.getThroughput();
+        assertEquals(2, throughput.size());
+        assertEquals(3000, throughput.get(0).getTimestamp());
+        assertEquals(2, throughput.get(0).getCopies());
+        assertEquals(200, throughput.get(0).getBytesRead());
+        assertEquals(2000, throughput.get(1).getTimestamp());
+        assertEquals(1, throughput.get(1).getCopies());
+
+        for(int i = 0; i < 100; ++i)
+        {
+            metrics.sample(4000 + i);
+        }
+        assertEquals(60, metrics.getThroughput().size());
+    }
+
+    public void testProvider()
+    {
+        CopyMetrics metrics = new CopyMetrics();
+        Map<String, Metric> metricMap = new CopyMetricsProvider(metrics).getMetricSet().getMetrics();
+        assertEquals(0L, ((Gauge<?>)metricMap.get("jobcopy.copy.count")).getValue());
+
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, 200, true, false);
+        metrics.record(CopyEvents.Kind.COPY, millis(10), 100, -1, false, false);
+
+        assertEquals(2L, ((Gauge<?>)metricMap.get("jobcopy.copy.count")).getValue());
+        assertEquals(1L, ((Gauge<?>)metricMap.get("jobcopy.copy.failures")).getValue());
+        assertEquals(200L, ((Gauge<?>)metricMap.get("jobcopy.bytes.read")).getValue());
+        assertEquals(2L, ((Gauge<?>)metricMap.get("jobcopy.copy.latency.count")).getValue());
+        assertEquals(16L, ((Gauge<?>)metricMap.get("jobcopy.copy.latency.p50")).getValue());
+        assertEquals(0L, ((Gauge<?>)metricMap.get("jobcopy.commit.latency.count")).getValue());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CopyPlan, not concerning with Jenkins.
+ */
+public class CopyPlanSimpleTest extends TestCase
+{
+    public void testValidation()
+    {
+        assertNull(new JobcopyBuilder("from", "to", false, null, null).getPlan().getError());
+        assertEquals(
+                "From Job Name is not specified",
+                new JobcopyBuilder("  ", "to", false, null, null).getPlan().getError()
+        );
+        assertEquals(
+                "To Job Name is not specified",
+                new JobcopyBuilder("from", null, false, null, null).getPlan().getError()
+        );
+    }
+
+    public void testNullLists()
+    {
+        CopyPlan plan = new JobcopyBuilder("from", "to", false, null, null).getPlan();
+        assertTrue(plan.getJobcopyOperationList().isEmpty());
+        assertTrue(plan.getAdditionalFilesetList().isEmpty());
+    }
+
+    public void testReused()
+    {
+        List<JobcopyOperation> operations = new ArrayList<JobcopyOperation>(
+                Arrays.<JobcopyOperation>asList(new EnableOperation())
+        );
+        JobcopyBuilder builder = new JobcopyBuilder("from", "to", false, operations, null);
+        CopyPlan plan = builder.getPlan();
+        assertSame(plan, builder.getPlan());
+
+        // built again when operations are modified.
+        operations.add(new DisableOperation());
+        CopyPlan modified = builder.getPlan();
+        assertNotSame(plan, modified);
+        assertEquals(2, modified.getJobcopyOperationList().size());
+        assertEquals(1, plan.getJobcopyOperationList().size());
+        assertSame(modified, builder.getPlan());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import hudson.EnvVars;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for FormatPreservingXmlSerializer, not concerning with Jenkins.
+ */
+public class FormatPreservingXmlSerializerSimpleTest extends TestCase
+{
+    private static final String XML =
+            "<?xml version='1.1' encoding='UTF-8'?>\r\n"
+            + "<project>\r\n"
+            + "  <!-- comment -->\r\n"
+            + "  <description>a &amp; b &#x41;</description>\r\n"
+            + "  <disabled/>\r\n"
+            + "  <node  attr = 'value' other=\"x\"><![CDATA[raw <>]]></node>\r\n"
+            + "\r\n"
+            + "\r\n"
+            + "</project>\r\n";
+
+    private DocumentBuilder builder;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    }
+
+    private Document parse(String xml) throws Exception
+    {
+        return builder.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    public void testUnchanged() throws Exception
+    {
+        assertEquals(XML, FormatPreservingXmlSerializer.serialize(XML, parse(XML)));
+    }
+
+    public void testTextChanged() throws Exception
+    {
+        Document doc = parse(XML);
+        doc.getElementsByTagName("description").item(0).getFirstChild().setNodeValue("new <value>");
+        doc.getElementsByTagName("disabled").item(0).setTextContent("true");
+        assertEquals(
+                XML.replace("a &amp; b &#x41;", "new &lt;value&gt;").replace("<disabled/>", "<disabled>true</disabled>"),
+                FormatPreservingXmlSerializer.serialize(XML, doc)
+        );
+
+        doc.getElementsByTagName("description").item(0).setTextContent("");
+        assertEquals(
+                XML.replace("a &amp; b &#x41;", "").replace("<disabled/>", "<disabled>true</disabled>"),
+                FormatPreservingXmlSerializer.serialize(XML, doc)
+        );
+    }
+
+    public void testAttributeChanged() throws Exception
+    {
+        Document doc = parse(XML);
+        ((Element)doc.getElementsByTagName("node").item(0)).setAttribute("attr", "it's");
+        assertEquals(
+                XML.replace("'value'", "'it&apos;s'"),
+                FormatPreservingXmlSerializer.serialize(XML, doc)
+        );
+    }
+
+    public void testStructureChanged() throws Exception
+    {
+        Document doc = parse(XML);
+        doc.getElementsByTagName("node").item(0).appendChild(doc.createElement("child"));
+        String xml = FormatPreservingXmlSerializer.serialize(XML, doc);
+        assertTrue(xml, xml.startsWith("<?xml version='1.1' encoding='UTF-8'?>\r\n<project>"));
+        assertTrue(xml, xml.contains("<child/>"));
+        // not reindented
+        assertEquals(xml, xml, FormatPreservingXmlSerializer.serialize(xml, parse(xml)));
+    }
+
+    public void testRepeatedCopies() throws Exception
+    {
+        ReplaceOperation operation = new ReplaceOperation("a", false, "a", false);
+        EnvVars env = new EnvVars();
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        String xml = XML;
+        for(int i = 0; i < 5; ++i)
+        {
+            xml = operation.perform(xml, "UTF-8", env, logger);
+        }
+        assertEquals(XML, xml);
+    }
+}
@@ -36,7 +36,9 @@ import jenkins.model.Jenkins;
 import hudson.EnvVars;
 import hudson.matrix.Axis;
 import hudson.matrix.AxisList;
+import hudson.matrix.MatrixBuild;
 import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
 import hudson.matrix.TextAxis;
 import hudson.model.FreeStyleBuild;
 import hudson.model.Cause;
@@ -47,6 +49,7 @@ import hudson.model.ParametersDefinitionProperty;
 import hudson.model.StringParameterDefinition;
 import hudson.model.StringParameterValue;
 import hudson.model.Result;
+import hudson.tasks.Builder;
 import hudson.plugins.promoted_builds.JobPropertyImpl;
 import hudson.plugins.promoted_builds.PromotionProcess;
 import hudson.plugins.promoted_builds.conditions.DownstreamPassCondition;
@@ -56,6 +59,7 @@ import hudson.util.FormValidation;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.jvnet.hudson.test.FailureBuilder;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.xml.sax.SAXException;
@@ -1476,4 +1480,387 @@ public class JobcopyBuilderJenkinsTest
         assertNotNull(j.jenkins.getItemByFullName("/folder/dest"));
         j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
     }
+    
+    @Test
+    public void testPerformRecursive() throws Exception
+    {
+        // src/job1
+        // src/sub1/job2
+        // src/sub1/sub2/job3
+        Folder src = j.jenkins.createProject(Folder.class, "src");
+        FreeStyleProject job1 = src.createProject(FreeStyleProject.class, "job1");
+        job1.setDescription("description of job1");
+        Folder sub1 = src.createProject(Folder.class, "sub1");
+        sub1.createProject(FreeStyleProject.class, "job2").setDescription("description of job2");
+        Folder sub2 = sub1.createProject(Folder.class, "sub2");
+        sub2.createProject(FreeStyleProject.class, "job3").setDescription("description of job3");
+        
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        JobcopyBuilder builder = new JobcopyBuilder(
+                "src",
+                "dest",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("description", false, "copied", false)),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setRecursive(true);
+        copyJob.getBuildersList().add(builder);
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertFalse(b.getAction(CopiedjobinfoAction.class).isFailed());
+        assertTrue(j.jenkins.getItemByFullName("dest") instanceof Folder);
+        assertTrue(j.jenkins.getItemByFullName("dest/sub1") instanceof Folder);
+        assertTrue(j.jenkins.getItemByFullName("dest/sub1/sub2") instanceof Folder);
+        assertEquals(
+                "copied of job1",
+                j.jenkins.getItemByFullName("dest/job1", FreeStyleProject.class).getDescription()
+        );
+        assertEquals(
+                "copied of job2",
+                j.jenkins.getItemByFullName("dest/sub1/job2", FreeStyleProject.class).getDescription()
+        );
+        assertEquals(
+                "copied of job3",
+                j.jenkins.getItemByFullName("dest/sub1/sub2/job3", FreeStyleProject.class).getDescription()
+        );
+        
+        // overwrite
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        
+        // not overwrite
+        builder = new JobcopyBuilder(
+                "src",
+                "dest2",
+                false,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setRecursive(true);
+        copyJob.getBuildersList().replace(builder);
+        j.jenkins.createProject(Folder.class, "dest2").createProject(FreeStyleProject.class, "job1");
+        j.assertBuildStatus(Result.FAILURE, copyJob.scheduleBuild2(0).get());
+    }
+    
+    @Test
+    public void testPerformRecursiveIntoItself() throws Exception
+    {
+        Folder src = j.jenkins.createProject(Folder.class, "src");
+        src.createProject(FreeStyleProject.class, "job1");
+        Folder sub1 = src.createProject(Folder.class, "sub1");
+        
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        
+        // into a descendant
+        JobcopyBuilder builder = new JobcopyBuilder(
+                "src",
+                "src/sub1/dest",
+                true,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setRecursive(true);
+        copyJob.getBuildersList().add(builder);
+        j.assertBuildStatus(Result.FAILURE, copyJob.scheduleBuild2(0).get());
+        assertNull(j.jenkins.getItemByFullName("src/sub1/dest"));
+        
+        // into itself
+        builder = new JobcopyBuilder(
+                "src",
+                "/src",
+                true,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setRecursive(true);
+        copyJob.getBuildersList().replace(builder);
+        j.assertBuildStatus(Result.FAILURE, copyJob.scheduleBuild2(0).get());
+        assertEquals(2, src.getItems().size());
+        assertEquals(0, sub1.getItems().size());
+        
+        // a sibling with the same prefix is allowed.
+        builder = new JobcopyBuilder(
+                "src",
+                "src2",
+                true,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setRecursive(true);
+        copyJob.getBuildersList().replace(builder);
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertNotNull(j.jenkins.getItemByFullName("src2/job1"));
+    }
+    
+    @Test
+    public void testPerformMultipleSteps() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("template");
+        
+        // template -> copy1 -> copy2, and template -> copy3 in a build.
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copy1",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "copy1", false)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "copy1",
+                "copy2",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("copy1", false, "copy2", false)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copy3",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "copy3", false)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertEquals("copy1", j.jenkins.getItemByFullName("copy1", FreeStyleProject.class).getDescription());
+        assertEquals("copy2", j.jenkins.getItemByFullName("copy2", FreeStyleProject.class).getDescription());
+        assertEquals("copy3", j.jenkins.getItemByFullName("copy3", FreeStyleProject.class).getDescription());
+        
+        // changes between builds are applied.
+        template.setDescription("new template");
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertEquals("new copy1", j.jenkins.getItemByFullName("copy1", FreeStyleProject.class).getDescription());
+        assertEquals("new copy2", j.jenkins.getItemByFullName("copy2", FreeStyleProject.class).getDescription());
+        assertEquals("new copy3", j.jenkins.getItemByFullName("copy3", FreeStyleProject.class).getDescription());
+    }
+    
+    @Test
+    public void testPerformDeferCommit() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("template");
+        
+        // two steps copying to the same job are written at once.
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        JobcopyBuilder base = new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "base", false)),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        base.setDeferCommit(true);
+        copyJob.getBuildersList().add(base);
+        JobcopyBuilder overlay = new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "overlay", false)),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        overlay.setDeferCommit(true);
+        copyJob.getBuildersList().add(overlay);
+        
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogContains("Changes are deferred", b);
+        assertEquals("overlay", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+        assertEquals(2, b.getActions(CopiedjobinfoAction.class).size());
+        
+        // not written if the build stops before the last step.
+        copyJob.getBuildersList().replaceBy(Arrays.<Builder>asList(base, new FailureBuilder(), overlay));
+        template.setDescription("new template");
+        b = j.assertBuildStatus(Result.FAILURE, copyJob.scheduleBuild2(0).get());
+        j.assertLogContains("Discarded deferred changes to copied", b);
+        assertEquals("overlay", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+    }
+    
+    @Test
+    public void testPerformInMatrixConfigurations() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("template");
+        
+        MatrixProject copyJob = j.createProject(MatrixProject.class);
+        copyJob.setAxes(new AxisList(new TextAxis("axis1", "value1", "value2", "value3")));
+        // copied only once.
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "copied", false)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        // copied for each configuration.
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copied-${axis1}",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "${axis1}", true)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        
+        MatrixBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertEquals("copied", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+        assertEquals("value1", j.jenkins.getItemByFullName("copied-value1", FreeStyleProject.class).getDescription());
+        assertEquals("value2", j.jenkins.getItemByFullName("copied-value2", FreeStyleProject.class).getDescription());
+        assertEquals("value3", j.jenkins.getItemByFullName("copied-value3", FreeStyleProject.class).getDescription());
+        
+        int reused = 0;
+        for(MatrixRun run: b.getExactRuns())
+        {
+            if(JenkinsRule.getLog(run).contains("Reused the result of the same copy in another configuration."))
+            {
+                ++reused;
+            }
+            // every configuration has the information of both copies.
+            assertEquals(2, run.getActions(CopiedjobinfoAction.class).size());
+        }
+        assertEquals(2, reused);
+    }
+    
+    @Test
+    public void testPerformWithoutReload() throws Exception
+    {
+        j.createFreeStyleProject("template").setDescription("template");
+        
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        FreeStyleProject copied = j.jenkins.getItemByFullName("copied", FreeStyleProject.class);
+        assertFalse(copied.isDisabled());
+        
+        // not reloaded if not changed.
+        // (operations are changed not to be skipped as up to date)
+        copyJob.getBuildersList().replaceBy(Arrays.<Builder>asList(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("nosuchstring", false, "copied", false)),
+                Collections.<AdditionalFileset>emptyList()
+        )));
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogContains("copied is not changed: not reloaded.", b);
+        
+        // only disabled.
+        copyJob.getBuildersList().replaceBy(Arrays.<Builder>asList(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new DisableOperation()),
+                Collections.<AdditionalFileset>emptyList()
+        )));
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogContains("Only disabled is changed to true: not reloaded.", b);
+        assertTrue(j.jenkins.getItemByFullName("copied", FreeStyleProject.class).isDisabled());
+        
+        // reloaded for other changes.
+        copyJob.getBuildersList().replaceBy(Arrays.<Builder>asList(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(
+                        new ReplaceOperation("template", false, "copied", false),
+                        new EnableOperation()
+                ),
+                Collections.<AdditionalFileset>emptyList()
+        )));
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogNotContains("not reloaded.", b);
+        assertFalse(j.jenkins.getItemByFullName("copied", FreeStyleProject.class).isDisabled());
+        assertEquals("copied", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+    }
+    
+    @Test
+    public void testPerformUpToDate() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("template");
+        
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("template", false, "${VALUE}", true)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        copyJob.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("VALUE", "copied")));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        assertEquals("copied", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+        
+        // skipped with the same inputs.
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogContains("copied is up to date: skipped.", b);
+        assertNotNull(b.getAction(CopiedjobinfoAction.class));
+        
+        // copied with different variables.
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(
+                0,
+                new Cause.UserIdCause(),
+                new ParametersAction(new StringParameterValue("VALUE", "another"))
+        ));
+        j.assertLogNotContains("up to date", b);
+        assertEquals("another", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+        
+        // copied when the template is changed.
+        template.setDescription("template changed");
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogNotContains("up to date", b);
+        assertEquals("copied changed", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+        
+        // copied when the job copied to is changed.
+        j.jenkins.getItemByFullName("copied", FreeStyleProject.class).setDescription("modified");
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogNotContains("up to date", b);
+        assertEquals("copied changed", j.jenkins.getItemByFullName("copied", FreeStyleProject.class).getDescription());
+    }
+    
+    @Test
+    public void testPerformTransformOnAgent() throws Exception
+    {
+        j.createFreeStyleProject("template").setDescription("template");
+        
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        JobcopyBuilder builder = new JobcopyBuilder(
+                "template",
+                "copied",
+                true,
+                Arrays.<JobcopyOperation>asList(
+                        new ReplaceOperation("template", false, "${VALUE}", true),
+                        new DisableOperation()
+                ),
+                Collections.<AdditionalFileset>emptyList()
+        );
+        builder.setTransformOnAgent(true);
+        copyJob.getBuildersList().add(builder);
+        copyJob.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("VALUE", "copied")));
+        
+        // transformed on the controller.
+        FreeStyleBuild b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogNotContains("Transforming on", b);
+        j.assertLogContains("No agents available", b);
+        
+        // not allowed.
+        copyJob.setAssignedNode(j.createOnlineSlave());
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        j.assertLogNotContains("Transforming on", b);
+        j.assertLogContains("not allowed", b);
+        
+        // transformed on the agent.
+        JobcopyConfiguration.get().setTransformOnAgents(true);
+        b = j.assertBuildStatusSuccess(copyJob.scheduleBuild2(
+                0,
+                new Cause.UserIdCause(),
+                new ParametersAction(new StringParameterValue("VALUE", "onagent"))
+        ));
+        j.assertLogContains("Transforming on", b);
+        FreeStyleProject copied = j.jenkins.getItemByFullName("copied", FreeStyleProject.class);
+        assertEquals("onagent", copied.getDescription());
+        assertTrue(copied.isDisabled());
+    }
 }
@@ -0,0 +1,341 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.sf.json.JSONObject;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.jvnet.hudson.test.HudsonHomeLoader;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleProject;
+import hudson.util.FormValidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Load tests for JobcopyBuilder with a large number of jobs.
+ *
+ * Runs only with the profile "load-test":
+ * <pre>
+ * mvn test -P load-test -Djobcopy.loadTest.sizes=10000,100000
+ * </pre>
+ *
+ * For each size, JENKINS_HOME is generated with the jobs in nested folders,
+ * build histories and promotions, and measures:
+ * <ul>
+ *     <li>latency of {@link JobcopyBuilder.DescriptorImpl#doFillFromJobNameItems}</li>
+ *     <li>latency of looking up jobs by relative names</li>
+ *     <li>throughput of copies, with and without additional filesets</li>
+ *     <li>heap used after loading and after copying</li>
+ * </ul>
+ * Results are appended to the file specified with {@code jobcopy.loadTest.report}
+ * as a JSON object in a line for each size.
+ */
+@RunWith(Parameterized.class)
+public class JobcopyBuilderLoadTest
+{
+    private static final Logger LOGGER = Logger.getLogger(JobcopyBuilderLoadTest.class.getName());
+
+    private static final String SIZES = "jobcopy.loadTest.sizes";
+
+    /**
+     * Folders are nested in this depth, with this number of children.
+     */
+    private static final int DEPTH = 3;
+    private static final int FANOUT = 10;
+
+    private static final int BUILDS = Integer.getInteger("jobcopy.loadTest.builds", 5);
+    private static final int PROMOTED_EVERY = Integer.getInteger("jobcopy.loadTest.promotedEvery", 10);
+    private static final int COPIES = Integer.getInteger("jobcopy.loadTest.copies", 100);
+    private static final int FORM_FILLS = Integer.getInteger("jobcopy.loadTest.formFills", 5);
+    private static final int LOOKUPS = Integer.getInteger("jobcopy.loadTest.lookups", 1000);
+
+    @Parameterized.Parameters(name = "{0} jobs")
+    public static Collection<Object[]> sizes()
+    {
+        List<Object[]> sizes = new ArrayList<Object[]>();
+        for(String size: System.getProperty(SIZES, "10000,100000").split(","))
+        {
+            sizes.add(new Object[]{Integer.parseInt(size.trim())});
+        }
+        return sizes;
+    }
+
+    @BeforeClass
+    public static void checkEnabled()
+    {
+        assumeTrue(String.format("Run with -P load-test or -D%s", SIZES), System.getProperty(SIZES) != null);
+    }
+
+    private final int size;
+
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public RuleChain chain = RuleChain.outerRule(tmp).around(j);
+
+    public JobcopyBuilderLoadTest(int size)
+    {
+        this.size = size;
+        j.with(new SyntheticHome(tmp, size));
+    }
+
+    /**
+     * Returns the full name of the i-th generated job.
+     */
+    private static String getJobName(int i)
+    {
+        StringBuilder name = new StringBuilder();
+        int leaf = i % (int)Math.pow(FANOUT, DEPTH);
+        for(int level = DEPTH - 1; level >= 0; --level)
+        {
+            name.append(String.format("folder%d/", (leaf / (int)Math.pow(FANOUT, level)) % FANOUT));
+        }
+        name.append(String.format("job%d", i));
+        return name.toString();
+    }
+
+    /**
+     * Generates JENKINS_HOME without starting Jenkins,
+     * as creating jobs through Jenkins takes too long.
+     */
+    private static class SyntheticHome implements HudsonHomeLoader
+    {
+        private final TemporaryFolder tmp;
+        private final int size;
+
+        public SyntheticHome(TemporaryFolder tmp, int size)
+        {
+            this.tmp = tmp;
+            this.size = size;
+        }
+
+        @Override
+        public File allocate() throws Exception
+        {
+            File home = tmp.newFolder("jenkins");
+            for(int i = 0; i < size; ++i)
+            {
+                String name = getJobName(i);
+                File jobDir = home;
+                String[] path = name.split("/");
+                for(int level = 0; level < path.length - 1; ++level)
+                {
+                    jobDir = new File(new File(jobDir, "jobs"), path[level]);
+                    File folderConfig = new File(jobDir, "config.xml");
+                    if(!folderConfig.exists())
+                    {
+                        write(folderConfig, "<com.cloudbees.hudson.plugins.folder.Folder plugin=\"cloudbees-folder\">\n"
+                                + "  <properties/>\n"
+                                + "</com.cloudbees.hudson.plugins.folder.Folder>\n");
+                    }
+                }
+                jobDir = new File(new File(jobDir, "jobs"), path[path.length - 1]);
+                writeJob(jobDir, i);
+            }
+            return home;
+        }
+
+        private void writeJob(File jobDir, int i) throws IOException
+        {
+            boolean promoted = (PROMOTED_EVERY > 0 && i % PROMOTED_EVERY == 0);
+            write(new File(jobDir, "config.xml"), "<project>\n"
+                    + String.format("  <description>Generated job %d</description>\n", i)
+                    + "  <keepDependencies>false</keepDependencies>\n"
+                    + "  <properties>\n"
+                    + (promoted
+                        ?("    <hudson.plugins.promoted__builds.JobPropertyImpl plugin=\"promoted-builds\">\n"
+                            + "      <activeProcessNames>\n"
+                            + "        <string>promotion</string>\n"
+                            + "      </activeProcessNames>\n"
+                            + "    </hudson.plugins.promoted__builds.JobPropertyImpl>\n")
+                        :"")
+                    + "  </properties>\n"
+                    + "  <scm class=\"hudson.scm.NullSCM\"/>\n"
+                    + "  <canRoam>true</canRoam>\n"
+                    + "  <disabled>false</disabled>\n"
+                    + "  <triggers/>\n"
+                    + "  <concurrentBuild>false</concurrentBuild>\n"
+                    + "  <builders>\n"
+                    + "    <hudson.tasks.Shell>\n"
+                    + String.format("      <command>echo job%d</command>\n", i)
+                    + "    </hudson.tasks.Shell>\n"
+                    + "  </builders>\n"
+                    + "  <publishers/>\n"
+                    + "  <buildWrappers/>\n"
+                    + "</project>\n");
+            if(promoted)
+            {
+                write(new File(jobDir, "promotions/promotion/config.xml"),
+                        "<hudson.plugins.promoted__builds.PromotionProcess plugin=\"promoted-builds\">\n"
+                        + "  <keepDependencies>false</keepDependencies>\n"
+                        + "  <properties/>\n"
+                        + "  <scm class=\"hudson.scm.NullSCM\"/>\n"
+                        + "  <canRoam>false</canRoam>\n"
+                        + "  <disabled>false</disabled>\n"
+                        + "  <triggers/>\n"
+                        + "  <concurrentBuild>false</concurrentBuild>\n"
+                        + "  <conditions>\n"
+                        + "    <hudson.plugins.promoted__builds.conditions.ManualCondition>\n"
+                        + "      <users></users>\n"
+                        + "      <parameterDefinitions/>\n"
+                        + "    </hudson.plugins.promoted__builds.conditions.ManualCondition>\n"
+                        + "  </conditions>\n"
+                        + "  <icon>star-gold</icon>\n"
+                        + "  <buildSteps/>\n"
+                        + "</hudson.plugins.promoted__builds.PromotionProcess>\n");
+            }
+            long timestamp = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+            for(int number = 1; number <= BUILDS; ++number)
+            {
+                File buildDir = new File(jobDir, String.format("builds/%d", number));
+                write(new File(buildDir, "build.xml"), "<build>\n"
+                        + "  <actions/>\n"
+                        + String.format("  <timestamp>%d</timestamp>\n", timestamp + number * 60000L)
+                        + String.format("  <startTime>%d</startTime>\n", timestamp + number * 60000L)
+                        + "  <result>SUCCESS</result>\n"
+                        + "  <duration>1000</duration>\n"
+                        + "  <charset>UTF-8</charset>\n"
+                        + "  <keepLog>false</keepLog>\n"
+                        + "</build>\n");
+                write(new File(buildDir, "log"), String.format("echo job%d\njob%d\nFinished: SUCCESS\n", i, i));
+            }
+            write(new File(jobDir, "nextBuildNumber"), String.format("%d\n", BUILDS + 1));
+        }
+
+        private static void write(File file, String contents) throws IOException
+        {
+            FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long getUsedHeap()
+    {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return nanos / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Performs copies in a build, and returns copies per second.
+     */
+    private double copy(String prefix, List<AdditionalFileset> additionalFilesetList) throws Exception
+    {
+        FreeStyleProject seed = j.createFreeStyleProject(prefix + "-seed");
+        int stride = Math.max(1, size / COPIES);
+        for(int i = 0; i < COPIES; ++i)
+        {
+            seed.getBuildersList().add(new JobcopyBuilder(
+                    getJobName((i * stride) % size),
+                    String.format("%s%d", prefix, i),
+                    true,
+                    Arrays.<JobcopyOperation>asList(new ReplaceOperation("Generated", false, "Copied", false)),
+                    additionalFilesetList
+            ));
+        }
+        long start = System.nanoTime();
+        j.buildAndAssertSuccess(seed);
+        long elapsed = System.nanoTime() - start;
+        return COPIES / (elapsed / (double)TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        assertEquals(size, j.jenkins.getAllItems(FreeStyleProject.class).size());
+        JSONObject result = new JSONObject();
+        result.put("jobs", size);
+        result.put("buildsPerJob", BUILDS);
+        result.put("promotedEvery", PROMOTED_EVERY);
+        result.put("heapUsedAfterLoadBytes", getUsedHeap());
+
+        // the deepest job lists all the items with relative names.
+        FreeStyleProject context = j.jenkins.getItemByFullName(getJobName(0), FreeStyleProject.class);
+        JobcopyBuilder.DescriptorImpl descriptor = (JobcopyBuilder.DescriptorImpl)j.jenkins.getDescriptorOrDie(JobcopyBuilder.class);
+        List<Long> formFills = new ArrayList<Long>();
+        for(int i = 0; i < FORM_FILLS; ++i)
+        {
+            long start = System.nanoTime();
+            descriptor.doFillFromJobNameItems(context);
+            formFills.add(System.nanoTime() - start);
+        }
+        Collections.sort(formFills);
+        result.put("formFillMillisMedian", toMillis(formFills.get(formFills.size() / 2)));
+        result.put("formFillMillisMax", toMillis(formFills.get(formFills.size() - 1)));
+
+        // look up jobs relative to the root.
+        long lookupStart = System.nanoTime();
+        for(int i = 0; i < LOOKUPS; ++i)
+        {
+            FormValidation validation = descriptor.doCheckFromJobName(null, getJobName((int)((i * 7919L) % size)));
+            assertEquals(FormValidation.Kind.OK, validation.kind);
+        }
+        result.put("lookupMillisMean", toMillis(System.nanoTime() - lookupStart) / LOOKUPS);
+
+        result.put("copies", COPIES);
+        result.put("copiesPerSecond", copy("copy", Collections.<AdditionalFileset>emptyList()));
+        result.put("copiesWithFilesetPerSecond", copy("fileset", Arrays.asList(
+                new AdditionalFileset("promotions/*/config.xml", null, true, null)
+        )));
+        // job0 has a promotion.
+        assertTrue(new File(j.jenkins.getItemByFullName("fileset0").getRootDir(), "promotions/promotion/config.xml").exists());
+        result.put("heapUsedAfterCopyBytes", getUsedHeap());
+
+        String json = result.toString();
+        LOGGER.info(json);
+        String report = System.getProperty("jobcopy.loadTest.report");
+        if(report != null)
+        {
+            FileUtils.writeStringToFile(new File(report), json + "\n", StandardCharsets.UTF_8, true);
+        }
+    }
+}
@@ -30,7 +30,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.acegisecurity.AccessDeniedException;
 import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -43,6 +46,8 @@ import hudson.model.Item;
 import hudson.model.Label;
 import hudson.model.Result;
 import hudson.model.User;
+import hudson.security.ACL;
+import hudson.util.FormValidation;
 import jenkins.model.Jenkins;
 import jenkins.security.QueueItemAuthenticatorConfiguration;
 
@@ -607,4 +612,53 @@ public class JobcopyBuilderPermissionTest
         dest = j.jenkins.getItemByFullName(dest.getFullName(), FreeStyleProject.class);
         assertNotEquals("test", dest.getAssignedLabelString());
     }
+    
+    @Test
+    public void testCheckStylesheetRequiresConfigure() throws Exception
+    {
+        FreeStyleProject p = j.createFreeStyleProject();
+        
+        j.jenkins.setSecurityRealm(j.createDummySecurityRealm());
+        j.jenkins.setAuthorizationStrategy(
+            new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).onRoot().to("user1", "user2")
+                .grant(Item.READ).onItems(p).to("user1", "user2")
+                .grant(Item.CONFIGURE).onItems(p).to("user2")
+        );
+        
+        XsltOperation.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(XsltOperation.DescriptorImpl.class);
+        String stylesheet = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"/>";
+        SecurityContext orig = ACL.impersonate(User.get("user1").impersonate());
+        try
+        {
+            descriptor.doCheckStylesheet(p, stylesheet);
+            fail("Compiled without CONFIGURE permission");
+        }
+        catch(AccessDeniedException e)
+        {
+            // expected
+        }
+        finally
+        {
+            SecurityContextHolder.setContext(orig);
+        }
+        
+        orig = ACL.impersonate(User.get("user2").impersonate());
+        try
+        {
+            assertEquals(FormValidation.Kind.OK, descriptor.doCheckStylesheet(p, stylesheet).kind);
+            
+            // only administrators can compile outside jobs.
+            descriptor.doCheckStylesheet(null, stylesheet);
+            fail("Compiled without ADMINISTER permission");
+        }
+        catch(AccessDeniedException e)
+        {
+            // expected
+        }
+        finally
+        {
+            SecurityContextHolder.setContext(orig);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import hudson.EnvVars;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for LazyEnvironment, not concerning with Jenkins.
+ */
+public class LazyEnvironmentSimpleTest extends TestCase
+{
+    private static class CountingEnvironment extends LazyEnvironment
+    {
+        public int computed = 0;
+
+        @Override
+        protected EnvVars compute()
+        {
+            ++computed;
+            return new EnvVars("NAME", "value");
+        }
+    }
+
+    public void testExpand() throws Exception
+    {
+        CountingEnvironment env = new CountingEnvironment();
+
+        // not computed without variables.
+        assertEquals("job", env.expand("job"));
+        assertNull(env.expand(null));
+        assertEquals(0, env.computed);
+        assertFalse(env.isComputed());
+
+        // computed only once.
+        assertEquals("job-value", env.expand("job-${NAME}"));
+        assertEquals("value-job", env.expand("$NAME-job"));
+        assertEquals("job-value", env.expand("job-${NAME}"));
+        assertEquals(1, env.computed);
+        assertTrue(env.isComputed());
+    }
+
+    public void testGetFor() throws Exception
+    {
+        CountingEnvironment env = new CountingEnvironment();
+
+        assertTrue(env.getFor(new DisableOperation()).isEmpty());
+        assertTrue(env.getFor(new EnableOperation()).isEmpty());
+        assertTrue(env.getFor(new ReplaceOperation("${NAME}", false, "${NAME}", false)).isEmpty());
+        assertTrue(env.getFor(new ReplaceOperation("NAME", true, "NAME", true)).isEmpty());
+        assertEquals(0, env.computed);
+
+        assertEquals("value", env.getFor(new ReplaceOperation("${NAME}", true, "to", false)).get("NAME"));
+        assertEquals("value", env.getFor(new ReplaceOperation("from", false, "$NAME", true)).get("NAME"));
+        assertEquals(1, env.computed);
+    }
+}
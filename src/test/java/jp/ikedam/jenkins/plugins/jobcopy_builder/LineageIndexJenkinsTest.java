@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import hudson.model.Cause;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PasswordParameterDefinition;
+import hudson.model.PasswordParameterValue;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import com.gargoylesoftware.htmlunit.Page;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for LineageIndex, corresponded to Jenkins.
+ */
+public class LineageIndexJenkinsTest
+{
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FreeStyleProject createCopyJob(String from, String to) throws Exception
+    {
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                from,
+                to,
+                true,
+                Collections.<JobcopyOperation>singletonList(new DisableOperation()),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        return copyJob;
+    }
+
+    @Test
+    public void testRecord() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        FreeStyleProject copyJob = createCopyJob("template", "derived");
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+
+        LineageIndex index = LineageIndex.get();
+        List<LineageRecord> records = index.getDerivedJobs("template");
+        assertEquals(1, records.size());
+        LineageRecord record = records.get(0);
+        assertEquals("template", record.getTemplateJob());
+        assertEquals("derived", record.getDerivedJob());
+        assertEquals(copyJob.getFullName(), record.getSeedJob());
+        assertNotNull(record.getOperationHash());
+        assertEquals(record.getOperationHash(), index.getRecord("derived").getOperationHash());
+        assertTrue(index.hasDerivedJobs("template"));
+        assertFalse(index.hasDerivedJobs("derived"));
+
+        // the action is available for the template.
+        assertNotNull(template.getAction(DerivedJobsAction.class));
+        assertNull(j.jenkins.getItemByFullName("derived", FreeStyleProject.class).getAction(DerivedJobsAction.class));
+        JenkinsRule.WebClient wc = j.createWebClient();
+        wc.getPage(template, "derivedJobs/");
+        Page page = wc.goTo(template.getUrl() + "derivedJobs/api/json", "application/json");
+        assertTrue(page.getWebResponse().getContentAsString().contains("\"derivedJob\":\"derived\""));
+    }
+
+    @Test
+    public void testRenameAndDelete() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        j.assertBuildStatusSuccess(createCopyJob("template", "derived").scheduleBuild2(0));
+
+        LineageIndex index = LineageIndex.get();
+
+        j.jenkins.getItemByFullName("derived", FreeStyleProject.class).renameTo("derived2");
+        assertNull(index.getRecord("derived"));
+        assertEquals("derived2", index.getRecord("derived2").getDerivedJob());
+
+        template.renameTo("template2");
+        assertFalse(index.hasDerivedJobs("template"));
+        assertEquals("template2", index.getRecord("derived2").getTemplateJob());
+        assertEquals(1, index.getDerivedJobs("template2").size());
+
+        j.jenkins.getItemByFullName("derived2", FreeStyleProject.class).delete();
+        assertNull(index.getRecord("derived2"));
+        assertFalse(index.hasDerivedJobs("template2"));
+    }
+
+    @Test
+    public void testCopyFromAnotherTemplate() throws Exception
+    {
+        j.createFreeStyleProject("template1");
+        j.createFreeStyleProject("template2");
+        j.assertBuildStatusSuccess(createCopyJob("template1", "derived").scheduleBuild2(0));
+        j.assertBuildStatusSuccess(createCopyJob("template2", "derived").scheduleBuild2(0));
+
+        LineageIndex index = LineageIndex.get();
+        assertFalse(index.hasDerivedJobs("template1"));
+        assertEquals("template2", index.getRecord("derived").getTemplateJob());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception
+    {
+        j.createFreeStyleProject("template");
+        j.assertBuildStatusSuccess(createCopyJob("template", "derived").scheduleBuild2(0));
+        LineageIndex.get().save();
+
+        LineageIndex loaded = new LineageIndex();
+        assertEquals("template", loaded.getRecord("derived").getTemplateJob());
+        assertEquals(1, loaded.getDerivedJobs("template").size());
+    }
+
+    private FreeStyleProject createReplaceJob(String replaceTo) throws Exception
+    {
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.addProperty(new ParametersDefinitionProperty(
+                new StringParameterDefinition("VALUE", ""),
+                new PasswordParameterDefinition("PASSWORD", "", "")
+        ));
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "derived",
+                true,
+                Collections.<JobcopyOperation>singletonList(new ReplaceOperation("TEMPLATE", false, replaceTo, true)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        return copyJob;
+    }
+
+    @Test
+    public void testVariablesEncrypted() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("TEMPLATE");
+        j.assertBuildStatusSuccess(createReplaceJob("${VALUE}").scheduleBuild2(
+                0,
+                new Cause.UserIdCause(),
+                new ParametersAction(
+                        new StringParameterValue("VALUE", "plainvalue"),
+                        new PasswordParameterValue("PASSWORD", "secretvalue")
+                )
+        ));
+        LineageIndex index = LineageIndex.get();
+        index.save();
+
+        // the value is available to propagate, but not stored in plain text.
+        OperationSet operationSet = index.getOperationSet(index.getRecord("derived").getOperationHash());
+        assertEquals("plainvalue", operationSet.getEnvironment().get("VALUE"));
+        String saved = FileUtils.readFileToString(new File(j.jenkins.getRootDir(), LineageIndex.class.getName() + ".xml"));
+        assertFalse(saved.contains("plainvalue"));
+    }
+
+    @Test
+    public void testSensitiveVariable() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("TEMPLATE");
+        j.assertBuildStatusSuccess(createCopyJob("template", "derived").scheduleBuild2(0));
+        LineageIndex index = LineageIndex.get();
+        assertNotNull(index.getRecord("derived"));
+
+        FreeStyleProject copyJob = createReplaceJob("${PASSWORD}");
+        j.assertLogContains(
+                "derived is not recorded for propagation: operations refer a sensitive variable PASSWORD",
+                j.assertBuildStatusSuccess(copyJob.scheduleBuild2(
+                        0,
+                        new Cause.UserIdCause(),
+                        new ParametersAction(
+                                new StringParameterValue("VALUE", "plainvalue"),
+                                new PasswordParameterValue("PASSWORD", "secretvalue")
+                        )
+                ))
+        );
+
+        // the former record is removed as the job cannot be propagated any more.
+        assertNull(index.getRecord("derived"));
+        assertFalse(index.hasDerivedJobs("template"));
+        index.save();
+        String saved = FileUtils.readFileToString(new File(j.jenkins.getRootDir(), LineageIndex.class.getName() + ".xml"));
+        assertFalse(saved.contains("secretvalue"));
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.EventFilter;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Document;
+
+import hudson.EnvVars;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for OperationChain, not concerning with Jenkins.
+ */
+public class OperationChainSimpleTest extends TestCase
+{
+    /**
+     * Counts calls of the string contract.
+     */
+    private static abstract class CountingOperation extends JobcopyOperation
+    {
+        public int stringCalls = 0;
+
+        @Override
+        public String perform(String xmlString, String encoding, EnvVars env, PrintStream logger)
+        {
+            ++stringCalls;
+            return xmlString.replace("<a>", "<a>legacy");
+        }
+    }
+
+    private static class LegacyOperation extends CountingOperation
+    {
+    }
+
+    private static class DomOperation extends CountingOperation implements DomJobcopyOperation
+    {
+        public int domCalls = 0;
+
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            ++domCalls;
+            doc.getDocumentElement().setAttribute("dom", Integer.toString(domCalls));
+            return doc;
+        }
+    }
+
+    private static class EventOperation extends CountingOperation implements StreamingJobcopyOperation
+    {
+        @Override
+        public XMLEventReader perform(XMLEventReader reader, EnvVars env, PrintStream logger)
+            throws XMLStreamException
+        {
+            // drop comments.
+            return XMLInputFactory.newInstance().createFilteredReader(reader, new EventFilter() {
+                @Override
+                public boolean accept(XMLEvent event)
+                {
+                    return event.getEventType() != XMLEvent.COMMENT;
+                }
+            });
+        }
+    }
+
+    private static class ByteOperation extends CountingOperation implements ByteStreamJobcopyOperation
+    {
+        @Override
+        public boolean perform(InputStream in, OutputStream out, String encoding, EnvVars env, PrintStream logger)
+            throws IOException
+        {
+            out.write(IOUtils.toString(in, encoding).replace("value", "bytes").getBytes(encoding));
+            return true;
+        }
+    }
+
+    private static class FailingOperation extends DomOperation
+    {
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Overrides the string contract: must not be applied to a shared document.
+     */
+    private static class OverridingXmlOperation extends AbstractXmlJobcopyOperation
+    {
+        @Override
+        public Document perform(Document doc, EnvVars env, PrintStream logger)
+        {
+            return doc;
+        }
+
+        @Override
+        public String perform(String xmlString, String encoding, EnvVars env, PrintStream logger)
+        {
+            return super.perform(xmlString, encoding, env, logger);
+        }
+    }
+
+    private static String apply(List<JobcopyOperation> operations, String xml) throws Exception
+    {
+        return OperationChain.apply(
+                operations,
+                xml,
+                "UTF-8",
+                LazyEnvironment.of(new EnvVars()),
+                new PrintStream(new ByteArrayOutputStream(), true, "UTF-8")
+        );
+    }
+
+    public void testPlan()
+    {
+        assertEquals(
+                Arrays.asList(OperationChain.Form.DOM, OperationChain.Form.DOM, OperationChain.Form.STRING),
+                OperationChain.plan(Arrays.<JobcopyOperation>asList(new DomOperation(), new DisableOperation(), new LegacyOperation()))
+        );
+        assertEquals(
+                Arrays.asList(OperationChain.Form.BYTES, OperationChain.Form.EVENTS, OperationChain.Form.EVENTS),
+                OperationChain.plan(Arrays.<JobcopyOperation>asList(new ByteOperation(), new EventOperation(), new EventOperation()))
+        );
+        assertEquals(
+                Arrays.asList(OperationChain.Form.STRING),
+                OperationChain.plan(Arrays.<JobcopyOperation>asList(new OverridingXmlOperation()))
+        );
+    }
+
+    public void testApplyDomOnce() throws Exception
+    {
+        DomOperation op1 = new DomOperation();
+        DomOperation op2 = new DomOperation();
+        String result = apply(
+                Arrays.<JobcopyOperation>asList(op1, new EnableOperation(), op2),
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n  <disabled>true</disabled>\n</root>"
+        );
+        assertEquals(0, op1.stringCalls);
+        assertEquals(0, op2.stringCalls);
+        assertEquals(1, op1.domCalls);
+        assertEquals(1, op2.domCalls);
+        assertTrue(result, result.contains("dom=\"1\""));
+        assertTrue(result, result.contains("  <disabled>false</disabled>"));
+    }
+
+    public void testApplyMixed() throws Exception
+    {
+        LegacyOperation legacy = new LegacyOperation();
+        EventOperation events = new EventOperation();
+        ByteOperation bytes = new ByteOperation();
+        String result = apply(
+                Arrays.<JobcopyOperation>asList(bytes, events, legacy, new DomOperation()),
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><root><!-- comment --><a>value</a></root>"
+        );
+        assertEquals(0, bytes.stringCalls);
+        assertEquals(0, events.stringCalls);
+        assertEquals(1, legacy.stringCalls);
+        assertFalse(result, result.contains("comment"));
+        assertTrue(result, result.contains("<a>legacybytes</a>"));
+        assertTrue(result, result.contains("dom=\"1\""));
+    }
+
+    public void testApplyFailure() throws Exception
+    {
+        assertNull(apply(
+                Arrays.<JobcopyOperation>asList(new DomOperation(), new FailingOperation(), new LegacyOperation()),
+                "<root/>"
+        ));
+        assertNull(apply(
+                Arrays.<JobcopyOperation>asList(new DomOperation()),
+                "<root>"
+        ));
+    }
+
+    public void testOptimize()
+    {
+        ReplaceOperation replace1 = new ReplaceOperation("a", false, "b", false);
+        ReplaceOperation replace2 = new ReplaceOperation("b", false, "c", false);
+        ReplaceOperation noop = new ReplaceOperation("a", false, "a", false);
+        ReplaceOperation expanded = new ReplaceOperation("${A}", true, "${A}", false);
+        LegacyOperation legacy = new LegacyOperation();
+        EnableOperation enable = new EnableOperation();
+        List<JobcopyOperation> optimized = OperationChain.optimize(Arrays.<JobcopyOperation>asList(
+                new DisableOperation(), replace1, noop, new EnableOperation(), replace2, enable,
+                legacy, new DisableOperation(), expanded
+        ));
+        assertEquals(5, optimized.size());
+        assertEquals(Arrays.asList(replace1, replace2), ((ReplaceOperation.Fused)optimized.get(0)).getOperations());
+        assertSame(enable, optimized.get(1));
+        assertSame(legacy, optimized.get(2));
+        assertEquals(DisableOperation.class, optimized.get(3).getClass());
+        assertSame(expanded, optimized.get(4));
+
+        List<JobcopyOperation> operations = Arrays.<JobcopyOperation>asList(new EnableOperation(), legacy, new DisableOperation());
+        assertSame(operations, OperationChain.optimize(operations));
+    }
+
+    public void testOptimizedSameResult() throws Exception
+    {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project>\n"
+                + "  <disabled>false</disabled>\n"
+                + "  <a>abc</a>\n"
+                + "  <b><![CDATA[abc]]></b>\n"
+                + "</project>";
+        List<JobcopyOperation> operations = Arrays.<JobcopyOperation>asList(
+                new DisableOperation(),
+                new ReplaceOperation("a", false, "b", false),
+                new ReplaceOperation("c", false, "c", false),
+                new ReplaceOperation("b", false, "cc", false),
+                new EnableOperation(),
+                new ReplaceOperation("c", false, "ab", false)
+        );
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream(), true, "UTF-8");
+        String expected = xml;
+        for(JobcopyOperation operation: operations)
+        {
+            expected = operation.perform(expected, "UTF-8", new EnvVars(), logger);
+        }
+        assertEquals(expected, apply(operations, xml));
+        assertTrue(expected, expected.contains("<a>ababababab</a>"));
+        assertTrue(expected, expected.contains("<disabled>false</disabled>"));
+    }
+
+    public void testApplyNothing() throws Exception
+    {
+        assertEquals("<root/>", apply(null, "<root/>"));
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import hudson.EnvVars;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Regression tests for allocations and latencies of operations.
+ *
+ * Runs only with the profile "perf-test":
+ * <pre>
+ * mvn test -P perf-test
+ * </pre>
+ *
+ * Operations are applied to fixed configurations of three sizes,
+ * and bytes allocated and the median time per copy are compared with
+ * {@code OperationPerformanceTest/baseline.properties}.
+ * Fails if any of them is larger than the baseline by more than the tolerance
+ * ({@code jobcopy.perfTest.allocationTolerance}, defaults to 10%,
+ * and {@code jobcopy.perfTest.latencyTolerance}, defaults to 50%).
+ *
+ * Measurements without baselines fail, not to pass without comparing anything.
+ * Run with {@code -Djobcopy.perfTest.record=true} to record all of them without comparing.
+ * Measurements are written to {@code target/perf-baseline.properties} to be copied to the baseline.
+ * Record latencies on the machine running the suite, as they depend on it.
+ */
+public class OperationPerformanceTest
+{
+    private static final String ENABLED = "jobcopy.perfTest";
+    private static final boolean RECORD = Boolean.getBoolean("jobcopy.perfTest.record");
+    private static final double ALLOCATION_TOLERANCE = Double.parseDouble(
+            System.getProperty("jobcopy.perfTest.allocationTolerance", "0.1")
+    );
+    private static final double LATENCY_TOLERANCE = Double.parseDouble(
+            System.getProperty("jobcopy.perfTest.latencyTolerance", "0.5")
+    );
+
+    /**
+     * The number of builders in configurations of each size.
+     */
+    private static final int SMALL = 5;
+    private static final int MEDIUM = 200;
+    private static final int LARGE = 5000;
+
+    /**
+     * Bytes of configurations processed in the warm up and in the measurement.
+     */
+    private static final long BYTES_PER_RUN = 20L * 1024 * 1024;
+
+    private static final PrintStream LOGGER = new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM);
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+    private static final Properties baseline = new Properties();
+    private static final Properties recorded = new Properties();
+
+    @BeforeClass
+    public static void setUp() throws IOException
+    {
+        assumeTrue("Run with -P perf-test", Boolean.getBoolean(ENABLED));
+        assumeTrue(
+                "Allocated bytes of threads are not available",
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+        );
+        threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocated bytes of threads are not available", threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        InputStream in = OperationPerformanceTest.class.getResourceAsStream("OperationPerformanceTest/baseline.properties");
+        assertNotNull(in);
+        try
+        {
+            baseline.load(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException
+    {
+        if(recorded.isEmpty())
+        {
+            return;
+        }
+        File file = new File(System.getProperty("jobcopy.perfTest.output", "target/perf-baseline.properties"));
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            recorded.store(out, "Copy to src/test/resources/jp/ikedam/jenkins/plugins/jobcopy_builder/OperationPerformanceTest/baseline.properties");
+        }
+        finally
+        {
+            out.close();
+        }
+        System.out.println(String.format("Measurements are written to %s", file.getAbsolutePath()));
+    }
+
+    /**
+     * Creates a configuration of a freestyle project.
+     *
+     * @param builders the number of builders.
+     * @return the configuration.
+     */
+    private static String createConfig(int builders)
+    {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version='1.1' encoding='UTF-8'?>\n");
+        xml.append("<project>\n");
+        xml.append("  <description>Built for NAME</description>\n");
+        xml.append("  <keepDependencies>false</keepDependencies>\n");
+        xml.append("  <properties>\n");
+        xml.append("    <hudson.model.ParametersDefinitionProperty>\n");
+        xml.append("      <parameterDefinitions>\n");
+        xml.append("        <hudson.model.StringParameterDefinition>\n");
+        xml.append("          <name>TARGET</name>\n");
+        xml.append("          <defaultValue>NAME</defaultValue>\n");
+        xml.append("          <trim>false</trim>\n");
+        xml.append("        </hudson.model.StringParameterDefinition>\n");
+        xml.append("      </parameterDefinitions>\n");
+        xml.append("    </hudson.model.ParametersDefinitionProperty>\n");
+        xml.append("  </properties>\n");
+        xml.append("  <scm class=\"hudson.scm.NullSCM\"/>\n");
+        xml.append("  <canRoam>true</canRoam>\n");
+        xml.append("  <disabled>true</disabled>\n");
+        xml.append("  <triggers>\n");
+        xml.append("    <hudson.triggers.TimerTrigger>\n");
+        xml.append("      <spec>H 2 * * *</spec>\n");
+        xml.append("    </hudson.triggers.TimerTrigger>\n");
+        xml.append("  </triggers>\n");
+        xml.append("  <concurrentBuild>false</concurrentBuild>\n");
+        xml.append("  <builders>\n");
+        for(int i = 0; i < builders; ++i)
+        {
+            xml.append("    <hudson.tasks.Shell>\n");
+            xml.append(String.format("      <command>echo &quot;step %d of NAME&quot;\n./build.sh --target=NAME --step=%d &amp;&amp; echo done</command>\n", i, i));
+            xml.append("    </hudson.tasks.Shell>\n");
+        }
+        xml.append("  </builders>\n");
+        xml.append("  <publishers>\n");
+        xml.append("    <hudson.tasks.ArtifactArchiver>\n");
+        xml.append("      <artifacts>NAME/**/*.jar</artifacts>\n");
+        xml.append("    </hudson.tasks.ArtifactArchiver>\n");
+        xml.append("  </publishers>\n");
+        xml.append("  <buildWrappers/>\n");
+        xml.append("</project>\n");
+        return xml.toString();
+    }
+
+    /**
+     * Measured values per copy.
+     */
+    private static class Measurement
+    {
+        public final long allocatedBytes;
+        public final long nanos;
+
+        public Measurement(long allocatedBytes, long nanos)
+        {
+            this.allocatedBytes = allocatedBytes;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Measures a copy, after warming up.
+     *
+     * @param iterations    the number of copies to measure.
+     * @param copy          the copy.
+     * @return bytes allocated on average, and the median time.
+     */
+    private static Measurement measure(int iterations, Callable<String> copy) throws Exception
+    {
+        for(int i = 0; i < iterations; ++i)
+        {
+            assertNotNull(copy.call());
+        }
+        long threadId = Thread.currentThread().getId();
+        List<Long> nanos = new ArrayList<Long>(iterations);
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < iterations; ++i)
+        {
+            long start = System.nanoTime();
+            copy.call();
+            nanos.add(System.nanoTime() - start);
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        Collections.sort(nanos);
+        return new Measurement(allocated / iterations, nanos.get(iterations / 2));
+    }
+
+    /**
+     * Measures a copy and compares it with the baseline.
+     *
+     * @param name      the name of the measurement.
+     * @param builders  the number of builders in the configuration.
+     * @param copy      applies operations to the configuration.
+     */
+    private static void check(String name, int builders, final CopyFunction copy) throws Exception
+    {
+        final String xml = createConfig(builders);
+        int iterations = (int)Math.max(10, BYTES_PER_RUN / xml.length());
+        Measurement measurement = measure(iterations, new Callable<String>() {
+            @Override
+            public String call() throws Exception
+            {
+                return copy.apply(xml);
+            }
+        });
+        System.out.println(String.format(
+                "%s: %d bytes, %.3f ms per copy of %d bytes",
+                name,
+                measurement.allocatedBytes,
+                measurement.nanos / 1000000.0,
+                xml.length()
+        ));
+
+        String allocatedKey = name + ".allocatedBytes";
+        String nanosKey = name + ".nanos";
+        if(RECORD || baseline.getProperty(allocatedKey) == null || baseline.getProperty(nanosKey) == null)
+        {
+            recorded.setProperty(allocatedKey, Long.toString(measurement.allocatedBytes));
+            recorded.setProperty(nanosKey, Long.toString(measurement.nanos));
+            if(!RECORD)
+            {
+                fail(String.format(
+                        "No baseline for %s: run with -Djobcopy.perfTest.record=true and copy the recorded values to the baseline",
+                        name
+                ));
+            }
+            return;
+        }
+        long allocatedBaseline = Long.parseLong(baseline.getProperty(allocatedKey));
+        long nanosBaseline = Long.parseLong(baseline.getProperty(nanosKey));
+        assertTrue(
+                String.format("%s allocates %d bytes, exceeding the baseline %d bytes by more than %.0f%%",
+                        name, measurement.allocatedBytes, allocatedBaseline, ALLOCATION_TOLERANCE * 100),
+                measurement.allocatedBytes <= allocatedBaseline * (1 + ALLOCATION_TOLERANCE)
+        );
+        assertTrue(
+                String.format("%s takes %d ns, exceeding the baseline %d ns by more than %.0f%%",
+                        name, measurement.nanos, nanosBaseline, LATENCY_TOLERANCE * 100),
+                measurement.nanos <= nanosBaseline * (1 + LATENCY_TOLERANCE)
+        );
+    }
+
+    private static interface CopyFunction
+    {
+        public String apply(String xml) throws Exception;
+    }
+
+    private static final EnvVars ENV = new EnvVars("NAME", "example");
+
+    /**
+     * A single {@link ReplaceOperation}, parsing and serializing the configuration.
+     */
+    private static final CopyFunction REPLACE = new CopyFunction() {
+        private final ReplaceOperation operation = new ReplaceOperation("NAME", false, "${NAME}", true);
+
+        @Override
+        public String apply(String xml)
+        {
+            return operation.perform(xml, "UTF-8", ENV, LOGGER);
+        }
+    };
+
+    /**
+     * A single {@link EnableOperation}, a typical {@link AbstractXmlJobcopyOperation}.
+     */
+    private static final CopyFunction ENABLE = new CopyFunction() {
+        private final EnableOperation operation = new EnableOperation();
+
+        @Override
+        public String apply(String xml)
+        {
+            return operation.perform(xml, "UTF-8", ENV, LOGGER);
+        }
+    };
+
+    /**
+     * Operations usually used together, applied with {@link OperationChain}.
+     */
+    private static final CopyFunction CHAIN = new CopyFunction() {
+        private final List<JobcopyOperation> operations = Arrays.<JobcopyOperation>asList(
+                new ReplaceOperation("NAME", false, "${NAME}", true),
+                new ReplaceOperation("build.sh", false, "make.sh", false),
+                new ReplaceOperation("*.jar", false, "*.war", false),
+                new DisableOperation(),
+                new EnableOperation()
+        );
+
+        @Override
+        public String apply(String xml) throws Exception
+        {
+            return OperationChain.apply(operations, xml, "UTF-8", LazyEnvironment.of(ENV), LOGGER);
+        }
+    };
+
+    @Test
+    public void testReplaceSmall() throws Exception
+    {
+        check("replace.small", SMALL, REPLACE);
+    }
+
+    @Test
+    public void testReplaceMedium() throws Exception
+    {
+        check("replace.medium", MEDIUM, REPLACE);
+    }
+
+    @Test
+    public void testReplaceLarge() throws Exception
+    {
+        check("replace.large", LARGE, REPLACE);
+    }
+
+    @Test
+    public void testEnableSmall() throws Exception
+    {
+        check("enable.small", SMALL, ENABLE);
+    }
+
+    @Test
+    public void testEnableMedium() throws Exception
+    {
+        check("enable.medium", MEDIUM, ENABLE);
+    }
+
+    @Test
+    public void testEnableLarge() throws Exception
+    {
+        check("enable.large", LARGE, ENABLE);
+    }
+
+    @Test
+    public void testChainSmall() throws Exception
+    {
+        check("chain.small", SMALL, CHAIN);
+    }
+
+    @Test
+    public void testChainMedium() throws Exception
+    {
+        check("chain.medium", MEDIUM, CHAIN);
+    }
+
+    @Test
+    public void testChainLarge() throws Exception
+    {
+        check("chain.large", LARGE, CHAIN);
+    }
+}
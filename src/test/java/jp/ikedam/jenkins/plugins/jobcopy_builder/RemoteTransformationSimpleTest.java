@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for RemoteTransformation, not concerning with Jenkins.
+ */
+public class RemoteTransformationSimpleTest extends TestCase
+{
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><project><description>template</description></project>";
+
+    public void testIsValidResult()
+    {
+        assertTrue(RemoteTransformation.isValidResult(
+                XML,
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><project><description>copied</description><disabled>true</disabled></project>"
+        ));
+        assertTrue(RemoteTransformation.isValidResult(XML, "<project/>"));
+    }
+
+    public void testIsValidResultOtherRoot()
+    {
+        assertFalse(RemoteTransformation.isValidResult(XML, "<maven2-moduleset><description>copied</description></maven2-moduleset>"));
+        assertFalse(RemoteTransformation.isValidResult(XML, "<x:project xmlns:x=\"urn:test\"/>"));
+    }
+
+    public void testIsValidResultMalformed()
+    {
+        assertFalse(RemoteTransformation.isValidResult(XML, ""));
+        assertFalse(RemoteTransformation.isValidResult(XML, "<project><description>copied</project>"));
+        assertFalse(RemoteTransformation.isValidResult(XML, "<project/><project/>"));
+        assertFalse(RemoteTransformation.isValidResult(
+                XML,
+                "<!DOCTYPE project [<!ENTITY e SYSTEM \"file:///etc/passwd\">]><project>&e;</project>"
+        ));
+    }
+}
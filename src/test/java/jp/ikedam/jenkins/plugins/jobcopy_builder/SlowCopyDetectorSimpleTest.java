@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for SlowCopyDetector, not concerning with Jenkins.
+ */
+public class SlowCopyDetectorSimpleTest extends TestCase
+{
+    public void testNotSlow()
+    {
+        SlowCopyDetector detector = new SlowCopyDetector(60000, 30000);
+        detector.phase("read");
+        assertEquals(0, detector.finish("from", "to", null, 1, 10, 10, true));
+    }
+
+    public void testDisabled() throws Exception
+    {
+        SlowCopyDetector detector = new SlowCopyDetector(0, 0);
+        Thread.sleep(10);
+        assertEquals(0, detector.finish("from", "to", null, 1, 10, 10, true));
+    }
+
+    public void testSlow() throws Exception
+    {
+        SlowCopyDetector detector = new SlowCopyDetector(10, 0);
+        detector.phase("read");
+        Thread.sleep(50);
+        detector.phase("operations");
+        assertTrue(detector.finish("from", "to", null, 1, 10, 10, true) >= 10);
+    }
+
+    public void testSlowPhase() throws Exception
+    {
+        SlowCopyDetector detector = new SlowCopyDetector(60000, 10);
+        Thread.sleep(50);
+        detector.phase("lock");
+        assertTrue(detector.finish("from", "to", null, 1, 10, 10, true) >= 10);
+    }
+
+    public void testDumpThread()
+    {
+        String dump = SlowCopyDetector.dumpThread(Thread.currentThread().getId());
+        assertTrue(dump, dump.startsWith(String.format("\"%s\" RUNNABLE", Thread.currentThread().getName())));
+        assertTrue(dump, dump.contains("testDumpThread"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import hudson.EnvVars;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for SpreadTriggersOperation, not concerning with Jenkins.
+ */
+public class SpreadTriggersOperationSimpleTest extends TestCase
+{
+    public void testSpreadMinute()
+    {
+        assertEquals("H", SpreadTriggersOperation.spreadMinute("0"));
+        assertEquals("H", SpreadTriggersOperation.spreadMinute("59"));
+        assertEquals("H/15", SpreadTriggersOperation.spreadMinute("*/15"));
+        assertEquals("H(0-29)", SpreadTriggersOperation.spreadMinute("0-29"));
+        assertEquals("H(0-29)/10", SpreadTriggersOperation.spreadMinute("0-29/10"));
+
+        assertEquals("*", SpreadTriggersOperation.spreadMinute("*"));
+        assertEquals("0,30", SpreadTriggersOperation.spreadMinute("0,30"));
+        assertEquals("H", SpreadTriggersOperation.spreadMinute("H"));
+        assertEquals("H/5", SpreadTriggersOperation.spreadMinute("H/5"));
+        assertEquals("60", SpreadTriggersOperation.spreadMinute("60"));
+    }
+
+    public void testSpread()
+    {
+        assertEquals("H 2 * * *", SpreadTriggersOperation.spread("0 2 * * *"));
+        assertEquals(
+                "# nightly\nTZ=Asia/Tokyo\nH 2 * * 1-5\n@hourly\n\n  H/15  *  * * *  \r\n* * * * *",
+                SpreadTriggersOperation.spread(
+                        "# nightly\nTZ=Asia/Tokyo\n0 2 * * 1-5\n@hourly\n\n  */15  *  * * *  \r\n* * * * *"
+                )
+        );
+        assertEquals("", SpreadTriggersOperation.spread(""));
+        // not a schedule
+        assertEquals("0 2 * *", SpreadTriggersOperation.spread("0 2 * *"));
+    }
+
+    public void testPerform()
+    {
+        SpreadTriggersOperation target = new SpreadTriggersOperation();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(stream);
+
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<project>"
+                + "<description>0 2 * * *</description>"
+                + "<triggers>"
+                + "<hudson.triggers.TimerTrigger><spec>0 2 * * *</spec></hudson.triggers.TimerTrigger>"
+                + "<hudson.triggers.SCMTrigger><spec>*/5 * * * *</spec><ignorePostCommitHooks>false</ignorePostCommitHooks></hudson.triggers.SCMTrigger>"
+                + "</triggers>"
+                + "</project>";
+        String result = target.perform(xml, "UTF-8", new EnvVars(), logger);
+        assertNotNull(result);
+        assertTrue(result, result.contains("<description>0 2 * * *</description>"));
+        assertTrue(result, result.contains("<spec>H 2 * * *</spec>"));
+        assertTrue(result, result.contains("<spec>H/5 * * * *</spec>"));
+    }
+
+    public void testPerformPipeline()
+    {
+        SpreadTriggersOperation target = new SpreadTriggersOperation();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(stream);
+
+        String xml = "<?xml version=\"1.0\"?>"
+                + "<flow-definition>"
+                + "<properties>"
+                + "<org.jenkinsci.plugins.workflow.job.properties.PipelineTriggersJobProperty>"
+                + "<triggers>"
+                + "<hudson.triggers.TimerTrigger><spec>30 */4 * * *</spec></hudson.triggers.TimerTrigger>"
+                + "</triggers>"
+                + "</org.jenkinsci.plugins.workflow.job.properties.PipelineTriggersJobProperty>"
+                + "</properties>"
+                + "</flow-definition>";
+        String result = target.perform(xml, "UTF-8", new EnvVars(), logger);
+        assertNotNull(result);
+        assertTrue(result, result.contains("<spec>H */4 * * *</spec>"));
+    }
+
+    public void testPerformNoTriggers()
+    {
+        SpreadTriggersOperation target = new SpreadTriggersOperation();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(stream);
+
+        String xml = "<?xml version=\"1.0\"?><project><triggers/></project>";
+        String result = target.perform(xml, "UTF-8", new EnvVars(), logger);
+        assertNotNull(result);
+        assertTrue(result, result.contains("<triggers/>"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.Collections;
+
+import hudson.model.FreeStyleProject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for TemplateChangeListener, corresponded to Jenkins.
+ */
+public class TemplateChangeListenerJenkinsTest
+{
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FreeStyleProject setUpTemplate() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("autoTemplate");
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "autoTemplate",
+                "derived",
+                true,
+                Collections.<JobcopyOperation>emptyList(),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0));
+        return template;
+    }
+
+    @Test
+    public void testDisabled() throws Exception
+    {
+        FreeStyleProject template = setUpTemplate();
+        template.setDescription("changed");
+        Thread.sleep(2000);
+        assertNull(j.jenkins.getItemByFullName("derived", FreeStyleProject.class).getDescription());
+    }
+
+    @Test
+    public void testCoalesced() throws Exception
+    {
+        JobcopyConfiguration.get().setAutoPropagation(true);
+        JobcopyConfiguration.get().setPropagationDelay(2);
+        FreeStyleProject template = setUpTemplate();
+
+        for(int i = 0; i < 10; ++i)
+        {
+            template.setDescription("changed " + i);
+        }
+        // nothing is propagated during the delay.
+        assertNull(TemplatePropagator.get("autoTemplate"));
+
+        waitForPropagation(template);
+        assertEquals("changed 9", j.jenkins.getItemByFullName("derived", FreeStyleProject.class).getDescription());
+        assertTrue(TemplatePropagator.getLastLog(template).contains("Finished: 1 updated"));
+    }
+
+    @Test
+    public void testMaxDelay() throws Exception
+    {
+        JobcopyConfiguration.get().setAutoPropagation(true);
+        JobcopyConfiguration.get().setPropagationDelay(2);
+        JobcopyConfiguration.get().setMaxPropagationDelay(4);
+        FreeStyleProject template = setUpTemplate();
+
+        // saved continuously, more frequently than the delay.
+        boolean propagated = false;
+        for(int i = 0; i < 40 && !propagated; ++i)
+        {
+            template.setDescription("changed " + i);
+            Thread.sleep(500);
+            propagated = (TemplatePropagator.getLastLog(template) != null);
+        }
+        assertTrue("Propagation is postponed while saved", propagated);
+
+        waitForPropagation(template);
+        assertTrue(j.jenkins.getItemByFullName("derived", FreeStyleProject.class).getDescription().startsWith("changed "));
+    }
+
+    private void waitForPropagation(FreeStyleProject template) throws Exception
+    {
+        long timeout = System.currentTimeMillis() + 30 * 1000;
+        while(TemplatePropagator.getLastLog(template) == null
+                || !TemplatePropagator.getLastLog(template).contains("Finished")
+                || TemplatePropagator.get(template.getFullName()) != null)
+        {
+            if(System.currentTimeMillis() > timeout)
+            {
+                throw new AssertionError("Propagation is not performed");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import hudson.model.Cause;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.security.ACL;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for TemplatePropagator, corresponded to Jenkins.
+ */
+public class TemplatePropagatorJenkinsTest
+{
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private TemplatePropagator propagate(FreeStyleProject template) throws InterruptedException
+    {
+        TemplatePropagator propagator = TemplatePropagator.start(template, ACL.SYSTEM);
+        while(propagator.isRunning())
+        {
+            Thread.sleep(100);
+        }
+        return propagator;
+    }
+
+    @Test
+    public void testPropagate() throws Exception
+    {
+        FreeStyleProject template = j.createFreeStyleProject("template");
+        template.setDescription("template for NAME");
+
+        FreeStyleProject copyJob = j.createFreeStyleProject();
+        copyJob.addProperty(new ParametersDefinitionProperty(
+                new StringParameterDefinition("TO", ""),
+                new StringParameterDefinition("NAME", "")
+        ));
+        copyJob.getBuildersList().add(new JobcopyBuilder(
+                "template",
+                "${TO}",
+                true,
+                Arrays.<JobcopyOperation>asList(new ReplaceOperation("NAME", false, "${NAME}", true)),
+                Collections.<AdditionalFileset>emptyList()
+        ));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0, new Cause.UserIdCause(), new ParametersAction(
+                new StringParameterValue("TO", "derived1"),
+                new StringParameterValue("NAME", "job1")
+        )));
+        j.assertBuildStatusSuccess(copyJob.scheduleBuild2(0, new Cause.UserIdCause(), new ParametersAction(
+                new StringParameterValue("TO", "derived2"),
+                new StringParameterValue("NAME", "job2")
+        )));
+        assertEquals("template for job1", j.jenkins.getItemByFullName("derived1", FreeStyleProject.class).getDescription());
+        assertEquals("template for job2", j.jenkins.getItemByFullName("derived2", FreeStyleProject.class).getDescription());
+
+        // nothing changed.
+        TemplatePropagator propagator = propagate(template);
+        assertEquals(0, propagator.getUpdated());
+        assertEquals(2, propagator.getSkipped());
+        assertEquals(0, propagator.getFailed());
+
+        // template changed.
+        template.setDescription("new template for NAME");
+        propagator = propagate(template);
+        assertEquals(2, propagator.getUpdated());
+        assertEquals(0, propagator.getFailed());
+        assertEquals("new template for job1", j.jenkins.getItemByFullName("derived1", FreeStyleProject.class).getDescription());
+        assertEquals("new template for job2", j.jenkins.getItemByFullName("derived2", FreeStyleProject.class).getDescription());
+
+        // derived job changed.
+        j.jenkins.getItemByFullName("derived1", FreeStyleProject.class).setDescription("modified");
+        propagator = propagate(template);
+        assertEquals(1, propagator.getUpdated());
+        assertEquals(1, propagator.getSkipped());
+        assertEquals("new template for job1", j.jenkins.getItemByFullName("derived1", FreeStyleProject.class).getDescription());
+        assertFalse(propagator.isRunning());
+
+        // only the log of the last propagation is kept.
+        String log = TemplatePropagator.getLastLog(template);
+        assertTrue(log.contains("Finished: 1 updated, 1 skipped, 0 failed"));
+        assertFalse(log.contains("Finished: 2 updated"));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026 IKEDA Yasuyuki
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jp.ikedam.jenkins.plugins.jobcopy_builder;
+
+import hudson.EnvVars;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for XsltOperation, not concerning with Jenkins.
+ */
+public class XsltOperationSimpleTest extends TestCase
+{
+    private static final String CONFIG = "<?xml version='1.1' encoding='UTF-8'?>\n"
+            + "<project>\n"
+            + "  <description>test</description>\n"
+            + "  <publishers>\n"
+            + "    <some.Publisher/>\n"
+            + "  </publishers>\n"
+            + "</project>";
+
+    private static final String REMOVE_PUBLISHERS =
+            "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+            + "<xsl:template match=\"@*|node()\">"
+            + "<xsl:copy><xsl:apply-templates select=\"@*|node()\"/></xsl:copy>"
+            + "</xsl:template>"
+            + "<xsl:template match=\"/*/publishers/*\"/>"
+            + "</xsl:stylesheet>";
+
+    private PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+
+    public void testPerform()
+    {
+        XsltOperation target = new XsltOperation(REMOVE_PUBLISHERS);
+        String result = target.perform(CONFIG, "UTF-8", new EnvVars(), logger);
+        assertNotNull(result);
+        assertTrue(result, result.startsWith("<?xml version='1.1' encoding='UTF-8'?>"));
+        assertTrue(result, result.contains("<description>test</description>"));
+        assertFalse(result, result.contains("some.Publisher"));
+    }
+
+    public void testCompiledOnlyOnce() throws Exception
+    {
+        assertSame(
+                XsltOperation.getTemplates(REMOVE_PUBLISHERS),
+                XsltOperation.getTemplates(new String(REMOVE_PUBLISHERS))
+        );
+    }
+
+    public void testInvalidStylesheet()
+    {
+        assertNull(new XsltOperation("<xsl:stylesheet").perform(CONFIG, "UTF-8", new EnvVars(), logger));
+        assertNull(new XsltOperation("").perform(CONFIG, "UTF-8", new EnvVars(), logger));
+    }
+
+    public void testExternalResourcesNotAllowed()
+    {
+        String stylesheet =
+                "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:template match=\"/\"><project><xsl:copy-of select=\"document('file:///etc/passwd')\"/></project></xsl:template>"
+                + "</xsl:stylesheet>";
+        String result = new XsltOperation(stylesheet).perform(CONFIG, "UTF-8", new EnvVars(), logger);
+        assertTrue(String.valueOf(result), result == null || !result.contains("root"));
+    }
+}